@@ -0,0 +1,101 @@
+package com.holin.benchmark;
+
+import com.holin.Application;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基准测试和压测用的 Spring 容器，数据库为 MySQL 模式的内存 H2
+ * 配置以命令行参数的形式传入，优先级高于 application.yml
+ */
+final class BenchmarkContext {
+
+    // orders 表的行数
+    static final int ORDER_ROWS = 10_000;
+
+    private BenchmarkContext() {
+    }
+
+    // 不启动 Web 服务器，直接从容器里取 Bean 调用
+    static ConfigurableApplicationContext start() {
+        return start(WebApplicationType.NONE,
+                // no-op emitter 下不应触发慢客户端断开
+                "--mcp.sse.queue-capacity=1000000",
+                "--mcp.sse.queue-max-bytes=4GB");
+    }
+
+    /**
+     * 在随机端口上启动完整的 Web 服务，端口见 local.server.port
+     *
+     * @param overrides 追加的配置，如 --mcp.dispatch.max-in-flight=128
+     */
+    static ConfigurableApplicationContext startServer(List<String> overrides) {
+        List<String> args = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--server.tomcat.max-connections=20000",
+                "--server.tomcat.accept-count=1000"));
+        args.addAll(overrides);
+        return start(WebApplicationType.SERVLET, args.toArray(String[]::new));
+    }
+
+    private static ConfigurableApplicationContext start(WebApplicationType webType, String... extraArgs) {
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.datasource.url=jdbc:h2:mem:bench;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.main.banner-mode=off",
+                "--logging.level.com.holin=WARN",
+                // H2 没有 MySQL 的 INFORMATION_SCHEMA 列，目录走实时元数据查询
+                "--mcp.schema.catalog.enabled=false",
+                "--mcp.sql.max-execution-time-hint=false",
+                "--mcp.sql.max-rows=" + ORDER_ROWS
+        ));
+        args.addAll(List.of(extraArgs));
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class)
+                .web(webType)
+                .run(args.toArray(String[]::new));
+        seed(context.getBean(JdbcTemplate.class));
+        return context;
+    }
+
+    private static void seed(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS orders (
+                    id          BIGINT PRIMARY KEY,
+                    customer_id BIGINT NOT NULL,
+                    status      VARCHAR(16) NOT NULL,
+                    amount      DECIMAL(12, 2) NOT NULL,
+                    note        VARCHAR(200),
+                    created_at  TIMESTAMP NOT NULL
+                )""");
+        Integer existing = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders", Integer.class);
+        if (existing != null && existing > 0) {
+            return;
+        }
+
+        String[] statuses = {"NEW", "PAID", "SHIPPED", "DONE", "REFUNDED"};
+        long baseTime = Timestamp.valueOf("2025-01-01 00:00:00").getTime();
+        List<Object[]> rows = new ArrayList<>(ORDER_ROWS);
+        for (int i = 1; i <= ORDER_ROWS; i++) {
+            rows.add(new Object[]{
+                    (long) i,
+                    (long) (i % 997),
+                    statuses[i % statuses.length],
+                    BigDecimal.valueOf(i * 37L % 100_000, 2),
+                    i % 7 == 0 ? null : "order note, \"quoted\" #" + i,
+                    new Timestamp(baseTime + i * 60_000L)
+            });
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO orders (id, customer_id, status, amount, note, created_at) VALUES (?, ?, ?, ?, ?, ?)", rows);
+    }
+}
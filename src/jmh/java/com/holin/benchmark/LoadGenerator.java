@@ -0,0 +1,343 @@
+package com.holin.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * 端到端压测：打开 N 个 SSE 会话，每个会话按固定速率循环执行 initialize -> tools/list -> tools/call，
+ * 按 id 把 SSE 推回的响应与请求对应起来，最后输出每个方法的吞吐量和 p50 / p99 / p999 延迟。
+ * <p>
+ * 不指定 --target 时在随机端口启动完整应用 (内存 H2)，其余未识别的 --key=value 参数原样传给该应用：
+ * <pre>
+ * mvn -Pjmh test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.holin.benchmark.LoadGenerator \
+ *     -Dexec.args="--sessions=2000 --rate=2 --duration=60 --mcp.dispatch.max-in-flight=128"
+ * </pre>
+ * 延迟从计划发送时间开始计算，服务端变慢导致的排队会计入结果，不会被固定速率掩盖。
+ */
+public class LoadGenerator {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final List<String> METHODS = List.of("initialize", "tools/list", "tools/call");
+
+    // 会话数、每个会话每秒执行的循环数、压测时长、建立全部会话的爬坡时间、单个请求的超时
+    private int sessions = 100;
+    private double rate = 1.0;
+    private Duration duration = Duration.ofSeconds(30);
+    private Duration rampUp = Duration.ofSeconds(5);
+    private Duration requestTimeout = Duration.ofSeconds(30);
+    private String target;
+    private String sql = "SELECT id, status, amount FROM orders WHERE customer_id = 42 ORDER BY id LIMIT 20";
+    private final List<String> serverArgs = new ArrayList<>();
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    private final AtomicLong nextId = new AtomicLong();
+    private final Map<Long, CompletableFuture<JsonNode>> pending = new ConcurrentHashMap<>();
+    private final Map<String, LatencyStats> stats = new LinkedHashMap<>();
+    private final LongAdder failedSessions = new LongAdder();
+
+    public static void main(String[] args) throws Exception {
+        LoadGenerator generator = new LoadGenerator();
+        generator.parse(args);
+        generator.run();
+    }
+
+    private void parse(String[] args) {
+        for (String arg : args) {
+            String[] kv = arg.replaceFirst("^--", "").split("=", 2);
+            String value = kv.length > 1 ? kv[1] : "";
+            switch (kv[0]) {
+                case "sessions" -> sessions = Integer.parseInt(value);
+                case "rate" -> rate = Double.parseDouble(value);
+                case "duration" -> duration = Duration.ofSeconds(Long.parseLong(value));
+                case "ramp-up" -> rampUp = Duration.ofSeconds(Long.parseLong(value));
+                case "timeout" -> requestTimeout = Duration.ofSeconds(Long.parseLong(value));
+                case "target" -> target = value.replaceAll("/+$", "");
+                case "sql" -> sql = value;
+                default -> serverArgs.add(arg);
+            }
+        }
+        for (String method : METHODS) {
+            stats.put(method, new LatencyStats());
+        }
+    }
+
+    private void run() throws Exception {
+        ConfigurableApplicationContext context = null;
+        if (target == null) {
+            context = BenchmarkContext.startServer(serverArgs);
+            target = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        }
+
+        System.out.printf("Target %s, %d sessions, %.2f loops/s each, %ds%n",
+                target, sessions, rate, duration.toSeconds());
+
+        long startNanos = System.nanoTime();
+        long endNanos = startNanos + rampUp.toNanos() + duration.toNanos();
+        CountDownLatch done = new CountDownLatch(sessions);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < sessions; i++) {
+                // 会话在爬坡时间内均匀建立，避免瞬间打满服务端
+                long delayNanos = rampUp.toNanos() * i / Math.max(1, sessions);
+                executor.execute(() -> {
+                    try {
+                        sleepUntil(startNanos + delayNanos);
+                        runSession(endNanos);
+                    } catch (Exception e) {
+                        failedSessions.increment();
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            done.await();
+        }
+
+        // 吞吐量按包含爬坡在内的总耗时计算
+        report(Duration.ofNanos(System.nanoTime() - startNanos));
+        if (context != null) {
+            context.close();
+        }
+        System.exit(0);
+    }
+
+    /**
+     * 一个 SSE 会话：建立连接、等待 endpoint 事件，然后按固定速率循环发送请求直到结束
+     */
+    private void runSession(long endNanos) throws Exception {
+        CompletableFuture<String> endpoint = new CompletableFuture<>();
+        HttpRequest sseRequest = HttpRequest.newBuilder(URI.create(target + "/sse"))
+                .header("Accept", "text/event-stream")
+                .GET()
+                .build();
+        CompletableFuture<HttpResponse<Stream<String>>> stream =
+                client.sendAsync(sseRequest, HttpResponse.BodyHandlers.ofLines());
+        Thread reader = Thread.ofVirtual().start(() -> readEvents(stream, endpoint));
+
+        try {
+            // endpoint 可能是完整地址，只取路径和参数，拼到实际压测地址上
+            URI endpointUri = URI.create(endpoint.get(requestTimeout.toMillis(), TimeUnit.MILLISECONDS));
+            URI messages = URI.create(target + endpointUri.getRawPath() + "?" + endpointUri.getRawQuery());
+
+            long periodNanos = (long) (1_000_000_000L / rate);
+            long scheduled = System.nanoTime();
+            while (scheduled < endNanos) {
+                sleepUntil(scheduled);
+                long intended = scheduled;
+                if (call(messages, "initialize", initializeParams(), intended)
+                        && call(messages, "tools/list", null, System.nanoTime())) {
+                    call(messages, "tools/call", toolCallParams(), System.nanoTime());
+                }
+                scheduled += periodNanos;
+            }
+        } finally {
+            stream.thenAccept(response -> response.body().close());
+            stream.cancel(true);
+            reader.interrupt();
+        }
+    }
+
+    // 解析 SSE 事件流：endpoint 事件交给会话，message 事件按 id 唤醒等待中的请求
+    private void readEvents(CompletableFuture<HttpResponse<Stream<String>>> stream, CompletableFuture<String> endpoint) {
+        try (Stream<String> lines = stream.join().body()) {
+            String[] event = {"message"};
+            StringBuilder data = new StringBuilder();
+            lines.forEach(line -> {
+                if (line.isEmpty()) {
+                    dispatchEvent(event[0], data.toString(), endpoint);
+                    event[0] = "message";
+                    data.setLength(0);
+                } else if (line.startsWith("event:")) {
+                    event[0] = line.substring(6).trim();
+                } else if (line.startsWith("data:")) {
+                    if (!data.isEmpty()) {
+                        data.append('\n');
+                    }
+                    data.append(line.substring(5).stripLeading());
+                }
+            });
+        } catch (Exception e) {
+            endpoint.completeExceptionally(e);
+        }
+    }
+
+    private void dispatchEvent(String event, String data, CompletableFuture<String> endpoint) {
+        if (data.isEmpty()) {
+            return;
+        }
+        if ("endpoint".equals(event)) {
+            endpoint.complete(data);
+            return;
+        }
+        try {
+            JsonNode message = MAPPER.readTree(data);
+            CompletableFuture<JsonNode> waiter = pending.remove(message.path("id").asLong(-1));
+            if (waiter != null) {
+                waiter.complete(message);
+            }
+        } catch (IOException e) {
+            // 忽略无法解析的事件
+        }
+    }
+
+    /**
+     * 发送一个请求并等待对应的 SSE 响应
+     *
+     * @param intendedNanos 计划发送时间，延迟从这里开始计算
+     * @return 是否成功
+     */
+    private boolean call(URI messages, String method, JsonNode params, long intendedNanos) {
+        long id = nextId.incrementAndGet();
+        ObjectNode request = MAPPER.createObjectNode()
+                .put("jsonrpc", "2.0")
+                .put("id", id)
+                .put("method", method);
+        if (params != null) {
+            request.set("params", params);
+        }
+
+        CompletableFuture<JsonNode> waiter = new CompletableFuture<>();
+        pending.put(id, waiter);
+        LatencyStats methodStats = stats.get(method);
+        try {
+            HttpResponse<Void> accepted = client.send(HttpRequest.newBuilder(messages)
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(request.toString()))
+                            .build(),
+                    HttpResponse.BodyHandlers.discarding());
+            if (accepted.statusCode() != 202) {
+                methodStats.error("http " + accepted.statusCode());
+                return false;
+            }
+
+            JsonNode response = waiter.get(requestTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            long latency = System.nanoTime() - intendedNanos;
+            if (response.has("error")) {
+                methodStats.error("rpc " + response.path("error").path("code").asInt());
+                return false;
+            }
+            methodStats.record(latency);
+            return true;
+
+        } catch (TimeoutException e) {
+            methodStats.error("timeout");
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            methodStats.error(e.getClass().getSimpleName());
+            return false;
+        } finally {
+            pending.remove(id);
+        }
+    }
+
+    private static JsonNode initializeParams() {
+        ObjectNode params = MAPPER.createObjectNode().put("protocolVersion", "2024-11-05");
+        params.putObject("capabilities");
+        params.putObject("clientInfo").put("name", "load-generator").put("version", "1.0.0");
+        return params;
+    }
+
+    private JsonNode toolCallParams() {
+        ObjectNode params = MAPPER.createObjectNode().put("name", "query_database");
+        params.putObject("arguments").put("sql", sql);
+        return params;
+    }
+
+    private static void sleepUntil(long deadlineNanos) throws InterruptedException {
+        long remaining = deadlineNanos - System.nanoTime();
+        if (remaining > 0) {
+            TimeUnit.NANOSECONDS.sleep(remaining);
+        }
+    }
+
+    private void report(Duration elapsed) {
+        double seconds = elapsed.toNanos() / 1e9;
+        System.out.printf("%nElapsed %.1fs, failed sessions: %d%n", seconds, failedSessions.sum());
+        System.out.printf("%-12s %10s %10s %10s %10s %10s %10s %10s%n",
+                "method", "ok", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        stats.forEach((method, s) -> {
+            long[] sorted = s.sorted();
+            System.out.printf("%-12s %10d %10d %10.1f %10.2f %10.2f %10.2f %10.2f%n",
+                    method, sorted.length, s.errorCount(), sorted.length / seconds,
+                    percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 0.999),
+                    sorted.length > 0 ? sorted[sorted.length - 1] / 1e6 : 0.0);
+            if (!s.errors().isEmpty()) {
+                System.out.printf("%-12s errors: %s%n", "", s.errors());
+            }
+        });
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+
+    // 单个方法的延迟样本 (纳秒) 和错误分类计数
+    private static final class LatencyStats {
+
+        private long[] samples = new long[1024];
+        private int size;
+        private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+        synchronized void record(long nanos) {
+            if (size == samples.length) {
+                samples = Arrays.copyOf(samples, size * 2);
+            }
+            samples[size++] = nanos;
+        }
+
+        void error(String kind) {
+            errors.computeIfAbsent(kind, k -> new LongAdder()).increment();
+        }
+
+        synchronized long[] sorted() {
+            long[] copy = Arrays.copyOf(samples, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+
+        long errorCount() {
+            return errors.values().stream().mapToLong(LongAdder::sum).sum();
+        }
+
+        Map<String, LongAdder> errors() {
+            return errors;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.holin.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.holin.dto.JsonRpcRequest;
+import com.holin.dto.JsonRpcResponse;
+import com.holin.service.McpService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * McpService.process 端到端开销，包含把响应编码为字节
+ * tools/call 经过 query_database -> SqlService -> H2
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class McpServiceBenchmark {
+
+    @Param({"10", "100"})
+    public int limit;
+
+    private ConfigurableApplicationContext context;
+    private McpService mcpService;
+    private ObjectMapper objectMapper;
+
+    private JsonRpcRequest toolsList;
+    private JsonRpcRequest toolsCall;
+
+    @Setup
+    public void setup() throws Exception {
+        context = BenchmarkContext.start();
+        mcpService = context.getBean(McpService.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+
+        toolsList = objectMapper.readValue("""
+                {"jsonrpc":"2.0","id":1,"method":"tools/list"}""", JsonRpcRequest.class);
+        toolsCall = objectMapper.readValue("""
+                {"jsonrpc":"2.0","id":2,"method":"tools/call","params":{"name":"query_database",
+                 "arguments":{"sql":"SELECT * FROM orders WHERE customer_id < 500 ORDER BY id LIMIT %d"}}}"""
+                .formatted(limit), JsonRpcRequest.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] toolsList() throws Exception {
+        JsonRpcResponse response = mcpService.process(toolsList);
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] toolsCall() throws Exception {
+        JsonRpcResponse response = mcpService.process(toolsCall);
+        return objectMapper.writeValueAsBytes(response);
+    }
+}
@@ -0,0 +1,55 @@
+package com.holin.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.holin.codec.ResultFormat;
+import com.holin.dto.JsonRpcResponse;
+import com.holin.dto.QueryResult;
+import com.holin.dto.ToolCallResult;
+import com.holin.service.SqlService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 查询结果编码为最终 JSON-RPC 响应字节的开销
+ * 结果在 setup 阶段从 H2 查出，基准只测序列化
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResultSerializationBenchmark {
+
+    @Param({"1000", "10000"})
+    public int rows;
+
+    @Param({"rows", "columnar", "csv"})
+    public String format;
+
+    private ConfigurableApplicationContext context;
+    private ObjectMapper objectMapper;
+    private JsonRpcResponse response;
+
+    @Setup
+    public void setup() {
+        context = BenchmarkContext.start();
+        objectMapper = context.getBean(ObjectMapper.class);
+
+        QueryResult result = context.getBean(SqlService.class)
+                .executeQuery("SELECT * FROM orders ORDER BY id LIMIT " + rows, null, ResultFormat.from(format));
+        response = JsonRpcResponse.success(1, new ToolCallResult("query_database", result));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return objectMapper.writeValueAsBytes(response);
+    }
+}
@@ -0,0 +1,33 @@
+package com.holin.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.holin.dto.DescribeTablesReq;
+import com.holin.dto.SqlQueryReq;
+import com.holin.schema.SchemaHelper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SchemaHelper.generate 生成工具 inputSchema 的开销
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SchemaHelperBenchmark {
+
+    private final SchemaHelper schemaHelper = new SchemaHelper();
+
+    @Benchmark
+    public JsonNode sqlQueryReq() {
+        return schemaHelper.generate(SqlQueryReq.class);
+    }
+
+    @Benchmark
+    public JsonNode describeTablesReq() {
+        return schemaHelper.generate(DescribeTablesReq.class);
+    }
+}
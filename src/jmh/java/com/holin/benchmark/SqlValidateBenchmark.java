@@ -0,0 +1,51 @@
+package com.holin.benchmark;
+
+import com.holin.service.SqlService;
+import net.sf.jsqlparser.statement.select.Select;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SqlService.validate 的解析 + 校验 + LIMIT 改写开销 (不经过解析缓存)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SqlValidateBenchmark {
+
+    private static final String SIMPLE = "SELECT id, status, amount FROM orders WHERE customer_id = 42 ORDER BY id DESC";
+
+    @Param({"simple", "nested"})
+    public String shape;
+
+    private final SqlService service = new SqlService();
+
+    private String sql;
+
+    @Setup
+    public void setup() {
+        sql = "simple".equals(shape) ? SIMPLE : nested(8);
+    }
+
+    // 多层子查询 + JOIN + 聚合，模拟 Agent 生成的复杂语句
+    private static String nested(int depth) {
+        String sql = "SELECT o.id, o.amount FROM orders o WHERE o.status IN ('PAID', 'SHIPPED')";
+        for (int i = 0; i < depth; i++) {
+            sql = "SELECT t" + i + ".id, SUM(t" + i + ".amount) AS total, COUNT(*) AS cnt"
+                    + " FROM (" + sql + ") t" + i
+                    + " JOIN orders j" + i + " ON j" + i + ".id = t" + i + ".id"
+                    + " WHERE j" + i + ".customer_id > " + i
+                    + " GROUP BY t" + i + ".id HAVING COUNT(*) > 0";
+        }
+        return sql + " ORDER BY 1";
+    }
+
+    @Benchmark
+    public Select validate() {
+        return service.validate(sql);
+    }
+}
@@ -0,0 +1,64 @@
+package com.holin.benchmark;
+
+import com.holin.codec.ResultFormat;
+import com.holin.dto.JsonRpcResponse;
+import com.holin.dto.ToolCallResult;
+import com.holin.manager.SseSessionManager;
+import com.holin.service.SqlService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SseSessionManager.send 的开销 (编码 + 入队)，emitter 不做实际 IO
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SseSendBenchmark {
+
+    // 丢弃所有事件的 emitter
+    static class NoOpEmitter extends SseEmitter {
+        NoOpEmitter() {
+            super(0L);
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) {
+        }
+    }
+
+    @Param({"10", "1000"})
+    public int rows;
+
+    private ConfigurableApplicationContext context;
+    private SseSessionManager sessionManager;
+    private String sessionId;
+    private JsonRpcResponse response;
+
+    @Setup
+    public void setup() {
+        context = BenchmarkContext.start();
+        sessionManager = context.getBean(SseSessionManager.class);
+        sessionId = sessionManager.register(new NoOpEmitter(), false);
+
+        var result = context.getBean(SqlService.class)
+                .executeQuery("SELECT * FROM orders ORDER BY id LIMIT " + rows, null, ResultFormat.ROWS);
+        response = JsonRpcResponse.success(1, new ToolCallResult("query_database", result));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public boolean send() {
+        return sessionManager.send(sessionId, response);
+    }
+}
@@ -0,0 +1,60 @@
+package com.holin.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.holin.codec.ResultFormat;
+import com.holin.dto.JsonRpcResponse;
+import com.holin.dto.QueryResult;
+import com.holin.dto.ToolCallResult;
+import com.holin.service.SqlService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * tools/call 结果编码为响应字节的开销
+ * doubleEncode 是之前的做法：结果先序列化成 String 放进 text 字段，写响应时再整体转义一次；
+ * singleEncode 是现在的做法：ToolCallResult 在写响应时把结果直接转义写进 text 字段
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ToolResultEncodingBenchmark {
+
+    @Param({"100", "1000"})
+    public int rows;
+
+    private ConfigurableApplicationContext context;
+    private ObjectMapper objectMapper;
+    private QueryResult result;
+
+    @Setup
+    public void setup() {
+        context = BenchmarkContext.start();
+        objectMapper = context.getBean(ObjectMapper.class);
+        result = context.getBean(SqlService.class)
+                .executeQuery("SELECT * FROM orders ORDER BY id LIMIT " + rows, null, ResultFormat.ROWS);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] doubleEncode() throws Exception {
+        String text = objectMapper.writeValueAsString(result);
+        Map<String, Object> content = Map.of("content", List.of(Map.of("type", "text", "text", text)));
+        return objectMapper.writeValueAsBytes(JsonRpcResponse.success(1, content));
+    }
+
+    @Benchmark
+    public byte[] singleEncode() throws Exception {
+        return objectMapper.writeValueAsBytes(JsonRpcResponse.success(1, new ToolCallResult("query_database", result)));
+    }
+}
@@ -0,0 +1,67 @@
+package com.holin.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.holin.dto.JsonRpcRequest;
+import com.holin.dto.JsonRpcResponse;
+import com.holin.service.McpService;
+import com.holin.tool.McpTool;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * tools/list 响应编码为字节的开销
+ * regenerate 是预序列化之前的做法：每次调用都用 SchemaHelper.generate 生成各工具的 inputSchema 再整体序列化；
+ * precomputed 是现在的做法：启动时序列化一次，之后只拷贝字节
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ToolsListBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private McpService mcpService;
+    private ObjectMapper objectMapper;
+    private List<McpTool> tools;
+
+    private JsonRpcRequest toolsList;
+
+    @Setup
+    public void setup() throws Exception {
+        context = BenchmarkContext.start();
+        mcpService = context.getBean(McpService.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+        tools = List.copyOf(context.getBeansOfType(McpTool.class).values());
+
+        toolsList = objectMapper.readValue("""
+                {"jsonrpc":"2.0","id":1,"method":"tools/list"}""", JsonRpcRequest.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] regenerate() throws Exception {
+        // 各工具的 getInputSchema 每次都调用 SchemaHelper.generate
+        List<Map<String, Object>> descriptors = tools.stream()
+                .map(tool -> Map.<String, Object>of(
+                        "name", tool.getName(),
+                        "description", tool.getDescription(),
+                        "inputSchema", tool.getInputSchema()))
+                .toList();
+        return objectMapper.writeValueAsBytes(JsonRpcResponse.success(1, Map.of("tools", descriptors)));
+    }
+
+    @Benchmark
+    public byte[] precomputed() throws Exception {
+        return objectMapper.writeValueAsBytes(mcpService.process(toolsList));
+    }
+}
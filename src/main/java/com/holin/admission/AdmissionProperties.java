@@ -0,0 +1,39 @@
+package com.holin.admission;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * 数据库访问准入控制配置 (mcp.admission)
+ */
+@ConfigurationProperties("mcp.admission")
+public record AdmissionProperties(
+
+        @DefaultValue("true") boolean enabled,
+
+        // 同时访问数据库的请求总数，<= 0 时取主库与各副本连接池大小之和
+        @DefaultValue("0") int maxConcurrent,
+
+        // 总数中留给元数据通道的名额，其余归查询通道
+        @DefaultValue("2") int metadataConcurrency,
+
+        // 排队等待名额的最长时间，超过即返回 ADMISSION_TIMEOUT，不再等到连接池超时
+        @DefaultValue("5s") Duration queueTimeout,
+
+        // 每个会话每秒允许的数据库调用数与突发上限，<= 0 表示不限速
+        @DefaultValue("10") double ratePerSecond,
+        @DefaultValue("20") int burst,
+
+        // 会话的限速和权重状态在空闲多久后丢弃
+        @DefaultValue("30m") Duration sessionIdleTimeout,
+
+        // 按 initialize 时上报的 clientInfo.name 指定的排队权重，未列出的客户端权重为 1
+        Map<String, Integer> clientWeights
+) {
+    public AdmissionProperties {
+        clientWeights = clientWeights != null ? Map.copyOf(clientWeights) : Map.of();
+    }
+}
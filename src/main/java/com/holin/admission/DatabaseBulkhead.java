@@ -0,0 +1,215 @@
+package com.holin.admission;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.holin.exception.McpErrorCode;
+import com.holin.exception.McpException;
+import com.holin.manager.InFlightRegistry;
+import com.holin.manager.InFlightRequest;
+import com.holin.metrics.McpMetrics;
+import com.holin.replica.ReplicaProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 数据库访问的准入控制 (舱壁)
+ * 虚拟线程下请求数几乎不受限制，如果直接去连接池取连接，突发流量会让大量线程堵在 getConnection() 上直到连接池超时。
+ * 这里在取连接之前先拿名额：
+ * - 全局并发上限与连接池大小一致，拿到名额的请求基本不用再等连接
+ * - 元数据和查询分两个通道，各自的名额互不占用
+ * - 每个会话一个令牌桶，调用过于频繁时直接返回 RATE_LIMITED
+ * - 名额不够时按会话加权公平排队，排队超过 queue-timeout 返回 ADMISSION_TIMEOUT
+ * 会话取自当前线程上处理中的请求；没有会话的进程内调用共用一个匿名会话，不限速。
+ */
+@Component
+@EnableConfigurationProperties(AdmissionProperties.class)
+public class DatabaseBulkhead {
+
+    private static final Logger log = LoggerFactory.getLogger(DatabaseBulkhead.class);
+
+    private static final String ANONYMOUS = "anonymous";
+
+    private final AdmissionProperties properties;
+    private final McpMetrics metrics;
+    private final Map<Lane, FairLane> lanes = new EnumMap<>(Lane.class);
+    private final Map<Lane, Counter> rateLimited = new EnumMap<>(Lane.class);
+    private final Map<Lane, Counter> timedOut = new EnumMap<>(Lane.class);
+
+    // 会话 ID -> 限速与权重状态
+    private final Cache<String, SessionBudget> sessions;
+
+    public DatabaseBulkhead(AdmissionProperties properties, ReplicaProperties replicaProperties, McpMetrics metrics,
+                            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int primaryPoolSize) {
+        this.properties = properties;
+        this.metrics = metrics;
+        this.sessions = Caffeine.newBuilder()
+                .expireAfterAccess(properties.sessionIdleTimeout())
+                .build();
+
+        int total = properties.maxConcurrent();
+        if (total <= 0) {
+            total = primaryPoolSize;
+            for (ReplicaProperties.Node node : replicaProperties.nodes()) {
+                total += node.maxPoolSize();
+            }
+        }
+        // 查询通道至少保留一个名额
+        int metadataPermits = Math.max(1, Math.min(properties.metadataConcurrency(), total - 1));
+        lanes.put(Lane.METADATA, new FairLane(metadataPermits));
+        lanes.put(Lane.QUERY, new FairLane(Math.max(1, total - metadataPermits)));
+
+        for (Map.Entry<Lane, FairLane> entry : lanes.entrySet()) {
+            Lane lane = entry.getKey();
+            FairLane fairLane = entry.getValue();
+            Gauge.builder("mcp.admission.active", fairLane, FairLane::active)
+                    .description("Requests holding a database slot")
+                    .tag("lane", lane.id())
+                    .register(metrics.registry());
+            Gauge.builder("mcp.admission.queued", fairLane, FairLane::queued)
+                    .description("Requests waiting for a database slot")
+                    .tag("lane", lane.id())
+                    .register(metrics.registry());
+            rateLimited.put(lane, rejectedCounter(lane, "rate_limited"));
+            timedOut.put(lane, rejectedCounter(lane, "timeout"));
+        }
+        log.info("Database admission: enabled={}, query slots={}, metadata slots={}, queue timeout={}, rate={}/s",
+                properties.enabled(), lanes.get(Lane.QUERY).permits(), metadataPermits,
+                properties.queueTimeout(), properties.ratePerSecond());
+    }
+
+    private Counter rejectedCounter(Lane lane, String reason) {
+        return Counter.builder("mcp.admission.rejected")
+                .description("Database calls refused by admission control")
+                .tag("lane", lane.id())
+                .tag("reason", reason)
+                .register(metrics.registry());
+    }
+
+    /**
+     * 按 initialize 请求里的 clientInfo.name 设置会话的排队权重
+     */
+    public void assignClient(String sessionId, JsonNode initializeParams) {
+        if (sessionId == null || initializeParams == null) {
+            return;
+        }
+        String client = initializeParams.path("clientInfo").path("name").asText("");
+        Integer weight = properties.clientWeights().get(client);
+        if (weight != null && weight > 1) {
+            budget(sessionId).weight = weight;
+            log.info("Session {} ({}) admitted with weight {}", sessionId, client, weight);
+        }
+    }
+
+    /**
+     * 申请当前请求在指定通道上的名额，用完后必须 close
+     *
+     * @throws McpException RATE_LIMITED 会话调用过于频繁；ADMISSION_TIMEOUT 排队超时
+     */
+    public Permit enter(Lane lane) {
+        if (!properties.enabled()) {
+            return Permit.NONE;
+        }
+
+        InFlightRequest request = InFlightRegistry.current();
+        String sessionId = request != null ? request.getSessionId() : null;
+        SessionBudget budget = budget(sessionId != null ? sessionId : ANONYMOUS);
+
+        if (sessionId != null && budget.bucket != null && !budget.bucket.tryAcquire(System.nanoTime())) {
+            rateLimited.get(lane).increment();
+            long retryMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(budget.bucket.nanosUntilNext(System.nanoTime())));
+            log.warn("Session {} rate limited on {} lane", sessionId, lane.id());
+            throw new McpException(McpErrorCode.RATE_LIMITED,
+                    "Too many database calls from this session (limit " + properties.ratePerSecond()
+                            + "/s). Retry in " + retryMillis + "ms.");
+        }
+
+        FairLane fairLane = lanes.get(lane);
+        long waitStart = System.nanoTime();
+        boolean admitted;
+        try {
+            admitted = fairLane.acquire(sessionId != null ? sessionId : ANONYMOUS, budget.weight,
+                    properties.queueTimeout().toNanos());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new McpException(McpErrorCode.REQUEST_CANCELLED, "Request interrupted while waiting for a database slot.");
+        }
+        metrics.recordPhase(McpMetrics.ADMISSION, System.nanoTime() - waitStart);
+
+        if (!admitted) {
+            timedOut.get(lane).increment();
+            log.warn("No {} slot became free within {}ms. Session: {}", lane.id(), properties.queueTimeout().toMillis(), sessionId);
+            throw new McpException(McpErrorCode.ADMISSION_TIMEOUT,
+                    "Database is saturated: no " + lane.id() + " slot became free within "
+                            + properties.queueTimeout().toMillis() + "ms. Retry later.");
+        }
+        return new Permit(fairLane);
+    }
+
+    private SessionBudget budget(String sessionId) {
+        return sessions.get(sessionId, id -> new SessionBudget(properties.ratePerSecond() > 0
+                ? new TokenBucket(properties.ratePerSecond(), properties.burst(), System.nanoTime())
+                : null));
+    }
+
+    public List<Map<String, Object>> stats() {
+        List<Map<String, Object>> stats = new ArrayList<>();
+        for (Map.Entry<Lane, FairLane> entry : lanes.entrySet()) {
+            Lane lane = entry.getKey();
+            FairLane fairLane = entry.getValue();
+            Map<String, Object> laneStats = new LinkedHashMap<>();
+            laneStats.put("lane", lane.id());
+            laneStats.put("permits", fairLane.permits());
+            laneStats.put("active", fairLane.active());
+            laneStats.put("queued", fairLane.queued());
+            laneStats.put("rateLimited", (long) rateLimited.get(lane).count());
+            laneStats.put("timedOut", (long) timedOut.get(lane).count());
+            stats.add(laneStats);
+        }
+        return stats;
+    }
+
+    /**
+     * 一个通道名额，close 时归还；重复 close 无副作用
+     */
+    public static final class Permit implements AutoCloseable {
+
+        static final Permit NONE = new Permit(null);
+
+        private FairLane lane;
+
+        private Permit(FairLane lane) {
+            this.lane = lane;
+        }
+
+        @Override
+        public void close() {
+            FairLane current = lane;
+            if (current != null) {
+                lane = null;
+                current.release();
+            }
+        }
+    }
+
+    private static final class SessionBudget {
+        private final TokenBucket bucket;
+        private volatile int weight = 1;
+
+        private SessionBudget(TokenBucket bucket) {
+            this.bucket = bucket;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.holin.admission;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 带公平排队的计数信号量
+ * 名额用完后，等待者按会话做加权公平排队 (Start-time Fair Queuing)：
+ * - 每个请求的开始标签 = max(虚拟时间, 本会话上一个请求的结束标签)，结束标签 = 开始标签 + 1 / 权重
+ * - 名额释放时发给开始标签最小的等待者，虚拟时间推进到它的开始标签
+ * 一个会话一次性塞进很多请求时，它们的标签依次递增，其他会话新来的请求可以插到前面，
+ * 各会话按权重比例轮流拿到名额，而不是按到达顺序被一个会话占满。
+ * 用 ReentrantLock 而不是 synchronized，虚拟线程等待时不会钉住载体线程。
+ */
+final class FairLane {
+
+    private final int permits;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final PriorityQueue<Waiter> waiting = new PriorityQueue<>(
+            Comparator.comparingDouble(Waiter::start).thenComparingLong(Waiter::sequence));
+
+    // 各会话最后一个请求的结束标签；不大于虚拟时间的记录与不存在等价，定期清掉
+    private final Map<String, Double> lastFinish = new HashMap<>();
+
+    private int active;
+    private double virtualTime;
+    private long sequence;
+    private long grants;
+
+    FairLane(int permits) {
+        this.permits = Math.max(1, permits);
+    }
+
+    /**
+     * 申请一个名额，最多等待 timeoutNanos
+     *
+     * @param weight 会话权重，权重为 2 的会话在竞争时拿到的名额是权重为 1 的两倍
+     * @return 超时仍未拿到名额时返回 false
+     */
+    boolean acquire(String session, int weight, long timeoutNanos) throws InterruptedException {
+        lock.lock();
+        try {
+            double start = Math.max(virtualTime, lastFinish.getOrDefault(session, 0d));
+            double finish = start + 1d / Math.max(1, weight);
+            lastFinish.put(session, finish);
+
+            // 有空闲名额且没人排队时直接放行
+            if (active < permits && waiting.isEmpty()) {
+                active++;
+                advanceTo(start);
+                return true;
+            }
+
+            Waiter waiter = new Waiter(start, sequence++, lock.newCondition());
+            waiting.add(waiter);
+            long remaining = timeoutNanos;
+            try {
+                while (!waiter.granted) {
+                    if (remaining <= 0) {
+                        waiting.remove(waiter);
+                        // 没拿到名额的请求不计入本会话的份额
+                        if (lastFinish.getOrDefault(session, 0d) == finish) {
+                            lastFinish.put(session, start);
+                        }
+                        return false;
+                    }
+                    remaining = waiter.condition.awaitNanos(remaining);
+                }
+                return true;
+            } catch (InterruptedException e) {
+                // 被中断时名额可能刚好已经发过来，需要还回去交给下一个等待者
+                if (waiter.granted) {
+                    active--;
+                    grantNext();
+                } else {
+                    waiting.remove(waiter);
+                }
+                throw e;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void release() {
+        lock.lock();
+        try {
+            active--;
+            grantNext();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void grantNext() {
+        while (active < permits) {
+            Waiter next = waiting.poll();
+            if (next == null) {
+                return;
+            }
+            active++;
+            next.granted = true;
+            advanceTo(next.start);
+            next.condition.signal();
+        }
+    }
+
+    private void advanceTo(double start) {
+        if (start > virtualTime) {
+            virtualTime = start;
+        }
+        if ((++grants & 1023) == 0) {
+            lastFinish.values().removeIf(f -> f <= virtualTime);
+        }
+    }
+
+    int permits() {
+        return permits;
+    }
+
+    int active() {
+        lock.lock();
+        try {
+            return active;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int queued() {
+        lock.lock();
+        try {
+            return waiting.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class Waiter {
+        private final double start;
+        private final long sequence;
+        private final Condition condition;
+        private boolean granted;
+
+        private Waiter(double start, long sequence, Condition condition) {
+            this.start = start;
+            this.sequence = sequence;
+            this.condition = condition;
+        }
+
+        double start() {
+            return start;
+        }
+
+        long sequence() {
+            return sequence;
+        }
+    }
+}
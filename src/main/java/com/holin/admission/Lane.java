@@ -0,0 +1,24 @@
+package com.holin.admission;
+
+/**
+ * 数据库访问通道
+ * 两个通道的名额互相独立，表结构等轻量的元数据调用不会排在耗时的查询后面
+ */
+public enum Lane {
+
+    // table_list / table_schema / describe_tables 的实时元数据查询
+    METADATA("metadata"),
+
+    // query_database 的 SQL 查询
+    QUERY("query");
+
+    private final String id;
+
+    Lane(String id) {
+        this.id = id;
+    }
+
+    public String id() {
+        return id;
+    }
+}
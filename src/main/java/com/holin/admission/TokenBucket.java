@@ -0,0 +1,49 @@
+package com.holin.admission;
+
+/**
+ * 令牌桶限速：按固定速率补充令牌，最多积攒 burst 个，每次调用消耗一个
+ * 临界区只有几次算术运算，不会阻塞，虚拟线程在这里不会被长时间钉住
+ */
+final class TokenBucket {
+
+    private final double tokensPerNano;
+    private final double capacity;
+
+    private double tokens;
+    private long lastRefill;
+
+    TokenBucket(double ratePerSecond, int burst, long nowNanos) {
+        this.tokensPerNano = ratePerSecond / 1_000_000_000d;
+        this.capacity = Math.max(1, burst);
+        this.tokens = capacity;
+        this.lastRefill = nowNanos;
+    }
+
+    /**
+     * 取一个令牌
+     *
+     * @return 桶里没有令牌时返回 false
+     */
+    synchronized boolean tryAcquire(long nowNanos) {
+        refill(nowNanos);
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    // 距离下一个令牌可用还需等待的时间
+    synchronized long nanosUntilNext(long nowNanos) {
+        refill(nowNanos);
+        return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / tokensPerNano);
+    }
+
+    private void refill(long nowNanos) {
+        long elapsed = nowNanos - lastRefill;
+        if (elapsed > 0) {
+            tokens = Math.min(capacity, tokens + elapsed * tokensPerNano);
+            lastRefill = nowNanos;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.holin.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.holin.sql.CostVerdict;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 执行计划检查结论缓存
+ * 以 SQL 指纹为 key，同一结构、不同参数的查询复用一次 EXPLAIN 的结论，不再多一次往返
+ * 数据量变化后估算会过时，所以按 ttl 过期重新检查
+ */
+@Component
+public class PlanVerdictCache {
+
+    @Value("${mcp.cache.plan.ttl:10m}")
+    private Duration ttl = Duration.ofMinutes(10);
+
+    @Value("${mcp.cache.plan.max-size:10000}")
+    private long maxSize = 10_000;
+
+    private Cache<String, CostVerdict> cache;
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    public CostVerdict getIfPresent(String fingerprint) {
+        return cache.getIfPresent(fingerprint);
+    }
+
+    public void put(String fingerprint, CostVerdict verdict) {
+        cache.put(fingerprint, verdict);
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+}
@@ -0,0 +1,287 @@
+package com.holin.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.holin.dto.QueryResult;
+import com.holin.exception.McpErrorCode;
+import com.holin.exception.McpException;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 查询结果缓存
+ * - 以规范化 SQL 为 key，每个条目有独立的 TTL
+ * - 容量按结果的估算字节数计算，而不是条目数
+ * - 按引用的表建立失效分组，某张表变化时可以整组清除
+ * - 同一 key 的并发未命中只会有一个请求真正访问数据库，其余请求等待其结果
+ */
+@Component
+public class QueryResultCache {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryResultCache.class);
+
+    @Value("${mcp.cache.result.enabled:false}")
+    private boolean enabled;
+
+    @Value("${mcp.cache.result.ttl:30s}")
+    private Duration defaultTtl;
+
+    @Value("${mcp.cache.result.max-size:64MB}")
+    private DataSize maxSize;
+
+    private Cache<String, Entry> cache;
+
+    // 表名 -> 引用该表的缓存 key
+    private final Map<String, Set<String>> keysByTable = new ConcurrentHashMap<>();
+
+    // 正在加载中的 key，用于合并并发的相同查询
+    private final Map<String, CompletableFuture<QueryResult>> inFlight = new ConcurrentHashMap<>();
+
+    // 每次失效递增；加载期间发生过失效的结果不再写入缓存，避免写回旧数据
+    private final AtomicLong invalidationEpoch = new AtomicLong();
+
+    private final LongAdder coalesced = new LongAdder();
+
+    private record Entry(QueryResult result, Set<String> tables, long bytes, long ttlNanos) {}
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((String key, Entry entry) -> (int) Math.min(Integer.MAX_VALUE, entry.bytes() + 2L * key.length()))
+                .expireAfter(new Expiry<String, Entry>() {
+                    @Override
+                    public long expireAfterCreate(String key, Entry entry, long currentTime) {
+                        return entry.ttlNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+                        return entry.ttlNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .removalListener((String key, Entry entry, RemovalCause cause) -> {
+                    // 被同 key 新值替换时索引仍然有效，不需要清理
+                    if (key != null && entry != null && cause != RemovalCause.REPLACED) {
+                        unindex(key, entry.tables());
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 使用默认 TTL 读取或加载
+     */
+    public QueryResult get(String key, Set<String> tables, Duration maxWait, Supplier<QueryResult> loader) {
+        return get(key, tables, defaultTtl, maxWait, loader);
+    }
+
+    /**
+     * 命中直接返回；未命中时只有第一个请求执行 loader，并发的相同请求等待同一个结果
+     * 执行的请求被取消或超时只说明它自己的请求结束了，等待者会重新加载 (自己执行或等待新的执行者)
+     *
+     * @param maxWait 等待其他请求加载的最长时间，一般为调用方的查询超时
+     * @throws McpException QUERY_TIMEOUT 等待超过 maxWait；REQUEST_CANCELLED 等待时线程被中断
+     */
+    public QueryResult get(String key, Set<String> tables, Duration ttl, Duration maxWait,
+                           Supplier<QueryResult> loader) {
+        long deadline = System.nanoTime() + maxWait.toNanos();
+        while (true) {
+            Entry cached = cache.getIfPresent(key);
+            if (cached != null) {
+                return cached.result();
+            }
+
+            CompletableFuture<QueryResult> future = new CompletableFuture<>();
+            CompletableFuture<QueryResult> existing = inFlight.putIfAbsent(key, future);
+            if (existing == null) {
+                return load(key, tables, ttl, loader, future);
+            }
+            coalesced.increment();
+            QueryResult result = await(key, existing, deadline, maxWait);
+            if (result != null) {
+                return result;
+            }
+        }
+    }
+
+    private QueryResult load(String key, Set<String> tables, Duration ttl, Supplier<QueryResult> loader,
+                             CompletableFuture<QueryResult> future) {
+        try {
+            long epoch = invalidationEpoch.get();
+            QueryResult result = loader.get();
+            if (epoch == invalidationEpoch.get()) {
+                put(key, tables, ttl, result);
+                // 写入的同时发生了失效，失效时可能还看不到这个 key，撤回这次写入
+                if (epoch != invalidationEpoch.get()) {
+                    cache.invalidate(key);
+                }
+            }
+            future.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private void put(String key, Set<String> tables, Duration ttl, QueryResult result) {
+        // 先建索引再写入，保证失效时一定能找到这个 key
+        for (String table : tables) {
+            keysByTable.computeIfAbsent(table, t -> ConcurrentHashMap.newKeySet()).add(key);
+        }
+        cache.put(key, new Entry(result, tables, estimateBytes(result), ttl.toNanos()));
+    }
+
+    private void unindex(String key, Set<String> tables) {
+        for (String table : tables) {
+            keysByTable.computeIfPresent(table, (t, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+
+    /**
+     * 等待其他请求的加载结果
+     *
+     * @return 执行的请求被取消或超时时返回 null，由调用方重新加载
+     */
+    private static QueryResult await(String key, CompletableFuture<QueryResult> future, long deadline,
+                                     Duration maxWait) {
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new McpException(McpErrorCode.REQUEST_CANCELLED, "Request interrupted while waiting for an identical query.");
+        } catch (TimeoutException e) {
+            throw new McpException(McpErrorCode.QUERY_TIMEOUT,
+                    "Query exceeded the " + maxWait.toSeconds() + "s time limit while waiting for an identical query to finish.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof McpException cause && (cause.getErrorCode() == McpErrorCode.REQUEST_CANCELLED
+                    || cause.getErrorCode() == McpErrorCode.QUERY_TIMEOUT)) {
+                log.debug("Coalesced load of {} ended with {}, retrying", key, cause.getErrorCode());
+                return null;
+            }
+            // 把加载线程抛出的业务异常原样抛给等待者
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * 清除引用了指定表的所有缓存结果
+     */
+    public void invalidateTable(String table) {
+        invalidationEpoch.incrementAndGet();
+        Set<String> keys = keysByTable.remove(table);
+        if (keys != null && !keys.isEmpty()) {
+            cache.invalidateAll(keys);
+            log.info("Invalidated {} cached results for table '{}'", keys.size(), table);
+        }
+    }
+
+    public void invalidateTables(Collection<String> tables) {
+        tables.forEach(this::invalidateTable);
+    }
+
+    public void invalidateAll() {
+        invalidationEpoch.incrementAndGet();
+        cache.invalidateAll();
+        keysByTable.clear();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    public long bytes() {
+        return cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+    }
+
+    public long coalescedCount() {
+        return coalesced.sum();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    // 粗略估算结果集在堆上占用的字节数
+    private static long estimateBytes(QueryResult result) {
+        long bytes = 64 + estimate(result.sql()) + estimate(result.columns()) + estimate(result.csv());
+        if (result.rows() != null) {
+            for (Object row : result.rows()) {
+                if (row instanceof Map<?, ?> map) {
+                    bytes += 48;
+                    for (Object value : map.values()) {
+                        bytes += 32 + estimate(value);
+                    }
+                } else if (row instanceof Object[] values) {
+                    bytes += 16 + 8L * values.length;
+                    for (Object value : values) {
+                        bytes += estimate(value);
+                    }
+                }
+            }
+        }
+        return bytes;
+    }
+
+    private static long estimate(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof CharSequence text) {
+            return 40 + 2L * text.length();
+        }
+        if (value instanceof byte[] bytes) {
+            return 16 + bytes.length;
+        }
+        if (value instanceof List<?> list) {
+            long bytes = 24 + 8L * list.size();
+            for (Object item : list) {
+                bytes += estimate(item);
+            }
+            return bytes;
+        }
+        return 24;
+    }
+}
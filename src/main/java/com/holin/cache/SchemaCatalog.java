@@ -0,0 +1,261 @@
+package com.holin.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 内存中的表结构目录
+ * table_list / table_schema 直接从这里读取，不再每次占用连接池做元数据查询。
+ * 后台定时轮询 INFORMATION_SCHEMA 检测变化：
+ * - CREATE_TIME 或列定义校验和变化 -> 表结构变了，丢弃该表缓存的列信息
+ * - UPDATE_TIME 变化 -> 数据变了，清除引用该表的查询结果缓存
+ * 表的统计画像 (profile_table) 也挂在目录条目上，表结构或数据变化时随条目一起丢弃
+ */
+@Component
+public class SchemaCatalog {
+
+    private static final Logger log = LoggerFactory.getLogger(SchemaCatalog.class);
+
+    // 一次查询拿到所有表的版本信息；列校验和按 ORDINAL_POSITION 参与计算，列顺序变化也能识别
+    private static final String VERSION_SQL = """
+            SELECT t.TABLE_NAME, t.CREATE_TIME, t.UPDATE_TIME, c.COLUMN_CHECKSUM
+            FROM INFORMATION_SCHEMA.TABLES t
+            LEFT JOIN (
+                SELECT TABLE_NAME,
+                       SUM(CRC32(CONCAT_WS('|', COLUMN_NAME, COLUMN_TYPE, IS_NULLABLE, ORDINAL_POSITION, COLUMN_COMMENT))) AS COLUMN_CHECKSUM
+                FROM INFORMATION_SCHEMA.COLUMNS
+                WHERE TABLE_SCHEMA = DATABASE()
+                GROUP BY TABLE_NAME
+            ) c ON c.TABLE_NAME = t.TABLE_NAME
+            WHERE t.TABLE_SCHEMA = DATABASE() AND t.TABLE_TYPE = 'BASE TABLE'
+            ORDER BY t.TABLE_NAME
+            """;
+
+    @Value("${mcp.schema.catalog.enabled:true}")
+    private boolean enabled;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private QueryResultCache resultCache;
+
+    // 表名 -> 目录条目，刷新时整体替换，读取无需加锁
+    private volatile Map<String, TableEntry> tables = Map.of();
+
+    private volatile boolean ready;
+
+    private volatile long lastRefreshMillis;
+
+    private record TableVersion(String createTime, String updateTime, long columnChecksum) {}
+
+    private record VersionRow(String table, TableVersion version) {}
+
+    private record CachedProfile(Map<String, Object> profile, long createdMillis) {}
+
+    private static final class TableEntry {
+        private final TableVersion version;
+        private volatile List<Map<String, Object>> columns;
+
+        // 同一张表按采样参数和列分别缓存
+        private final Map<String, CachedProfile> profiles = new ConcurrentHashMap<>();
+
+        private TableEntry(TableVersion version, List<Map<String, Object>> columns) {
+            this.version = version;
+            this.columns = columns;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 目录是否已成功加载过，未就绪时调用方应直接查库
+     */
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    public List<String> tableNames() {
+        return List.copyOf(tables.keySet());
+    }
+
+    /**
+     * 读取表的列信息，未缓存时通过 loader 从数据库加载并记住
+     * 目录中不存在的表 (新建的表或表名错误) 直接交给 loader 处理，不做缓存
+     */
+    public List<Map<String, Object>> columns(String table, Function<String, List<Map<String, Object>>> loader) {
+        TableEntry entry = isReady() ? tables.get(table) : null;
+        if (entry == null) {
+            return loader.apply(table);
+        }
+
+        List<Map<String, Object>> columns = entry.columns;
+        if (columns == null) {
+            columns = List.copyOf(loader.apply(table));
+            entry.columns = columns;
+        }
+        return columns;
+    }
+
+    /**
+     * 读取表的统计画像，未缓存或超过 maxAge 时通过 loader 重新计算
+     * 计算不加锁，同一张表并发请求时可能各算一次，以后写入的为准
+     *
+     * @param key 区分采样参数和列的缓存键
+     */
+    public Map<String, Object> profile(String table, String key, Duration maxAge, Supplier<Map<String, Object>> loader) {
+        TableEntry entry = isReady() ? tables.get(table) : null;
+        if (entry == null) {
+            return loader.get();
+        }
+
+        CachedProfile cached = entry.profiles.get(key);
+        if (cached != null && System.currentTimeMillis() - cached.createdMillis() < maxAge.toMillis()) {
+            return cached.profile();
+        }
+        Map<String, Object> profile = loader.get();
+        entry.profiles.put(key, new CachedProfile(profile, System.currentTimeMillis()));
+        return profile;
+    }
+
+    /**
+     * 批量写入预加载的列信息
+     */
+    public void putColumns(Map<String, List<Map<String, Object>>> columnsByTable) {
+        Map<String, TableEntry> current = tables;
+        columnsByTable.forEach((table, columns) -> {
+            TableEntry entry = current.get(table);
+            if (entry != null) {
+                entry.columns = List.copyOf(columns);
+            }
+        });
+    }
+
+    @Scheduled(initialDelayString = "${mcp.schema.catalog.refresh-interval:60000}",
+            fixedDelayString = "${mcp.schema.catalog.refresh-interval:60000}")
+    void scheduledRefresh() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            refresh();
+        } catch (DataAccessException e) {
+            log.warn("Schema catalog refresh failed: {}", e.getMostSpecificCause().getMessage());
+        }
+    }
+
+    /**
+     * 重新拉取所有表的版本信息，返回结构或数据发生变化的表
+     */
+    public synchronized Set<String> refresh() {
+        List<VersionRow> versions = jdbcTemplate.execute(
+                (ConnectionCallback<List<VersionRow>>) this::queryVersions);
+
+        Map<String, TableEntry> previous = tables;
+        Map<String, TableEntry> next = new LinkedHashMap<>();
+        Set<String> structureChanged = new LinkedHashSet<>();
+        Set<String> dataChanged = new LinkedHashSet<>();
+
+        for (VersionRow row : Objects.requireNonNull(versions)) {
+            String table = row.table();
+            TableVersion version = row.version();
+            TableEntry old = previous.get(table);
+
+            if (old == null) {
+                next.put(table, new TableEntry(version, null));
+                if (ready) {
+                    structureChanged.add(table);
+                }
+            } else if (!Objects.equals(old.version.createTime(), version.createTime())
+                    || old.version.columnChecksum() != version.columnChecksum()) {
+                next.put(table, new TableEntry(version, null));
+                structureChanged.add(table);
+            } else if (!Objects.equals(old.version.updateTime(), version.updateTime())) {
+                next.put(table, new TableEntry(version, old.columns));
+                dataChanged.add(table);
+            } else {
+                next.put(table, old);
+            }
+        }
+
+        // 已删除的表
+        for (String table : previous.keySet()) {
+            if (!next.containsKey(table)) {
+                structureChanged.add(table);
+            }
+        }
+
+        tables = Collections.unmodifiableMap(next);
+        ready = true;
+        lastRefreshMillis = System.currentTimeMillis();
+
+        Set<String> changed = new LinkedHashSet<>(structureChanged);
+        changed.addAll(dataChanged);
+        if (!changed.isEmpty()) {
+            log.info("Schema catalog detected changes. Structure: {}, Data: {}", structureChanged, dataChanged);
+            resultCache.invalidateTables(changed.stream().map(t -> t.toLowerCase(Locale.ROOT)).toList());
+        }
+        return changed;
+    }
+
+    private List<VersionRow> queryVersions(Connection conn) throws SQLException {
+        // MySQL 8 默认把 INFORMATION_SCHEMA.TABLES 的统计列缓存 24 小时，UPDATE_TIME 会看不到变化
+        boolean statsExpiryOverridden = setStatsExpiry(conn, "0");
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(VERSION_SQL)) {
+            List<VersionRow> versions = new ArrayList<>();
+            while (rs.next()) {
+                versions.add(new VersionRow(rs.getString("TABLE_NAME"), new TableVersion(
+                        rs.getString("CREATE_TIME"),
+                        rs.getString("UPDATE_TIME"),
+                        rs.getLong("COLUMN_CHECKSUM"))));
+            }
+            return versions;
+        } finally {
+            if (statsExpiryOverridden) {
+                setStatsExpiry(conn, "DEFAULT");
+            }
+        }
+    }
+
+    private static boolean setStatsExpiry(Connection conn, String value) {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("SET SESSION information_schema_stats_expiry = " + value);
+            return true;
+        } catch (SQLException e) {
+            // MySQL 5.7 没有该变量，忽略即可
+            return false;
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, TableEntry> current = tables;
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("ready", ready);
+        result.put("tables", current.size());
+        result.put("tablesWithColumns", current.values().stream().filter(e -> e.columns != null).count());
+        result.put("profiles", current.values().stream().mapToInt(e -> e.profiles.size()).sum());
+        result.put("lastRefreshMillis", lastRefreshMillis);
+        return result;
+    }
+}
@@ -0,0 +1,67 @@
+package com.holin.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.holin.sql.ParsedSql;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Function;
+
+/**
+ * SQL 解析结果缓存
+ * 以 SQL 原文为 key 缓存 JSqlParser 的解析与校验结论，重复的查询不再重新解析
+ * 不使用哈希值作为 key：哈希碰撞可能让一条未经校验的语句复用其他语句的放行结论
+ */
+@Component
+public class SqlParseCache {
+
+    // 每个条目在 SQL 长度之外额外计入的固定开销 (AST 对象等)
+    private static final int ENTRY_OVERHEAD = 256;
+
+    @Value("${mcp.cache.parse.enabled:true}")
+    private boolean enabled;
+
+    // 缓存容量上限，按 SQL 字符数加权，防止大量超长 SQL 撑爆内存
+    @Value("${mcp.cache.parse.max-weight:4000000}")
+    private long maxWeight;
+
+    private Cache<String, ParsedSql> cache;
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher((String sql, ParsedSql parsed) -> sql.length() + ENTRY_OVERHEAD)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * 命中则直接返回，未命中时调用 parser 解析并写入缓存
+     */
+    public ParsedSql get(String sql, Function<String, ParsedSql> parser) {
+        if (!enabled) {
+            return parser.apply(sql);
+        }
+        return cache.get(sql, parser);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+}
@@ -0,0 +1,47 @@
+package com.holin.codec;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ReusableCharBuffer 对象池
+ * 请求运行在虚拟线程上，ThreadLocal 缓存无法复用，这里用一个全局的小池子
+ */
+public final class CharBufferPool {
+
+    private static final int INITIAL_CAPACITY = 8 * 1024;
+
+    // 最多缓存的缓冲区个数
+    private static final int MAX_POOLED = 32;
+
+    // 超过该容量的缓冲区用完直接丢弃，避免一次大结果把内存长期占住
+    private static final int MAX_RETAINED_CAPACITY = 1024 * 1024;
+
+    private static final Queue<ReusableCharBuffer> POOL = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger POOLED = new AtomicInteger();
+
+    private CharBufferPool() {
+    }
+
+    public static ReusableCharBuffer acquire() {
+        ReusableCharBuffer buffer = POOL.poll();
+        if (buffer == null) {
+            return new ReusableCharBuffer(INITIAL_CAPACITY);
+        }
+        POOLED.decrementAndGet();
+        return buffer;
+    }
+
+    public static void release(ReusableCharBuffer buffer) {
+        if (buffer.capacity() > MAX_RETAINED_CAPACITY) {
+            return;
+        }
+        if (POOLED.incrementAndGet() > MAX_POOLED) {
+            POOLED.decrementAndGet();
+            return;
+        }
+        buffer.reset();
+        POOL.offer(buffer);
+    }
+}
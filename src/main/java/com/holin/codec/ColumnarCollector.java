@@ -0,0 +1,42 @@
+package com.holin.codec;
+
+import com.holin.dto.QueryResult;
+import org.springframework.jdbc.support.JdbcUtils;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 列式格式：列名只输出一次，每行是一个值数组，不为每行构建 Map
+ */
+public class ColumnarCollector implements ResultCollector {
+
+    private String[] columns;
+    private final List<Object[]> rows = new ArrayList<>();
+
+    @Override
+    public void start(String[] columns) {
+        this.columns = columns;
+    }
+
+    @Override
+    public void accept(ResultSet rs) throws SQLException {
+        Object[] row = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            row[i] = JdbcUtils.getResultSetValue(rs, i + 1);
+        }
+        rows.add(row);
+    }
+
+    @Override
+    public int rowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public QueryResult finish(String sql, boolean truncated) {
+        return QueryResult.columnar(sql, List.of(columns), rows, truncated);
+    }
+}
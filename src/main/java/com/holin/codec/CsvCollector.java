@@ -0,0 +1,81 @@
+package com.holin.codec;
+
+import com.holin.dto.QueryResult;
+import org.springframework.jdbc.support.JdbcUtils;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * CSV 格式 (RFC 4180)：首行列名，之后每行一条记录，NULL 输出为空
+ */
+public class CsvCollector implements ResultCollector {
+
+    private String[] columns;
+    private final StringBuilder csv = new StringBuilder(4096);
+    private int rowCount;
+
+    @Override
+    public void start(String[] columns) {
+        this.columns = columns;
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                csv.append(',');
+            }
+            appendField(columns[i]);
+        }
+        csv.append('\n');
+    }
+
+    @Override
+    public void accept(ResultSet rs) throws SQLException {
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                csv.append(',');
+            }
+            Object value = JdbcUtils.getResultSetValue(rs, i + 1);
+            if (value instanceof byte[] bytes) {
+                csv.append(Base64.getEncoder().encodeToString(bytes));
+            } else if (value instanceof Number || value instanceof Boolean) {
+                csv.append(value);
+            } else if (value != null) {
+                appendField(value.toString());
+            }
+        }
+        csv.append('\n');
+        rowCount++;
+    }
+
+    private void appendField(String value) {
+        boolean needsQuote = false;
+        for (int i = 0; i < value.length() && !needsQuote; i++) {
+            char c = value.charAt(i);
+            needsQuote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!needsQuote) {
+            csv.append(value);
+            return;
+        }
+        csv.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                csv.append('"');
+            }
+            csv.append(c);
+        }
+        csv.append('"');
+    }
+
+    @Override
+    public int rowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public QueryResult finish(String sql, boolean truncated) {
+        return QueryResult.csv(sql, List.of(columns), rowCount, csv.toString(), truncated);
+    }
+}
@@ -0,0 +1,23 @@
+package com.holin.codec;
+
+import com.holin.dto.QueryResult;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 结果集编码器，直接从 ResultSet 逐行读取并编码为目标格式
+ */
+public interface ResultCollector {
+
+    // 读取第一行之前调用，传入列名
+    void start(String[] columns);
+
+    // 读取当前行
+    void accept(ResultSet rs) throws SQLException;
+
+    int rowCount();
+
+    // 生成最终结果
+    QueryResult finish(String sql, boolean truncated);
+}
@@ -0,0 +1,45 @@
+package com.holin.codec;
+
+import com.holin.exception.McpErrorCode;
+import com.holin.exception.McpException;
+
+import java.util.Locale;
+
+/**
+ * 查询结果的编码格式
+ */
+public enum ResultFormat {
+
+    // 每行一个 {列名: 值} 对象 (默认，兼容旧客户端)
+    ROWS,
+
+    // 列名只出现一次，每行是一个值数组
+    COLUMNAR,
+
+    // RFC 4180 CSV 文本，首行为列名
+    CSV;
+
+    public static ResultFormat from(String value) {
+        if (value == null || value.isBlank()) {
+            return ROWS;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new McpException(McpErrorCode.INVALID_PARAMS,
+                    "Unsupported result format '" + value + "'. Use one of: rows, columnar, csv.");
+        }
+    }
+
+    public ResultCollector newCollector() {
+        return switch (this) {
+            case ROWS -> new RowsCollector();
+            case COLUMNAR -> new ColumnarCollector();
+            case CSV -> new CsvCollector();
+        };
+    }
+
+    public String id() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
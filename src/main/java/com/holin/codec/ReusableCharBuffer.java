@@ -0,0 +1,69 @@
+package com.holin.codec;
+
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * 可复用的字符缓冲区，用作内层 JSON 生成器的输出目标
+ * 与 StringWriter 不同，写完后直接暴露底层数组，不会再生成一个 String
+ */
+public final class ReusableCharBuffer extends Writer {
+
+    private char[] buf;
+    private int size;
+
+    public ReusableCharBuffer(int initialCapacity) {
+        this.buf = new char[initialCapacity];
+    }
+
+    @Override
+    public void write(int c) {
+        ensureCapacity(1);
+        buf[size++] = (char) c;
+    }
+
+    @Override
+    public void write(char[] chars, int off, int len) {
+        ensureCapacity(len);
+        System.arraycopy(chars, off, buf, size, len);
+        size += len;
+    }
+
+    @Override
+    public void write(String str, int off, int len) {
+        ensureCapacity(len);
+        str.getChars(off, off + len, buf, size);
+        size += len;
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    public char[] array() {
+        return buf;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return buf.length;
+    }
+
+    public void reset() {
+        size = 0;
+    }
+
+    private void ensureCapacity(int extra) {
+        int required = size + extra;
+        if (required > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(required, buf.length << 1));
+        }
+    }
+}
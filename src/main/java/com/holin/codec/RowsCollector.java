@@ -0,0 +1,44 @@
+package com.holin.codec;
+
+import com.holin.dto.QueryResult;
+import org.springframework.jdbc.support.JdbcUtils;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 默认格式：每行一个有序 Map
+ */
+public class RowsCollector implements ResultCollector {
+
+    private String[] columns;
+    private final List<Map<String, Object>> rows = new ArrayList<>();
+
+    @Override
+    public void start(String[] columns) {
+        this.columns = columns;
+    }
+
+    @Override
+    public void accept(ResultSet rs) throws SQLException {
+        Map<String, Object> row = new LinkedHashMap<>((int) (columns.length / 0.75f) + 1);
+        for (int i = 0; i < columns.length; i++) {
+            row.put(columns[i], JdbcUtils.getResultSetValue(rs, i + 1));
+        }
+        rows.add(row);
+    }
+
+    @Override
+    public int rowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public QueryResult finish(String sql, boolean truncated) {
+        return QueryResult.rows(sql, rows, truncated);
+    }
+}
@@ -0,0 +1,61 @@
+package com.holin.codec;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.holin.dto.ToolCallResult;
+import com.holin.metrics.McpMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.IOException;
+
+/**
+ * ToolCallResult 序列化器
+ * MCP 要求工具结果以 JSON 字符串的形式放在 text 字段里。
+ * 这里先用内层生成器把结果写进池化的字符缓冲区，再由外层生成器一次性转义写出，
+ * 全程没有中间 String，也只对结果编码一次。
+ * 由 Spring 配置的 ObjectMapper 创建时会注入 McpMetrics，记录序列化耗时和结果大小。
+ */
+public class ToolCallResultSerializer extends StdSerializer<ToolCallResult> {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    // 不经过 Spring 创建 (例如单独 new ObjectMapper) 时为 null
+    @Autowired(required = false)
+    private McpMetrics metrics;
+
+    public ToolCallResultSerializer() {
+        super(ToolCallResult.class);
+    }
+
+    @Override
+    public void serialize(ToolCallResult value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject();
+        gen.writeArrayFieldStart("content");
+        gen.writeStartObject();
+        gen.writeStringField("type", "text");
+        gen.writeFieldName("text");
+
+        ReusableCharBuffer buffer = CharBufferPool.acquire();
+        long start = System.nanoTime();
+        try {
+            // 复用外层的 SerializerProvider，日期、BigDecimal 等类型的序列化规则与全局 ObjectMapper 保持一致
+            try (JsonGenerator inner = FACTORY.createGenerator(buffer)) {
+                provider.defaultSerializeValue(value.data(), inner);
+            }
+            gen.writeString(buffer.array(), 0, buffer.size());
+
+            if (metrics != null) {
+                metrics.recordPhase(McpMetrics.SERIALIZATION, value.tool(), System.nanoTime() - start);
+                metrics.recordResponseSize(value.tool(), buffer.size());
+            }
+        } finally {
+            CharBufferPool.release(buffer);
+        }
+
+        gen.writeEndObject();
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
+}
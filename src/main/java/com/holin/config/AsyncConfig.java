@@ -0,0 +1,23 @@
+package com.holin.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 异步执行配置
+ */
+@Configuration
+public class AsyncConfig {
+
+    /**
+     * 处理 MCP 请求的虚拟线程执行器，每个任务一个虚拟线程
+     * 并发上限由 RequestDispatcher 控制，这里不做限制
+     */
+    @Bean(destroyMethod = "close")
+    public ExecutorService mcpExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("mcp-worker-", 0).factory());
+    }
+}
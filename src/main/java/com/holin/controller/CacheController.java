@@ -0,0 +1,112 @@
+package com.holin.controller;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.holin.cache.PlanVerdictCache;
+import com.holin.cache.QueryResultCache;
+import com.holin.cache.SchemaCatalog;
+import com.holin.cache.SqlParseCache;
+import com.holin.store.ResultStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 缓存运行状态查询接口
+ */
+@RestController
+@RequestMapping("/cache")
+public class CacheController {
+
+    @Autowired
+    private SqlParseCache parseCache;
+
+    @Autowired
+    private QueryResultCache resultCache;
+
+    @Autowired
+    private SchemaCatalog schemaCatalog;
+
+    @Autowired
+    private PlanVerdictCache planCache;
+
+    @Autowired
+    private ResultStore resultStore;
+
+    @GetMapping("/stats")
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("parse", parseStats());
+        result.put("result", resultStats());
+        result.put("schema", schemaCatalog.stats());
+        result.put("plan", planStats());
+        result.put("spill", resultStore.stats());
+        return result;
+    }
+
+    /**
+     * 立即刷新表结构目录，返回发生变化的表
+     */
+    @PostMapping("/schema/refresh")
+    public Map<String, Object> refreshSchema() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("changed", schemaCatalog.refresh());
+        result.put("schema", schemaCatalog.stats());
+        return result;
+    }
+
+    /**
+     * 清除查询结果缓存；指定 table 时只清除引用了该表的结果
+     */
+    @PostMapping("/invalidate")
+    public Map<String, Object> invalidate(@RequestParam(required = false) String table) {
+        if (table == null || table.isBlank()) {
+            resultCache.invalidateAll();
+        } else {
+            resultCache.invalidateTable(table.toLowerCase(Locale.ROOT));
+        }
+        return resultStats();
+    }
+
+    private Map<String, Object> parseStats() {
+        CacheStats stats = parseCache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", parseCache.isEnabled());
+        result.put("size", parseCache.size());
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictions", stats.evictionCount());
+        return result;
+    }
+
+    private Map<String, Object> planStats() {
+        CacheStats stats = planCache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", planCache.size());
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        return result;
+    }
+
+    private Map<String, Object> resultStats() {
+        CacheStats stats = resultCache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", resultCache.isEnabled());
+        result.put("size", resultCache.size());
+        result.put("bytes", resultCache.bytes());
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictions", stats.evictionCount());
+        result.put("coalesced", resultCache.coalescedCount());
+        return result;
+    }
+}
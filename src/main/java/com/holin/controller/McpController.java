@@ -1,18 +1,31 @@
 package com.holin.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.holin.admission.DatabaseBulkhead;
 import com.holin.dto.JsonRpcRequest;
 import com.holin.dto.JsonRpcResponse;
+import com.holin.exception.McpErrorCode;
+import com.holin.manager.CursorRegistry;
+import com.holin.manager.RequestDispatcher;
 import com.holin.manager.SseSessionManager;
+import com.holin.manager.StreamableSessionManager;
+import com.holin.metrics.McpMetrics;
+import com.holin.metrics.QueryStatsAggregator;
+import com.holin.replica.ReplicaRouter;
 import com.holin.service.McpService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.io.IOException;
+import java.util.List;
+import java.util.Map;
 
 /**
  * @author holin
@@ -27,27 +40,115 @@ public class McpController {
     @Autowired
     private McpService mcpService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private McpMetrics metrics;
+
     @Autowired
     private SseSessionManager sessionManager;
 
+    @Autowired
+    private RequestDispatcher dispatcher;
+
+    @Autowired
+    private StreamableSessionManager streamableSessionManager;
+
+    @Autowired
+    private ReplicaRouter replicaRouter;
+
+    @Autowired
+    private DatabaseBulkhead bulkhead;
+
+    @Autowired
+    private QueryStatsAggregator queryStats;
+
+    @Autowired
+    private CursorRegistry cursors;
+
     @GetMapping(value = "/sse", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public SseEmitter handleSse() {
-        return sessionManager.createConnection();
+    public SseEmitter handleSse(@RequestParam(required = false) Boolean ordered) {
+        return sessionManager.createConnection(ordered);
     }
 
     @PostMapping("/messages")
-    public void handleMessage(
-            @RequestBody JsonRpcRequest request,
+    public ResponseEntity<JsonRpcResponse> handleMessage(
+            @RequestBody JsonNode body,
             @RequestParam String sessionId // 必须从 URL 参数获取 SessionID
-    ) {
-        // 1. 调用 Service 计算结果 (同步执行)
-        JsonRpcResponse response = mcpService.process(request);
+    ) throws JsonProcessingException {
+        if (!sessionManager.touch(sessionId)) {
+            log.warn("Message for unknown session: {}", sessionId);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
 
-        // 2. 如果是 Notification (response 为 null)，不需要回复
-        if (response == null) {
-            return;
+        // JSON-RPC 批量请求：批内并行执行，结果合并为一条批量响应推回
+        if (body.isArray()) {
+            if (!dispatcher.dispatchBatch(sessionId, body)) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .body(JsonRpcResponse.error(null, McpErrorCode.SERVER_BUSY.getCode(),
+                                "Server busy, please retry later."));
+            }
+            return ResponseEntity.accepted().build();
         }
-        sessionManager.send(sessionId, response);
+
+        long bindStart = System.nanoTime();
+        JsonRpcRequest request = objectMapper.treeToValue(body, JsonRpcRequest.class);
+        metrics.recordPhase(McpMetrics.BIND, McpMetrics.NO_TOOL, System.nanoTime() - bindStart);
+
+        if ("initialize".equals(request.method())) {
+            bulkhead.assignClient(sessionId, request.params());
+        }
+
+        // 交给虚拟线程异步处理，结果通过 SSE 推回，这里立即返回 202
+        if (!dispatcher.dispatch(sessionId, request)) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(JsonRpcResponse.error(request.id(), McpErrorCode.SERVER_BUSY.getCode(),
+                            "Server busy, please retry later."));
+        }
+        return ResponseEntity.accepted().build();
+    }
+
+    // 会话发送队列与请求分发的运行状态
+    @GetMapping("/stats/sessions")
+    public Map<String, Object> sessionStats() {
+        Map<String, Object> stats = sessionManager.stats();
+        stats.put("httpSessions", streamableSessionManager.size());
+        stats.put("pending", dispatcher.getPending());
+        stats.put("inFlight", dispatcher.getInFlight());
+        stats.put("rejected", dispatcher.getRejected());
+        return stats;
+    }
+
+    // 主库与各副本的可用性、延迟和未完成查询数
+    @GetMapping("/stats/replicas")
+    public List<Map<String, Object>> replicaStats() {
+        return replicaRouter.stats();
+    }
+
+    // 数据库准入控制各通道的名额占用、排队和拒绝情况
+    @GetMapping("/stats/admission")
+    public List<Map<String, Object>> admissionStats() {
+        return bulkhead.stats();
+    }
+
+    // 打开的查询游标数与持有连接的游标数
+    @GetMapping("/stats/cursors")
+    public Map<String, Object> cursorStats() {
+        return cursors.stats();
+    }
+
+    // 按 SQL 指纹聚合的查询统计，与 query_stats 工具的输出相同
+    @GetMapping("/stats/queries")
+    public Map<String, Object> queryStats(@RequestParam(required = false) String orderBy,
+                                          @RequestParam(defaultValue = "20") int limit) {
+        return queryStats.top(orderBy, limit);
+    }
+
+    @PostMapping("/stats/queries/reset")
+    public Map<String, Object> resetQueryStats() {
+        queryStats.reset();
+        return queryStats.top(null, 0);
     }
 
 }
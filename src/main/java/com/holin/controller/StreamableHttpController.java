@@ -0,0 +1,150 @@
+package com.holin.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.holin.admission.DatabaseBulkhead;
+import com.holin.dto.JsonRpcRequest;
+import com.holin.dto.JsonRpcResponse;
+import com.holin.exception.McpErrorCode;
+import com.holin.exception.McpException;
+import com.holin.manager.RequestDispatcher;
+import com.holin.manager.StreamableSessionManager;
+import com.holin.metrics.McpMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * MCP Streamable HTTP 传输 (协议版本 2025-03-26)
+ * 所有请求 POST 到同一个端点，响应直接写在 HTTP 响应体里；会话 ID 通过 Mcp-Session-Id 头传递。
+ * 响应体由消息转换器边序列化边写出，大结果会以分块传输发送，不会先整体缓冲。
+ * 旧的 /sse + /messages 传输保持不变，供旧客户端使用。
+ */
+@RestController
+@CrossOrigin(origins = "*", exposedHeaders = StreamableHttpController.SESSION_HEADER)
+@RequestMapping("/mcp")
+public class StreamableHttpController {
+
+    private static final Logger log = LoggerFactory.getLogger(StreamableHttpController.class);
+
+    public static final String SESSION_HEADER = "Mcp-Session-Id";
+
+    @Autowired
+    private StreamableSessionManager sessionManager;
+
+    @Autowired
+    private RequestDispatcher dispatcher;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private McpMetrics metrics;
+
+    @Autowired
+    private DatabaseBulkhead bulkhead;
+
+    @PostMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> handle(
+            @RequestBody JsonNode body,
+            @RequestHeader(value = SESSION_HEADER, required = false) String sessionId
+    ) throws JsonProcessingException {
+        if (body.isArray()) {
+            return handleBatch(body, sessionId);
+        }
+
+        long bindStart = System.nanoTime();
+        JsonRpcRequest request = objectMapper.treeToValue(body, JsonRpcRequest.class);
+        metrics.recordPhase(McpMetrics.BIND, McpMetrics.NO_TOOL, System.nanoTime() - bindStart);
+        boolean initialize = "initialize".equals(request.method());
+
+        if (!initialize) {
+            if (sessionId == null || sessionId.isBlank()) {
+                return ResponseEntity.badRequest()
+                        .body(JsonRpcResponse.error(request.id(), McpErrorCode.INVALID_REQUEST.getCode(),
+                                "Missing " + SESSION_HEADER + " header. Send initialize first."));
+            }
+            // 会话不存在或已过期，按协议返回 404，客户端应重新 initialize
+            if (!sessionManager.touch(sessionId)) {
+                log.warn("Request for unknown session: {}", sessionId);
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+            }
+        }
+
+        JsonRpcResponse response;
+        try {
+            response = dispatcher.execute(sessionId, request);
+        } catch (McpException e) {
+            HttpStatus status = e.getErrorCode() == McpErrorCode.SERVER_BUSY
+                    ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.INTERNAL_SERVER_ERROR;
+            return ResponseEntity.status(status)
+                    .body(JsonRpcResponse.error(request.id(), e.getCode(), e.getMessage()));
+        }
+
+        // Notification 以及被取消的请求没有响应体
+        if (response == null) {
+            return ResponseEntity.accepted().build();
+        }
+
+        if (initialize && response.error() == null) {
+            String newSessionId = sessionManager.create();
+            bulkhead.assignClient(newSessionId, request.params());
+            return ResponseEntity.ok()
+                    .header(SESSION_HEADER, newSessionId)
+                    .body(response);
+        }
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * JSON-RPC 批量请求：批内并行执行，结果按原顺序放在一个数组里返回
+     * initialize 需要单独发送，不能出现在批量请求里
+     */
+    private ResponseEntity<?> handleBatch(JsonNode batch, String sessionId) {
+        if (sessionId == null || sessionId.isBlank()) {
+            return ResponseEntity.badRequest()
+                    .body(JsonRpcResponse.error(null, McpErrorCode.INVALID_REQUEST.getCode(),
+                            "Missing " + SESSION_HEADER + " header. Send initialize first."));
+        }
+        for (JsonNode element : batch) {
+            if ("initialize".equals(element.path("method").asText())) {
+                return ResponseEntity.badRequest()
+                        .body(JsonRpcResponse.error(null, McpErrorCode.INVALID_REQUEST.getCode(),
+                                "initialize must not be part of a batch."));
+            }
+        }
+        if (!sessionManager.touch(sessionId)) {
+            log.warn("Batch for unknown session: {}", sessionId);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+
+        List<JsonRpcResponse> responses = dispatcher.executeBatch(sessionId, batch);
+        // 全部是 Notification 时没有响应体
+        return responses.isEmpty() ? ResponseEntity.accepted().build() : ResponseEntity.ok(responses);
+    }
+
+    // 服务端不主动推送消息，不提供 GET 流
+    @GetMapping
+    public ResponseEntity<Void> stream() {
+        return ResponseEntity.status(HttpStatus.METHOD_NOT_ALLOWED)
+                .header(HttpHeaders.ALLOW, HttpMethod.POST.name() + ", " + HttpMethod.DELETE.name())
+                .build();
+    }
+
+    // 客户端主动结束会话
+    @DeleteMapping
+    public ResponseEntity<Void> close(@RequestHeader(SESSION_HEADER) String sessionId) {
+        return sessionManager.remove(sessionId)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+    }
+}
@@ -0,0 +1,20 @@
+package com.holin.dto;
+
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+
+import java.util.List;
+
+/**
+ * @author holin
+ * @date 2025/12/17
+ */
+public record DescribeTablesReq(
+        @JsonPropertyDescription("要查询结构的数据表名称列表，一次可查询多张表")
+        List<String> tableNames,
+
+        @JsonPropertyDescription("表名的 LIKE 匹配模式 (如 order_%)，可代替或补充 tableNames")
+        String pattern,
+
+        @JsonPropertyDescription("在哪个数据库节点上查询 (主库为 primary，或配置的副本名称)，不填使用主库")
+        String node
+) {}
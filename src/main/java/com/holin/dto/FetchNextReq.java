@@ -0,0 +1,17 @@
+package com.holin.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+
+/**
+ * @author holin
+ * @date 2025/12/17
+ */
+public record FetchNextReq(
+        @JsonProperty(required = true)
+        @JsonPropertyDescription("query_database 或上一次 fetch_next 返回的 cursor")
+        String cursor,
+
+        @JsonPropertyDescription("结果格式：rows、columnar、csv，不填时沿用原查询的格式")
+        String format
+) {}
@@ -0,0 +1,25 @@
+package com.holin.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+
+import java.util.List;
+
+/**
+ * @author holin
+ * @date 2025/12/17
+ */
+public record ProfileTableReq(
+        @JsonProperty(required = true)
+        @JsonPropertyDescription("要分析的数据表名称")
+        String tableName,
+
+        @JsonPropertyDescription("只分析这些列，不填分析所有列")
+        List<String> columns,
+
+        @JsonPropertyDescription("采样行数，默认 100000，行数不超过该值的表直接全表读取；0 表示全表读取")
+        Integer sampleRows,
+
+        @JsonPropertyDescription("超时时间 (秒)，默认 120")
+        Integer timeoutSeconds
+) {}
@@ -0,0 +1,55 @@
+package com.holin.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * query_database 的返回结果
+ * rows 格式下 rows 为对象数组；columnar 格式下 columns 为列名、rows 为值数组；csv 格式下结果在 csv 字段
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record QueryResult(
+        String sql,             // 实际执行的 SQL，可能已被自动追加或收紧 LIMIT
+        String format,          // 结果格式，默认 rows 格式时省略
+        List<String> columns,   // 列名，rows 格式下省略
+        int rowCount,           // 本次返回的行数
+        boolean truncated,      // 结果是否因超过行数上限被截断
+        String cursor,          // 结果被截断时返回，传给 fetch_next 读取后续的行
+        List<?> rows,
+        String csv,
+        List<String> warnings,  // 执行计划检查给出的警告与改写建议，没有时省略
+        @JsonIgnore
+        NextRow next            // 截断处的下一行，用于生成游标，不写入响应
+) {
+    /**
+     * 被截断时上限之后的第一行，即下一页的起点
+     */
+    public record NextRow(String[] columns, Object[] values) {}
+
+    public static QueryResult rows(String sql, List<Map<String, Object>> rows, boolean truncated) {
+        return new QueryResult(sql, null, null, rows.size(), truncated, null, rows, null, null, null);
+    }
+
+    public static QueryResult columnar(String sql, List<String> columns, List<Object[]> rows, boolean truncated) {
+        return new QueryResult(sql, "columnar", columns, rows.size(), truncated, null, rows, null, null, null);
+    }
+
+    public static QueryResult csv(String sql, List<String> columns, int rowCount, String csv, boolean truncated) {
+        return new QueryResult(sql, "csv", columns, rowCount, truncated, null, null, csv, null, null);
+    }
+
+    public QueryResult withWarnings(List<String> warnings) {
+        return new QueryResult(sql, format, columns, rowCount, truncated, cursor, rows, csv, warnings, next);
+    }
+
+    public QueryResult withCursor(String cursor) {
+        return new QueryResult(sql, format, columns, rowCount, truncated, cursor, rows, csv, warnings, next);
+    }
+
+    public QueryResult withNext(NextRow next) {
+        return new QueryResult(sql, format, columns, rowCount, truncated, cursor, rows, csv, warnings, next);
+    }
+}
@@ -0,0 +1,15 @@
+package com.holin.dto;
+
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+
+/**
+ * @author holin
+ * @date 2025/12/17
+ */
+public record QueryStatsReq(
+        @JsonPropertyDescription("排序方式：totalTime (默认，总耗时)、count、avgTime、maxTime、errors、rows")
+        String orderBy,
+
+        @JsonPropertyDescription("返回的查询结构数量，默认 20，最多 100")
+        Integer limit
+) {}
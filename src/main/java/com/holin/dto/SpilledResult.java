@@ -0,0 +1,21 @@
+package com.holin.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * 写入结果存储的查询结果：只返回预览行，完整结果通过 resources/read 按分片读取
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record SpilledResult(
+        String sql,             // 实际执行的 SQL
+        String resource,        // 资源 URI，可追加 ?offset=&limit= 读取指定范围
+        List<String> columns,
+        int rowCount,           // 写入结果存储的总行数
+        boolean truncated,      // 是否超过结果存储的行数上限被截断
+        long bytes,             // 结果文件大小
+        String expiresAt,       // 结果过期时间
+        List<?> preview,        // 前几行，每行是一个值数组
+        List<String> warnings
+) {}
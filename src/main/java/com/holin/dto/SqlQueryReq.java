@@ -10,5 +10,14 @@ import com.fasterxml.jackson.annotation.JsonPropertyDescription;
 public record SqlQueryReq(
         @JsonProperty(required = true)
         @JsonPropertyDescription("SQL 查询语句，支持标准 SQL 语法")
-        String sql
+        String sql,
+
+        @JsonPropertyDescription("查询超时时间 (秒)，不填使用服务端默认值，不能超过服务端上限")
+        Integer timeoutSeconds,
+
+        @JsonPropertyDescription("结果格式：rows (默认，每行一个对象)、columnar (列名只出现一次，每行一个值数组)、csv (CSV 文本)。大结果集建议使用 columnar 或 csv 以减少输出体积")
+        String format,
+
+        @JsonPropertyDescription("为 true 时结果写入服务端结果存储，只返回前几行预览和资源 URI，之后通过 resources/read 分片读取完整结果。适合需要读取远超单次行数上限的结果")
+        Boolean spill
 ) {}
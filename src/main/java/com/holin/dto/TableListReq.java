@@ -1,11 +1,27 @@
 package com.holin.dto;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
 
 /**
  * @author holin
  * @date 2025/12/17
  */
 @JsonIgnoreProperties(ignoreUnknown = true) // 允许客户端传参但我们忽略，防止报错
-public record TableListReq() {
+public record TableListReq(
+        @JsonPropertyDescription("在哪个数据库节点上查询 (主库为 primary，或配置的副本名称)，不填使用主库")
+        String node,
+
+        @JsonPropertyDescription("为 true 时每张表附带引擎、估算行数、数据和索引大小 (字节) 与表注释，用于判断表的量级，避免为此执行 COUNT(*)")
+        Boolean withStats,
+
+        @JsonPropertyDescription("表名的 LIKE 匹配模式 (如 order_%)，不填列出所有表")
+        String pattern,
+
+        @JsonPropertyDescription("分页起点，取上一页返回的 nextOffset")
+        Integer offset,
+
+        @JsonPropertyDescription("每页的表数量，默认并且最多 1000")
+        Integer limit
+) {
 }
\ No newline at end of file
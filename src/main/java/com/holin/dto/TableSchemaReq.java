@@ -10,5 +10,8 @@ import com.fasterxml.jackson.annotation.JsonPropertyDescription;
 public record TableSchemaReq(
         @JsonProperty(required = true)
         @JsonPropertyDescription("数据表的名称，根据数据表名称查询该表的结构、备注等信息")
-        String tableName
+        String tableName,
+
+        @JsonPropertyDescription("在哪个数据库节点上查询 (主库为 primary，或配置的副本名称)，不填使用主库")
+        String node
 ) {}
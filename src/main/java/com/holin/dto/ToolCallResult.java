@@ -0,0 +1,15 @@
+package com.holin.dto;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.holin.codec.ToolCallResultSerializer;
+
+/**
+ * tools/call 的返回结果
+ * 序列化为 {"content":[{"type":"text","text":"<data 的 JSON>"}]}，
+ * data 直接写入最终响应，不会先序列化成中间 String 再整体转义一次
+ */
+@JsonSerialize(using = ToolCallResultSerializer.class)
+public record ToolCallResult(
+        String tool,  // 产生该结果的工具名，只用于指标，不会写入响应
+        Object data
+) {}
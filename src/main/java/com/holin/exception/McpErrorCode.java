@@ -19,7 +19,24 @@ public enum McpErrorCode {
     // 数据库/执行类错误
     TOOL_NOT_FOUND(-32002, "Tool not found"),
     TOOL_EXECUTION_FAILED(-32003, "Tool execution failed"),
-    DATABASE_ERROR(-32004, "Database error");
+    DATABASE_ERROR(-32004, "Database error"),
+
+    // 服务端过载，请求被拒绝
+    SERVER_BUSY(-32005, "Server busy"),
+
+    // 查询超时 / 被客户端取消
+    QUERY_TIMEOUT(-32006, "Query timeout"),
+    REQUEST_CANCELLED(-32007, "Request cancelled"),
+
+    // 准入控制：会话调用过于频繁 / 排队等待数据库名额超时
+    RATE_LIMITED(-32008, "Rate limited"),
+    ADMISSION_TIMEOUT(-32009, "Admission timeout"),
+
+    // 执行计划估算的代价超过上限
+    QUERY_TOO_EXPENSIVE(-32010, "Query too expensive"),
+
+    // 结果超过结果存储的单个结果大小上限
+    RESULT_TOO_LARGE(-32011, "Result too large");
 
     private final int code;
     private final String message;
@@ -23,4 +23,8 @@ public class McpException extends RuntimeException {
     public int getCode() {
         return errorCode.getCode();
     }
+
+    public McpErrorCode getErrorCode() {
+        return errorCode;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,163 @@
+package com.holin.manager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.holin.exception.McpErrorCode;
+import com.holin.exception.McpException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 查询游标的登记表，按不透明的随机令牌索引
+ * - 闲置超过 idle-timeout 的游标自动关闭，持有的连接归还连接池
+ * - 同时打开的游标数有上限，持有连接的保持游标另有更小的上限，避免占满连接池
+ */
+@Component
+public class CursorRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(CursorRegistry.class);
+
+    @Value("${mcp.sql.cursor.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${mcp.sql.cursor.idle-timeout:2m}")
+    private Duration idleTimeout = Duration.ofMinutes(2);
+
+    @Value("${mcp.sql.cursor.max-open:1000}")
+    private int maxOpen = 1000;
+
+    // 同时持有连接的保持游标数上限
+    @Value("${mcp.sql.cursor.max-held:4}")
+    private int maxHeld = 4;
+
+    // 一个保持游标最多读取的行数，限制服务端游标物化的数据量
+    @Value("${mcp.sql.cursor.held-max-rows:100000}")
+    private int heldMaxRows = 100000;
+
+    private final SecureRandom random = new SecureRandom();
+
+    private final AtomicInteger held = new AtomicInteger();
+
+    private Cache<String, QueryCursor> cursors;
+
+    @PostConstruct
+    void init() {
+        // 指定调度器，闲置的游标到期即关闭，而不是等到下一次访问缓存时才清理
+        cursors = Caffeine.newBuilder()
+                .expireAfterAccess(idleTimeout)
+                .maximumSize(maxOpen)
+                .scheduler(Scheduler.systemScheduler())
+                .removalListener((String token, QueryCursor cursor, RemovalCause cause) -> {
+                    if (cursor != null && cursor.close()) {
+                        held.decrementAndGet();
+                    }
+                    if (cause.wasEvicted()) {
+                        log.debug("Cursor {} closed: {}", token, cause);
+                    }
+                })
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getHeldMaxRows() {
+        return heldMaxRows;
+    }
+
+    /**
+     * 登记游标
+     *
+     * @return 交给客户端的令牌
+     */
+    public String open(QueryCursor cursor) {
+        byte[] bytes = new byte[18];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        cursors.put(token, cursor);
+        return token;
+    }
+
+    /**
+     * 查找游标，只允许创建它的会话使用
+     */
+    public QueryCursor get(String token, String sessionId) {
+        QueryCursor cursor = token == null ? null : cursors.getIfPresent(token);
+        if (cursor == null || cursor.isClosed()
+                || (cursor.getSessionId() != null && sessionId != null && !cursor.getSessionId().equals(sessionId))) {
+            throw new McpException(McpErrorCode.INVALID_PARAMS,
+                    "Unknown or expired cursor. Cursors are closed after " + idleTimeout.toSeconds()
+                            + "s of inactivity; re-run query_database to start over.");
+        }
+        return cursor;
+    }
+
+    /**
+     * 读完或出错时关闭游标
+     * 在调用线程上直接关闭，连接和名额马上归还；移除监听器随后再关闭一次不会重复归还
+     */
+    public void close(String token) {
+        QueryCursor cursor = cursors.asMap().remove(token);
+        if (cursor != null) {
+            discard(cursor);
+        }
+    }
+
+    /**
+     * 为保持游标占用一个名额
+     *
+     * @return 名额已满时返回 false
+     */
+    public boolean tryHold(QueryCursor cursor) {
+        while (true) {
+            int current = held.get();
+            if (current >= maxHeld) {
+                return false;
+            }
+            if (held.compareAndSet(current, current + 1)) {
+                cursor.setHolding(true);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 关闭游标并归还它占用的名额，也用于没有登记的游标 (如执行后结果没有被截断)
+     */
+    public void discard(QueryCursor cursor) {
+        if (cursor.close()) {
+            held.decrementAndGet();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("open", cursors.estimatedSize());
+        stats.put("held", held.get());
+        stats.put("maxHeld", maxHeld);
+        stats.put("heldMaxRows", heldMaxRows);
+        stats.put("idleTimeoutSeconds", idleTimeout.toSeconds());
+        return stats;
+    }
+
+    @PreDestroy
+    void closeAll() {
+        cursors.invalidateAll();
+        cursors.cleanUp();
+    }
+}
@@ -0,0 +1,90 @@
+package com.holin.manager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 处理中请求的登记表，按 会话 ID + 请求 ID 索引
+ * 用于响应 notifications/cancelled，立即中断对应的 SQL 并释放连接
+ */
+@Component
+public class InFlightRegistry {
+
+    // 当前线程正在处理的请求，SqlService 执行语句时通过它挂载 Statement
+    private static final ThreadLocal<InFlightRequest> CURRENT = new ThreadLocal<>();
+
+    private final Map<String, InFlightRequest> active = new ConcurrentHashMap<>();
+
+    // 取消通知先于请求开始执行到达 (请求还在排队)，记下来，开始执行时立即生效
+    private final Cache<String, Boolean> cancelledBeforeStart = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofMinutes(5))
+            .maximumSize(10_000)
+            .build();
+
+    public static InFlightRequest current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 登记请求并绑定到当前线程
+     * 没有会话的请求无法被取消通知定位，不同客户端的请求 ID 还可能相同，只绑定到当前线程，不进入登记表
+     */
+    public InFlightRequest register(String sessionId, Object requestId) {
+        if (sessionId == null) {
+            InFlightRequest request = new InFlightRequest(String.valueOf(requestId), null);
+            CURRENT.set(request);
+            return request;
+        }
+        String key = key(sessionId, requestId);
+        InFlightRequest request = new InFlightRequest(key, sessionId);
+        active.put(key, request);
+        if (cancelledBeforeStart.asMap().remove(key) != null) {
+            request.cancel();
+        }
+        CURRENT.set(request);
+        return request;
+    }
+
+    public void unregister(InFlightRequest request) {
+        if (request.getSessionId() != null) {
+            active.remove(request.getKey(), request);
+        }
+        CURRENT.remove();
+    }
+
+    /**
+     * 取消请求
+     *
+     * @return 请求是否正在执行
+     */
+    public boolean cancel(String sessionId, Object requestId) {
+        if (sessionId == null) {
+            return false;
+        }
+        String key = key(sessionId, requestId);
+        InFlightRequest request = active.get(key);
+        if (request == null) {
+            cancelledBeforeStart.put(key, Boolean.TRUE);
+            // 可能在上面两步之间刚好开始执行
+            request = active.get(key);
+        }
+        if (request != null) {
+            request.cancel();
+            return true;
+        }
+        return false;
+    }
+
+    public int size() {
+        return active.size();
+    }
+
+    private static String key(String sessionId, Object requestId) {
+        return sessionId + "#" + requestId;
+    }
+}
@@ -0,0 +1,75 @@
+package com.holin.manager;
+
+import com.holin.exception.McpErrorCode;
+import com.holin.exception.McpException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * 一个正在处理中的请求
+ * 执行 SQL 时把 Statement 挂到这里，收到取消通知后可以直接中断数据库端的执行
+ */
+public class InFlightRequest {
+
+    private static final Logger log = LoggerFactory.getLogger(InFlightRequest.class);
+
+    private final String key;
+
+    // 所属会话，准入控制按它做限速和公平排队；进程内直接调用时为 null
+    private final String sessionId;
+
+    private volatile boolean cancelled;
+
+    private volatile Statement statement;
+
+    InFlightRequest(String key, String sessionId) {
+        this.key = key;
+        this.sessionId = sessionId;
+    }
+
+    String getKey() {
+        return key;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * 标记取消，并中断正在执行的语句
+     */
+    void cancel() {
+        cancelled = true;
+        Statement current = statement;
+        if (current != null) {
+            try {
+                current.cancel();
+                log.info("Statement cancelled for request {}", key);
+            } catch (SQLException e) {
+                log.warn("Failed to cancel statement for request {}: {}", key, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 登记即将执行的语句；如果请求已被取消则直接抛出
+     */
+    public void attach(Statement statement) {
+        this.statement = statement;
+        // 先写 statement 再读 cancelled，与 cancel() 的顺序相反，保证两边至少有一方能看到对方
+        if (cancelled) {
+            throw new McpException(McpErrorCode.REQUEST_CANCELLED, "Request was cancelled by the client.");
+        }
+    }
+
+    public void detach() {
+        this.statement = null;
+    }
+}
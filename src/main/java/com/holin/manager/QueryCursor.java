@@ -0,0 +1,265 @@
+package com.holin.manager;
+
+import com.holin.admission.DatabaseBulkhead;
+import com.holin.codec.ResultFormat;
+import com.holin.dto.QueryResult;
+import com.holin.replica.ReplicaRouter;
+import com.holin.sql.KeysetPagination;
+import com.holin.sql.LimitRewriter;
+import com.holin.sql.ParsedSql;
+import net.sf.jsqlparser.statement.select.Select;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 一个被截断查询的后续读取状态，由 fetch_next 按页推进
+ * 两种读取方式：
+ * - 键集：按唯一键排序的单表查询，记住下一页第一行的排序键，每页重新执行带起点条件的查询，不占用连接
+ * - 保持游标：其他查询在执行时就打开服务端游标，截断后持有连接和查询通道的名额，之后每页从同一个结果集继续读取
+ * 同一时刻只允许一个请求读取，状态字段只在持有 lock 时访问
+ */
+public class QueryCursor {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryCursor.class);
+
+    private final String sessionId;
+    private final String sql;
+    private final ParsedSql parsed;
+    private final ResultFormat format;
+    private final int timeoutSeconds;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // 已经返回给客户端的行数
+    private long returned;
+
+    // 下一页的第一行 (键集方式)
+    private QueryResult.NextRow next;
+
+    // 键集方式下原语句的副本，已改写为带起点条件的语句
+    private Select select;
+
+    // 原语句自身的 LIMIT 行数，不限时为 -1；保持游标方式下为最多读取的行数
+    private long requestedRows = -1;
+
+    private KeysetPagination.Plan keyset;
+    private int[] keyIndexes;
+
+    // 保持游标方式持有的资源
+    private DatabaseBulkhead.Permit permit;
+    private ReplicaRouter.Lease lease;
+    private Connection connection;
+    private Statement statement;
+    private ResultSet resultSet;
+
+    // 保持游标实际执行的 SQL
+    private String heldSql;
+
+    // 结果集已经停在下一页的第一行上
+    private boolean positioned;
+
+    // 是否占用了一个保持游标名额
+    private boolean holding;
+
+    private volatile boolean closed;
+
+    public QueryCursor(String sessionId, String sql, ParsedSql parsed, ResultFormat format, int timeoutSeconds) {
+        this.sessionId = sessionId;
+        this.sql = sql;
+        this.parsed = parsed;
+        this.format = format;
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public ParsedSql getParsed() {
+        return parsed;
+    }
+
+    public ResultFormat getFormat() {
+        return format;
+    }
+
+    public int getTimeoutSeconds() {
+        return timeoutSeconds;
+    }
+
+    public ReentrantLock getLock() {
+        return lock;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * 使用键集方式读取后续的页
+     *
+     * @param select 原语句的副本，之后由游标独占
+     * @param keyset 排序键
+     */
+    public void plan(Select select, KeysetPagination.Plan keyset, int[] keyIndexes) {
+        this.select = select;
+        this.requestedRows = LimitRewriter.rowCount(select);
+        this.keyset = keyset;
+        this.keyIndexes = keyIndexes;
+        KeysetPagination.rewrite(select, keyset);
+    }
+
+    public boolean isKeyset() {
+        return keyset != null;
+    }
+
+    // 原语句的 LIMIT 范围内还剩多少行，不限时为 Long.MAX_VALUE
+    public long remaining() {
+        return requestedRows < 0 ? Long.MAX_VALUE : Math.max(0, requestedRows - returned);
+    }
+
+    /**
+     * 键集方式下一页的 SQL，每页只有 LIMIT 不同
+     *
+     * @param limit 本页的 LIMIT 行数 (含用于判断截断的一行)
+     */
+    public String keysetSql(long limit) {
+        LimitRewriter.window(select, 0, limit);
+        return select.toString();
+    }
+
+    // 下一页起点的排序键取值，按 ? 的顺序
+    public Object[] keysetParams() {
+        Object[] params = new Object[keyIndexes.length];
+        for (int i = 0; i < keyIndexes.length; i++) {
+            params[i] = next.values()[keyIndexes[i]];
+        }
+        return params;
+    }
+
+    /**
+     * 一页读取完成
+     *
+     * @param next 下一页的第一行，保持游标方式下为 null (结果集已经停在这一行上)
+     */
+    public void advance(int rows, QueryResult.NextRow next) {
+        this.returned += rows;
+        this.next = next;
+    }
+
+    public QueryResult.NextRow getNext() {
+        return next;
+    }
+
+    // ===== 保持游标 =====
+
+    void setHolding(boolean holding) {
+        this.holding = holding;
+    }
+
+    public void holdPermit(DatabaseBulkhead.Permit permit) {
+        this.permit = permit;
+    }
+
+    public void holdLease(ReplicaRouter.Lease lease) {
+        this.lease = lease;
+    }
+
+    public void holdConnection(Connection connection) {
+        this.connection = connection;
+    }
+
+    public void holdStatement(Statement statement) {
+        this.statement = statement;
+    }
+
+    /**
+     * @param maxRows 最多从结果集读取的行数，超出的部分不再返回
+     */
+    public void holdResultSet(ResultSet resultSet, String sql, long maxRows) {
+        this.resultSet = resultSet;
+        this.heldSql = sql;
+        this.requestedRows = maxRows;
+    }
+
+    public String getHeldSql() {
+        return heldSql;
+    }
+
+    public ResultSet getResultSet() {
+        return resultSet;
+    }
+
+    public Statement getStatement() {
+        return statement;
+    }
+
+    public boolean isPositioned() {
+        return positioned;
+    }
+
+    public void setPositioned(boolean positioned) {
+        this.positioned = positioned;
+    }
+
+    /**
+     * 关闭游标，释放持有的连接和查询通道的名额
+     * 正在读取的请求结束后才会真正关闭
+     *
+     * @return 是否占用过保持游标名额
+     */
+    boolean close() {
+        lock.lock();
+        try {
+            closed = true;
+            closeQuietly(resultSet);
+            closeQuietly(statement);
+            if (connection != null) {
+                try {
+                    connection.rollback();
+                } catch (SQLException e) {
+                    log.debug("Failed to roll back cursor connection", e);
+                }
+                closeQuietly(connection);
+            }
+            if (lease != null) {
+                lease.close();
+            }
+            if (permit != null) {
+                permit.close();
+            }
+            resultSet = null;
+            statement = null;
+            connection = null;
+            lease = null;
+            permit = null;
+
+            boolean wasHolding = holding;
+            holding = false;
+            return wasHolding;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void closeQuietly(AutoCloseable resource) {
+        if (resource == null) {
+            return;
+        }
+        try {
+            resource.close();
+        } catch (Exception e) {
+            log.debug("Failed to close cursor resource", e);
+        }
+    }
+}
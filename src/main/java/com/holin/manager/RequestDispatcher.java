@@ -0,0 +1,379 @@
+package com.holin.manager;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.holin.dto.JsonRpcRequest;
+import com.holin.dto.JsonRpcResponse;
+import com.holin.exception.McpErrorCode;
+import com.holin.exception.McpException;
+import com.holin.metrics.McpMetrics;
+import com.holin.service.McpService;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 请求分发器
+ * SSE 传输：POST 线程只负责入队，真正的处理在虚拟线程上完成，结果通过会话的 SSE 连接推回。
+ * Streamable HTTP 传输：在请求线程 (虚拟线程) 上直接处理，结果写在 HTTP 响应里，与 SSE 共用下面的限制。
+ * - 全局并发上限：同时处理的请求数
+ * - 有界排队：超出 并发上限 + 队列容量 的请求直接拒绝
+ * - 有序会话：同一会话的请求按到达顺序逐个处理
+ * - 批量请求：批内各请求并行执行，并行度不超过数据库连接池大小，结果按原顺序合并为一个批量响应
+ */
+@Component
+public class RequestDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(RequestDispatcher.class);
+
+    @Value("${mcp.dispatch.max-in-flight:64}")
+    private int maxInFlight;
+
+    @Value("${mcp.dispatch.queue-capacity:256}")
+    private int queueCapacity;
+
+    // 单个批量请求内同时执行的请求数，默认与连接池大小一致，避免一个批次占满连接池后互相等待
+    @Value("${mcp.dispatch.batch-parallelism:${spring.datasource.hikari.maximum-pool-size:10}}")
+    private int batchParallelism;
+
+    @Value("${mcp.dispatch.max-batch-size:50}")
+    private int maxBatchSize;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private McpMetrics metrics;
+
+    @Autowired
+    private ExecutorService mcpExecutor;
+
+    @Autowired
+    private McpService mcpService;
+
+    @Autowired
+    private SseSessionManager sessionManager;
+
+    private Semaphore inFlight;
+
+    // 已接收但尚未完成的请求数 (排队 + 执行中)
+    private final AtomicInteger pending = new AtomicInteger();
+
+    // 有序会话最后一个任务，新任务接在它后面执行
+    private final Map<String, CompletableFuture<Void>> sessionTails = new ConcurrentHashMap<>();
+
+    private final LongAdder rejected = new LongAdder();
+
+    @PostConstruct
+    void init() {
+        inFlight = new Semaphore(maxInFlight, true);
+    }
+
+    /**
+     * 提交一个请求
+     *
+     * @return false 表示队列已满，请求被拒绝
+     */
+    public boolean dispatch(String sessionId, JsonRpcRequest request) {
+        // 取消通知不排队，否则有序会话里它会等到被取消的请求执行完才生效
+        if ("notifications/cancelled".equals(request.method())) {
+            mcpService.process(sessionId, request);
+            return true;
+        }
+
+        if (!reserve(1)) {
+            log.warn("Request rejected, dispatcher is full. Session: {}, ID: {}", sessionId, request.id());
+            return false;
+        }
+
+        Runnable task = () -> {
+            try {
+                handle(sessionId, request);
+            } finally {
+                pending.decrementAndGet();
+            }
+        };
+
+        try {
+            if (sessionManager.isOrdered(sessionId)) {
+                enqueueOrdered(sessionId, task, () -> {
+                    pending.decrementAndGet();
+                    rejected.increment();
+                    metrics.recordError(McpErrorCode.SERVER_BUSY);
+                    log.warn("Ordered request dropped, executor rejected it. Session: {}, ID: {}", sessionId, request.id());
+                });
+            } else {
+                mcpExecutor.execute(task);
+            }
+            return true;
+        } catch (RejectedExecutionException e) {
+            // 应用关闭中
+            pending.decrementAndGet();
+            rejected.increment();
+            metrics.recordError(McpErrorCode.SERVER_BUSY);
+            return false;
+        }
+    }
+
+    /**
+     * 在当前线程上处理一个请求并返回响应，用于 Streamable HTTP 传输
+     *
+     * @return 响应，Notification 或已取消的请求返回 null
+     * @throws McpException SERVER_BUSY 队列已满
+     */
+    public JsonRpcResponse execute(String sessionId, JsonRpcRequest request) {
+        if ("notifications/cancelled".equals(request.method())) {
+            return mcpService.process(sessionId, request);
+        }
+
+        if (!reserve(1)) {
+            log.warn("Request rejected, dispatcher is full. Session: {}, ID: {}", sessionId, request.id());
+            throw new McpException(McpErrorCode.SERVER_BUSY, "Server busy, please retry later.");
+        }
+        return executeReserved(sessionId, request);
+    }
+
+    /**
+     * 执行一个已经占用了 pending 计数的请求，结束时归还计数
+     */
+    private JsonRpcResponse executeReserved(String sessionId, JsonRpcRequest request) {
+        try {
+            if ("notifications/cancelled".equals(request.method())) {
+                return mcpService.process(sessionId, request);
+            }
+
+            try {
+                inFlight.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new McpException(McpErrorCode.REQUEST_CANCELLED, "Request interrupted.");
+            }
+
+            try {
+                return mcpService.process(sessionId, request);
+            } finally {
+                inFlight.release();
+            }
+        } finally {
+            pending.decrementAndGet();
+        }
+    }
+
+    /**
+     * 为 n 个请求占用 pending 计数，超过队列容量时全部归还
+     * 先加再判断，并发提交的请求不会一起越过上限
+     *
+     * @return false 表示队列已满
+     */
+    private boolean reserve(int n) {
+        if (pending.addAndGet(n) > maxInFlight + queueCapacity) {
+            pending.addAndGet(-n);
+            rejected.increment();
+            metrics.recordError(McpErrorCode.SERVER_BUSY);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 提交一个批量请求，批内请求并行执行，全部完成后通过 SSE 一次推回
+     *
+     * @return false 表示队列已满，整个批次被拒绝
+     */
+    public boolean dispatchBatch(String sessionId, JsonNode batch) {
+        // 批内每个请求在提交时就占用 pending 计数，执行完一个归还一个
+        List<JsonRpcResponse> invalid = validateBatch(batch);
+        int reserved = invalid == null ? batch.size() : 0;
+        if (!reserve(reserved)) {
+            log.warn("Batch rejected, dispatcher is full. Session: {}, size: {}", sessionId, batch.size());
+            return false;
+        }
+
+        // 批次本身不占用并发名额，名额由批内每个请求各自申请
+        Runnable task = () -> {
+            List<JsonRpcResponse> responses = invalid != null ? invalid : runBatch(sessionId, batch);
+            // 全部是 Notification 时不需要回复
+            if (!responses.isEmpty()) {
+                sessionManager.sendBatch(sessionId, responses);
+            }
+        };
+
+        try {
+            if (sessionManager.isOrdered(sessionId)) {
+                enqueueOrdered(sessionId, task, () -> {
+                    pending.addAndGet(-reserved);
+                    rejected.increment();
+                    metrics.recordError(McpErrorCode.SERVER_BUSY);
+                    log.warn("Ordered batch dropped, executor rejected it. Session: {}", sessionId);
+                });
+            } else {
+                mcpExecutor.execute(task);
+            }
+            return true;
+        } catch (RejectedExecutionException e) {
+            pending.addAndGet(-reserved);
+            rejected.increment();
+            metrics.recordError(McpErrorCode.SERVER_BUSY);
+            return false;
+        }
+    }
+
+    /**
+     * 并行执行一个批量请求并按原顺序返回响应，Notification 和被取消的请求不产生响应
+     */
+    public List<JsonRpcResponse> executeBatch(String sessionId, JsonNode batch) {
+        List<JsonRpcResponse> invalid = validateBatch(batch);
+        if (invalid != null) {
+            return invalid;
+        }
+        if (!reserve(batch.size())) {
+            log.warn("Batch rejected, dispatcher is full. Session: {}, size: {}", sessionId, batch.size());
+            return List.of(JsonRpcResponse.error(null, McpErrorCode.SERVER_BUSY.getCode(), "Server busy, please retry later."));
+        }
+        return runBatch(sessionId, batch);
+    }
+
+    // 整个批次无效时返回错误响应，否则返回 null
+    private List<JsonRpcResponse> validateBatch(JsonNode batch) {
+        if (batch.isEmpty()) {
+            return List.of(JsonRpcResponse.error(null, McpErrorCode.INVALID_REQUEST.getCode(), "Empty batch."));
+        }
+        if (batch.size() > maxBatchSize) {
+            return List.of(JsonRpcResponse.error(null, McpErrorCode.INVALID_REQUEST.getCode(),
+                    "Batch too large: " + batch.size() + " requests, at most " + maxBatchSize + " allowed."));
+        }
+        return null;
+    }
+
+    /**
+     * 执行已经为每个请求占用了 pending 计数的批次，每个请求结束时归还自己的计数
+     */
+    private List<JsonRpcResponse> runBatch(String sessionId, JsonNode batch) {
+        Semaphore permits = new Semaphore(Math.max(1, batchParallelism));
+        List<CompletableFuture<JsonRpcResponse>> futures = new ArrayList<>(batch.size());
+        for (JsonNode element : batch) {
+            JsonRpcRequest request;
+            try {
+                request = objectMapper.treeToValue(element, JsonRpcRequest.class);
+            } catch (JsonProcessingException | IllegalArgumentException e) {
+                request = null;
+            }
+            if (request == null || request.method() == null) {
+                pending.decrementAndGet();
+                futures.add(CompletableFuture.completedFuture(JsonRpcResponse.error(
+                        element.path("id").isValueNode() ? objectMapper.convertValue(element.get("id"), Object.class) : null,
+                        McpErrorCode.INVALID_REQUEST.getCode(), "Invalid Request")));
+                continue;
+            }
+
+            JsonRpcRequest call = request;
+            try {
+                futures.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        permits.acquire();
+                    } catch (InterruptedException e) {
+                        pending.decrementAndGet();
+                        Thread.currentThread().interrupt();
+                        return JsonRpcResponse.error(call.id(), McpErrorCode.REQUEST_CANCELLED.getCode(), "Request interrupted.");
+                    }
+                    try {
+                        return executeReserved(sessionId, call);
+                    } catch (McpException e) {
+                        return JsonRpcResponse.error(call.id(), e.getCode(), e.getMessage());
+                    } finally {
+                        permits.release();
+                    }
+                }, mcpExecutor));
+            } catch (RejectedExecutionException e) {
+                // 应用关闭中
+                pending.decrementAndGet();
+                futures.add(CompletableFuture.completedFuture(JsonRpcResponse.error(call.id(),
+                        McpErrorCode.SERVER_BUSY.getCode(), "Server is shutting down.")));
+            }
+        }
+
+        List<JsonRpcResponse> responses = new ArrayList<>(futures.size());
+        for (CompletableFuture<JsonRpcResponse> future : futures) {
+            JsonRpcResponse response = future.join();
+            if (response != null) {
+                responses.add(response);
+            }
+        }
+        return responses;
+    }
+
+    /**
+     * 把任务接在会话队尾
+     * handleAsync 被执行器拒绝时不会向调用方抛出，而是让返回的 future 异常结束，
+     * 任务本身不会运行，由 onRejected 归还已占用的计数
+     *
+     * @param onRejected 执行器拒绝 (应用关闭中) 导致任务没有运行时的回调
+     */
+    private void enqueueOrdered(String sessionId, Runnable task, Runnable onRejected) {
+        AtomicBoolean started = new AtomicBoolean();
+        CompletableFuture<Void> next = sessionTails.compute(sessionId, (id, tail) -> {
+            CompletableFuture<Void> previous = tail != null ? tail : CompletableFuture.completedFuture(null);
+            // 前一个任务无论成败都继续执行下一个
+            return previous.handleAsync((result, error) -> {
+                started.set(true);
+                task.run();
+                return null;
+            }, mcpExecutor);
+        });
+        next.whenComplete((result, error) -> {
+            // 队尾执行完后清理，避免空闲会话残留
+            sessionTails.remove(sessionId, next);
+            if (!started.get()) {
+                onRejected.run();
+            }
+        });
+    }
+
+    private void handle(String sessionId, JsonRpcRequest request) {
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        try {
+            JsonRpcResponse response = mcpService.process(sessionId, request);
+
+            // Notification (response 为 null) 不需要回复
+            if (response != null) {
+                sessionManager.send(sessionId, response);
+            }
+        } finally {
+            inFlight.release();
+        }
+    }
+
+    public int getPending() {
+        return pending.get();
+    }
+
+    public int getInFlight() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+}
@@ -0,0 +1,219 @@
+package com.holin.manager;
+
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 一个 SSE 客户端会话
+ * 发往客户端的事件先进入会话自己的有界队列，由该会话唯一的写线程 (虚拟线程) 依次写出，
+ * 生产者线程不会被慢客户端阻塞，也不会在同一个 emitter 上互相争锁
+ */
+public class SseSession {
+
+    private static final Logger log = LoggerFactory.getLogger(SseSession.class);
+
+    // 入队结果
+    public enum Offer {
+        QUEUED,
+        // 队列超出条数或字节上限，会话已被断开
+        EVICTED,
+        // 单个事件本身就超过字节上限，事件被丢弃，会话保持不变
+        TOO_LARGE,
+        // 会话已关闭
+        CLOSED
+    }
+
+    private record Outbound(SseEmitter.SseEventBuilder event, long bytes) {}
+
+    // 写线程退出信号
+    private static final Outbound POISON = new Outbound(null, 0);
+
+    private final String id;
+    private final SseEmitter emitter;
+
+    // 是否按到达顺序逐个处理该会话的请求
+    private final boolean ordered;
+
+    private final int maxQueued;
+    private final long maxQueuedBytes;
+    private final Duration heartbeatInterval;
+
+    // 写出一个事件的耗时
+    private final Timer sendTimer;
+
+    private final BlockingQueue<Outbound> queue = new LinkedBlockingQueue<>();
+    private final AtomicLong queuedBytes = new AtomicLong();
+
+    // 被丢弃的事件数 (会话关闭时仍在队列中的，以及关闭后才到达的)
+    private final AtomicLong dropped = new AtomicLong();
+
+    private volatile boolean closed;
+
+    // emitter 是否已经 complete；与 closed 分开，写线程先标记 closed 后再关闭会话时仍会结束 SSE 流
+    private final AtomicBoolean completed = new AtomicBoolean();
+
+    // 最近一次收到客户端请求的时间，用于空闲回收
+    private volatile long lastActiveNanos = System.nanoTime();
+
+    public SseSession(String id, SseEmitter emitter, boolean ordered,
+                      int maxQueued, long maxQueuedBytes, Duration heartbeatInterval, Timer sendTimer) {
+        this.id = id;
+        this.emitter = emitter;
+        this.ordered = ordered;
+        this.maxQueued = maxQueued;
+        this.maxQueuedBytes = maxQueuedBytes;
+        this.heartbeatInterval = heartbeatInterval;
+        this.sendTimer = sendTimer;
+    }
+
+    /**
+     * 启动写线程
+     *
+     * @param onWriteFailure 写出失败 (客户端断开) 时的回调
+     */
+    void start(Consumer<IOException> onWriteFailure) {
+        Thread.ofVirtual().name("sse-writer-" + id).start(() -> drain(onWriteFailure));
+    }
+
+    /**
+     * 事件入队，立即返回
+     * 超出条数或字节预算说明客户端读得太慢，直接断开该会话，不让它继续占用内存；
+     * 单个事件就超过字节预算时与客户端快慢无关，只丢弃该事件
+     */
+    public Offer offer(SseEmitter.SseEventBuilder event, long bytes) {
+        if (closed) {
+            dropped.incrementAndGet();
+            return Offer.CLOSED;
+        }
+        if (bytes > maxQueuedBytes) {
+            dropped.incrementAndGet();
+            return Offer.TOO_LARGE;
+        }
+        long total = queuedBytes.addAndGet(bytes);
+        if (total > maxQueuedBytes || queue.size() >= maxQueued) {
+            queuedBytes.addAndGet(-bytes);
+            dropped.incrementAndGet();
+            close();
+            return Offer.EVICTED;
+        }
+        Outbound item = new Outbound(event, bytes);
+        queue.add(item);
+        // 与 close() 并发时写线程可能已经退出，不会再读取队列；close 先标记 closed 再清空队列，
+        // 这里能看到 closed 为 false 时事件一定会被写出或被清空，否则撤回这个事件
+        if (closed && queue.remove(item)) {
+            queuedBytes.addAndGet(-bytes);
+            dropped.incrementAndGet();
+            return Offer.CLOSED;
+        }
+        return Offer.QUEUED;
+    }
+
+    private void drain(Consumer<IOException> onWriteFailure) {
+        long heartbeatMillis = heartbeatInterval.toMillis();
+        try {
+            while (!closed) {
+                Outbound next = queue.poll(heartbeatMillis, TimeUnit.MILLISECONDS);
+                if (next == POISON) {
+                    break;
+                }
+                if (next == null) {
+                    // 空闲时发送注释行保活，同时及时发现已断开的连接
+                    emitter.send(SseEmitter.event().comment("ping"));
+                    continue;
+                }
+                queuedBytes.addAndGet(-next.bytes());
+                long start = System.nanoTime();
+                emitter.send(next.event());
+                sendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        } catch (IOException e) {
+            log.debug("SSE write failed. SessionID: {}", id, e);
+            closed = true;
+            onWriteFailure.accept(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IllegalStateException e) {
+            // emitter 已经 complete
+            closed = true;
+        } finally {
+            discardQueued();
+        }
+    }
+
+    /**
+     * 关闭会话：丢弃未写出的事件并结束 SSE 流
+     * complete 可能等待正在阻塞的写操作，放到单独的虚拟线程里执行，调用方不会被卡住
+     */
+    public void close() {
+        closed = true;
+        if (!completed.compareAndSet(false, true)) {
+            return;
+        }
+        discardQueued();
+        queue.add(POISON);
+        Thread.ofVirtual().name("sse-close-" + id).start(() -> {
+            try {
+                emitter.complete();
+            } catch (Exception e) {
+                log.debug("Failed to complete emitter. SessionID: {}", id, e);
+            }
+        });
+    }
+
+    private void discardQueued() {
+        Outbound item;
+        while ((item = queue.poll()) != null) {
+            if (item != POISON) {
+                queuedBytes.addAndGet(-item.bytes());
+                dropped.incrementAndGet();
+            }
+        }
+    }
+
+    public void touch() {
+        lastActiveNanos = System.nanoTime();
+    }
+
+    public boolean isIdle(Duration idleTimeout) {
+        return System.nanoTime() - lastActiveNanos > idleTimeout.toNanos();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public SseEmitter getEmitter() {
+        return emitter;
+    }
+
+    public boolean isOrdered() {
+        return ordered;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getQueuedBytes() {
+        return queuedBytes.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+}
@@ -1,15 +1,35 @@
 package com.holin.manager;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.holin.dto.JsonRpcResponse;
+import com.holin.exception.McpErrorCode;
+import com.holin.metrics.McpMetrics;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.io.IOException;
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
 
 /**
  * SSE 会话管理器
@@ -20,60 +40,244 @@ public class SseSessionManager {
 
     private static final Logger log = LoggerFactory.getLogger(SseSessionManager.class);
 
-    // 存储会话 ID -> Emitter 的映射
-    private final Map<String, SseEmitter> sessions = new ConcurrentHashMap<>();
+    // 存储会话 ID -> 会话 的映射
+    private final Map<String, SseSession> sessions = new ConcurrentHashMap<>();
 
-    // 如果你的服务端口或 IP 变了，记得修改这里，或者改为从配置文件读取
-    private static final String BASE_URL = "http://localhost:8080";
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private McpMetrics metrics;
+
+    private Timer sendTimer;
+    private DistributionSummary payloadSize;
+
+    // 未显式指定时，会话是否按顺序处理请求
+    @Value("${mcp.dispatch.ordered-by-default:false}")
+    private boolean orderedByDefault;
+
+    // 每个会话待发送队列的条数上限和字节上限，超出即视为慢客户端并断开
+    @Value("${mcp.sse.queue-capacity:256}")
+    private int queueCapacity = 256;
+
+    @Value("${mcp.sse.queue-max-bytes:16MB}")
+    private DataSize queueMaxBytes = DataSize.ofMegabytes(16);
+
+    // 没有数据可发时的保活间隔
+    @Value("${mcp.sse.heartbeat-interval:15s}")
+    private Duration heartbeatInterval = Duration.ofSeconds(15);
+
+    // 超过该时间没有收到客户端请求的会话会被回收
+    @Value("${mcp.sse.idle-timeout:30m}")
+    private Duration idleTimeout = Duration.ofMinutes(30);
+
+    // 因读取过慢被断开的会话数
+    private final LongAdder evicted = new LongAdder();
+
+    // 已移除会话累计丢弃的事件数
+    private final LongAdder retiredDropped = new LongAdder();
+
+    @PostConstruct
+    void initMetrics() {
+        sendTimer = metrics.phaseTimer(McpMetrics.SEND, McpMetrics.NO_TOOL);
+        payloadSize = DistributionSummary.builder("mcp.sse.payload.size")
+                .description("Size of each SSE message event")
+                .baseUnit("bytes")
+                .publishPercentileHistogram()
+                .register(metrics.registry());
+        Gauge.builder("mcp.sse.sessions", sessions, Map::size)
+                .description("Active SSE sessions")
+                .register(metrics.registry());
+        Gauge.builder("mcp.sse.queued", this, manager -> manager.sessions.values().stream()
+                        .mapToInt(SseSession::getQueueDepth).sum())
+                .description("Events waiting in SSE outbound queues")
+                .register(metrics.registry());
+        FunctionCounter.builder("mcp.sse.evicted", evicted, LongAdder::sum)
+                .description("SSE sessions disconnected for falling behind")
+                .register(metrics.registry());
+    }
+
+    // 客户端访问本服务的地址，用于生成 endpoint 事件里的消息地址；服务端口或 IP 变了需要修改配置
+    @Value("${mcp.sse.base-url:http://localhost:8080}")
+    private String baseUrl = "http://localhost:8080";
 
     /**
      * 创建一个新的 SSE 连接
+     *
+     * @param ordered 是否按顺序处理该会话的请求，为 null 时使用默认配置
      */
-    public SseEmitter createConnection() {
-        SseEmitter emitter = new SseEmitter(3600_000L);
+    public SseEmitter createConnection(Boolean ordered) {
+        // 不设超时，连接存活由心跳和空闲回收决定
+        SseEmitter emitter = new SseEmitter(0L);
+        register(emitter, ordered);
+        return emitter;
+    }
 
+    /**
+     * 为一个已创建的 emitter 登记会话并发出 endpoint 事件
+     * 基准测试通过它挂载不做实际 IO 的 emitter
+     *
+     * @return 会话 ID
+     */
+    public String register(SseEmitter emitter, Boolean ordered) {
         String sessionId = UUID.randomUUID().toString();
 
         emitter.onCompletion(() -> removeSession(sessionId, "Completed"));
         emitter.onTimeout(() -> removeSession(sessionId, "Timeout"));
         emitter.onError((e) -> removeSession(sessionId, "Error: " + e.getMessage()));
 
-        sessions.put(sessionId, emitter);
+        SseSession session = new SseSession(sessionId, emitter, ordered != null ? ordered : orderedByDefault,
+                queueCapacity, queueMaxBytes.toBytes(), heartbeatInterval, sendTimer);
+        sessions.put(sessionId, session);
 
-        try {
-            String endpointUrl = BASE_URL + "/messages?sessionId=" + sessionId;
+        // endpoint 事件同样经由写线程发出，保证它是客户端收到的第一条事件
+        String endpointUrl = baseUrl + "/messages?sessionId=" + sessionId;
+        session.offer(SseEmitter.event().name("endpoint").data(endpointUrl), endpointUrl.length());
+        session.start(e -> removeSession(sessionId, "Send Failed"));
 
-            emitter.send(SseEmitter.event().name("endpoint").data(endpointUrl));
+        log.info("Client connected. SessionID: {}", sessionId);
+        return sessionId;
+    }
 
-            log.info("Client connected. SessionID: {}", sessionId);
-        } catch (IOException e) {
-            log.error("Failed to send initial endpoint event", e);
-            emitter.completeWithError(e);
-            sessions.remove(sessionId);
-        }
+    /**
+     * 向指定会话发送 JSON-RPC 响应
+     * 只负责编码和入队，不会因为客户端读得慢而阻塞调用线程
+     *
+     * @return 是否成功入队
+     */
+    public boolean send(String sessionId, JsonRpcResponse response) {
+        // 一次性编码为字节后原样写出，ByteArrayHttpMessageConverter 不会再做二次序列化
+        return enqueue(sessionId, () -> encode(response), size -> encode(tooLarge(response, size)), response.id());
+    }
 
-        return emitter;
+    /**
+     * 向指定会话发送批量响应，作为一个 JSON 数组放在同一条 message 事件里
+     */
+    public boolean sendBatch(String sessionId, List<JsonRpcResponse> responses) {
+        return enqueue(sessionId, () -> encodeBatch(responses),
+                size -> encodeBatch(responses.stream().map(response -> tooLarge(response, size)).toList()),
+                "batch of " + responses.size());
     }
 
     /**
-     * 向指定会话发送 JSON-RPC 响应
+     * @param tooLarge 编码结果超过队列字节上限时，按结果大小生成替代的错误响应；为 null 时直接丢弃
      */
-    public void send(String sessionId, JsonRpcResponse response) {
-        SseEmitter emitter = sessions.get(sessionId);
-        if (emitter == null) {
+    private boolean enqueue(String sessionId, Supplier<byte[]> encoder, LongFunction<byte[]> tooLarge, Object logId) {
+        SseSession session = sessions.get(sessionId);
+        if (session == null) {
             log.warn("Session not found or expired: {}", sessionId);
-            return;
+            return false;
+        }
+
+        byte[] payload = encoder.get();
+        payloadSize.record(payload.length);
+        SseEmitter.SseEventBuilder event = SseEmitter.event().name("message").data(payload, MediaType.APPLICATION_JSON);
+
+        switch (session.offer(event, payload.length)) {
+            case QUEUED -> {
+                log.info("Queued response to [{}]. ID: {}, queue depth: {}", sessionId, logId, session.getQueueDepth());
+                return true;
+            }
+            case EVICTED -> {
+                evicted.increment();
+                log.warn("Session {} is not keeping up (queued {} events, {} bytes), disconnecting.",
+                        sessionId, session.getQueueDepth(), session.getQueuedBytes());
+                removeSession(sessionId, "Slow Consumer");
+                return false;
+            }
+            case TOO_LARGE -> {
+                // 回复错误而不是断开会话，客户端不会一直等待，也不影响同一会话上的其他请求
+                log.warn("Response to [{}] is {} bytes, over the {} queue limit, replying with an error. ID: {}",
+                        sessionId, payload.length, queueMaxBytes, logId);
+                return tooLarge != null && enqueue(sessionId, () -> tooLarge.apply(payload.length), null, logId);
+            }
+            default -> {
+                log.warn("Session already closed, response dropped. SessionID: {}, ID: {}", sessionId, logId);
+                return false;
+            }
         }
+    }
+
+    private JsonRpcResponse tooLarge(JsonRpcResponse response, long size) {
+        return JsonRpcResponse.error(response.id(), McpErrorCode.RESULT_TOO_LARGE.getCode(),
+                "Response of " + size + " bytes exceeds the " + queueMaxBytes.toBytes()
+                        + " byte SSE message limit. Select fewer columns, lower the limit or add filters.");
+    }
 
+    private byte[] encode(JsonRpcResponse response) {
         try {
-            emitter.send(SseEmitter.event().name("message").data(response));
+            return objectMapper.writeValueAsBytes(response);
+        } catch (JsonProcessingException e) {
+            // 结果无法序列化时，改为回复一个错误，避免客户端一直等待
+            log.error("Failed to serialize response. ID: {}", response.id(), e);
+            try {
+                return objectMapper.writeValueAsBytes(JsonRpcResponse.error(response.id(),
+                        McpErrorCode.INTERNAL_ERROR.getCode(), "Failed to serialize tool result: " + e.getOriginalMessage()));
+            } catch (JsonProcessingException unexpected) {
+                throw new IllegalStateException(unexpected);
+            }
+        }
+    }
+
+    // 逐个编码后拼接成数组，某个结果无法序列化时只影响它自己
+    private byte[] encodeBatch(List<JsonRpcResponse> responses) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write('[');
+        for (int i = 0; i < responses.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.writeBytes(encode(responses.get(i)));
+        }
+        out.write(']');
+        return out.toByteArray();
+    }
+
+    public boolean exists(String sessionId) {
+        return sessions.containsKey(sessionId);
+    }
+
+    // 记录客户端活动，返回会话是否存在
+    public boolean touch(String sessionId) {
+        SseSession session = sessions.get(sessionId);
+        if (session == null) {
+            return false;
+        }
+        session.touch();
+        return true;
+    }
+
+    public boolean isOrdered(String sessionId) {
+        SseSession session = sessions.get(sessionId);
+        return session != null && session.isOrdered();
+    }
+
+    // 回收长时间没有请求的会话
+    @Scheduled(fixedDelayString = "${mcp.sse.reap-interval:60000}", initialDelayString = "${mcp.sse.reap-interval:60000}")
+    public void reapIdleSessions() {
+        for (SseSession session : sessions.values()) {
+            if (session.isIdle(idleTimeout)) {
+                removeSession(session.getId(), "Idle");
+            }
+        }
+    }
 
-            log.info("Sent response to [{}]. ID: {}", sessionId, response.id());
-        } catch (IOException e) {
-            log.error("Failed to send message to session: {}", sessionId, e);
-            // 发送失败通常意味着连接已断开，主动清理
-            removeSession(sessionId, "Send Failed");
+    public Map<String, Object> stats() {
+        int queued = 0;
+        long queuedBytes = 0;
+        long dropped = retiredDropped.sum();
+        for (SseSession session : sessions.values()) {
+            queued += session.getQueueDepth();
+            queuedBytes += session.getQueuedBytes();
+            dropped += session.getDropped();
         }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("sessions", sessions.size());
+        stats.put("queued", queued);
+        stats.put("queuedBytes", queuedBytes);
+        stats.put("dropped", dropped);
+        stats.put("evicted", evicted.sum());
+        return stats;
     }
 
     /**
@@ -81,8 +285,11 @@ public class SseSessionManager {
      */
     private void removeSession(String sessionId, String reason) {
         // remove 返回被删除的值，如果不为 null 说明确实移除了一个存在的连接
-        if (sessions.remove(sessionId) != null) {
+        SseSession session = sessions.remove(sessionId);
+        if (session != null) {
+            session.close();
+            retiredDropped.add(session.getDropped());
             log.info("Session removed: {} (Reason: {})", sessionId, reason);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,79 @@
+package com.holin.manager;
+
+import com.holin.metrics.McpMetrics;
+import io.micrometer.core.instrument.Gauge;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Streamable HTTP 会话管理器
+ * 会话只是一个 ID 和最近活跃时间，不持有连接和线程，空闲客户端只占用一条 Map 记录
+ */
+@Component
+public class StreamableSessionManager {
+
+    private static final Logger log = LoggerFactory.getLogger(StreamableSessionManager.class);
+
+    // 会话 ID -> 最近一次请求的时间 (nanoTime)
+    private final Map<String, Long> sessions = new ConcurrentHashMap<>();
+
+    // 超过该时间没有请求的会话会被回收，客户端需要重新 initialize
+    @Value("${mcp.http.idle-timeout:30m}")
+    private Duration idleTimeout = Duration.ofMinutes(30);
+
+    @Autowired
+    private McpMetrics metrics;
+
+    @PostConstruct
+    void initMetrics() {
+        Gauge.builder("mcp.http.sessions", sessions, Map::size)
+                .description("Active Streamable HTTP sessions")
+                .register(metrics.registry());
+    }
+
+    public String create() {
+        String sessionId = UUID.randomUUID().toString();
+        sessions.put(sessionId, System.nanoTime());
+        log.info("Streamable HTTP session created. SessionID: {}", sessionId);
+        return sessionId;
+    }
+
+    // 记录客户端活动，返回会话是否存在
+    public boolean touch(String sessionId) {
+        return sessions.computeIfPresent(sessionId, (id, last) -> System.nanoTime()) != null;
+    }
+
+    public boolean remove(String sessionId) {
+        if (sessions.remove(sessionId) != null) {
+            log.info("Streamable HTTP session closed. SessionID: {}", sessionId);
+            return true;
+        }
+        return false;
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    @Scheduled(fixedDelayString = "${mcp.http.reap-interval:60000}", initialDelayString = "${mcp.http.reap-interval:60000}")
+    public void reapIdleSessions() {
+        long deadline = System.nanoTime() - idleTimeout.toNanos();
+        sessions.entrySet().removeIf(entry -> {
+            boolean idle = entry.getValue() - deadline < 0;
+            if (idle) {
+                log.info("Streamable HTTP session expired. SessionID: {}", entry.getKey());
+            }
+            return idle;
+        });
+    }
+}
@@ -0,0 +1,150 @@
+package com.holin.metrics;
+
+import com.holin.exception.McpErrorCode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * MCP 请求处理的各阶段指标，通过 /actuator/prometheus 暴露
+ * - mcp.phase{phase, tool}: 各阶段耗时 (bind / validate / admission / acquire / explain / execute / mapping / serialization / send)
+ * - mcp.tool.duration{tool, outcome}: 工具调用总耗时
+ * - mcp.query.rows / mcp.query.truncated: 返回行数与被截断的查询数
+ * - mcp.response.size{tool}: 工具结果的 JSON 字符数
+ * - mcp.errors{code}: 按 McpErrorCode 统计的错误数
+ * 连接池等待时间由 Spring Boot 自动注册的 hikaricp.connections.acquire 提供
+ * 各指标按标签缓存，热路径上不再重复走 builder 和注册表查找
+ */
+@Component
+public class McpMetrics {
+
+    // JSON 树映射为请求对象；请求体的 JSON 解析在 Spring 的消息转换中完成，不计入
+    public static final String BIND = "bind";
+    public static final String VALIDATE = "validate";
+    public static final String ADMISSION = "admission";
+    public static final String ACQUIRE = "acquire";
+    public static final String EXPLAIN = "explain";
+    public static final String EXECUTE = "execute";
+    public static final String MAPPING = "mapping";
+    public static final String SERIALIZATION = "serialization";
+    public static final String SEND = "send";
+
+    // 阶段不属于某个工具 (如 initialize、请求映射) 时使用的 tool 标签
+    public static final String NO_TOOL = "none";
+
+    // 当前线程正在执行的工具，SQL 各阶段据此打上 tool 标签
+    private static final ThreadLocal<String> CURRENT_TOOL = new ThreadLocal<>();
+
+    private final MeterRegistry registry;
+
+    // 阶段 -> 工具 -> 计时器
+    private final Map<String, Map<String, Timer>> phaseTimers = new ConcurrentHashMap<>();
+    // 工具 -> 成功 / 失败的调用耗时
+    private final Map<String, Timer> toolSuccess = new ConcurrentHashMap<>();
+    private final Map<String, Timer> toolError = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> rowSummaries = new ConcurrentHashMap<>();
+    private final Map<String, Counter> truncatedCounters = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> responseSizes = new ConcurrentHashMap<>();
+    private final Map<McpErrorCode, Counter> errorCounters = new ConcurrentHashMap<>();
+
+    public McpMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public static String currentTool() {
+        String tool = CURRENT_TOOL.get();
+        return tool != null ? tool : NO_TOOL;
+    }
+
+    /**
+     * 在当前线程上以指定工具名执行，并记录工具调用总耗时
+     */
+    public <T> T recordTool(String tool, Supplier<T> call) {
+        String previous = CURRENT_TOOL.get();
+        CURRENT_TOOL.set(tool);
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            T result = call.get();
+            success = true;
+            return result;
+        } finally {
+            toolTimer(tool, success).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (previous != null) {
+                CURRENT_TOOL.set(previous);
+            } else {
+                CURRENT_TOOL.remove();
+            }
+        }
+    }
+
+    private Timer toolTimer(String tool, boolean success) {
+        String outcome = success ? "success" : "error";
+        return (success ? toolSuccess : toolError).computeIfAbsent(tool, t -> Timer.builder("mcp.tool.duration")
+                .description("Tool call latency")
+                .tag("tool", t)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry));
+    }
+
+    public void recordPhase(String phase, long nanos) {
+        recordPhase(phase, currentTool(), nanos);
+    }
+
+    public void recordPhase(String phase, String tool, long nanos) {
+        phaseTimer(phase, tool).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public Timer phaseTimer(String phase, String tool) {
+        return phaseTimers.computeIfAbsent(phase, p -> new ConcurrentHashMap<>())
+                .computeIfAbsent(tool, t -> Timer.builder("mcp.phase")
+                        .description("Latency of one request processing phase")
+                        .tag("phase", phase)
+                        .tag("tool", t)
+                        .publishPercentileHistogram()
+                        .register(registry));
+    }
+
+    public void recordRows(int rows, boolean truncated) {
+        String tool = currentTool();
+        rowSummaries.computeIfAbsent(tool, t -> DistributionSummary.builder("mcp.query.rows")
+                .description("Rows returned per query")
+                .tag("tool", t)
+                .publishPercentileHistogram()
+                .register(registry)).record(rows);
+        if (truncated) {
+            truncatedCounters.computeIfAbsent(tool, t -> Counter.builder("mcp.query.truncated")
+                    .description("Queries whose result hit the row cap")
+                    .tag("tool", t)
+                    .register(registry)).increment();
+        }
+    }
+
+    public void recordResponseSize(String tool, long chars) {
+        responseSizes.computeIfAbsent(tool, t -> DistributionSummary.builder("mcp.response.size")
+                .description("Size of the serialized tool result")
+                .baseUnit("chars")
+                .tag("tool", t)
+                .publishPercentileHistogram()
+                .register(registry)).record(chars);
+    }
+
+    public void recordError(McpErrorCode code) {
+        errorCounters.computeIfAbsent(code, c -> Counter.builder("mcp.errors")
+                .description("JSON-RPC errors returned, by error code")
+                .tag("code", c.name())
+                .register(registry)).increment();
+    }
+
+    public MeterRegistry registry() {
+        return registry;
+    }
+}
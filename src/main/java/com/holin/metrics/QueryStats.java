@@ -0,0 +1,158 @@
+package com.holin.metrics;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个 SQL 指纹的累计统计
+ * 全部由 LongAdder / LongAccumulator 组成，并发记录时各线程写各自的分段，不加锁
+ */
+public final class QueryStats {
+
+    // 延迟直方图的桶上界 (毫秒)，最后一个桶收纳所有更慢的查询
+    static final long[] BUCKET_BOUNDS_MILLIS = {1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000, 60000};
+
+    private final String fingerprint;
+    private final String sample;
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+    private final LongAdder[] buckets = new LongAdder[BUCKET_BOUNDS_MILLIS.length + 1];
+
+    // 替换其他指纹时继承的次数和耗时 (Space-Saving)，即 count 与 totalNanos 最多高估的部分
+    private final long inheritedCount;
+    private final long inheritedNanos;
+
+    private volatile long lastSeenMillis;
+
+    QueryStats(String fingerprint, String sample) {
+        this(fingerprint, sample, 0, 0);
+    }
+
+    private QueryStats(String fingerprint, String sample, long inheritedCount, long inheritedNanos) {
+        this.fingerprint = fingerprint;
+        this.sample = sample;
+        this.inheritedCount = inheritedCount;
+        this.inheritedNanos = inheritedNanos;
+        count.add(inheritedCount);
+        totalNanos.add(inheritedNanos);
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * 替换被淘汰指纹的新指纹，继承它的次数和总耗时
+     * 新指纹不必从零开始和已有的指纹比较总耗时，真正高耗时的查询结构刚出现也能留下来
+     */
+    static QueryStats replacing(String fingerprint, String sample, QueryStats evicted) {
+        return new QueryStats(fingerprint, sample, evicted.count(), evicted.totalNanos());
+    }
+
+    void record(long nanos, int rowCount, boolean error) {
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+        if (error) {
+            errors.increment();
+        } else {
+            rows.add(rowCount);
+        }
+        buckets[bucket(TimeUnit.NANOSECONDS.toMillis(nanos))].increment();
+        lastSeenMillis = System.currentTimeMillis();
+    }
+
+    private static int bucket(long millis) {
+        for (int i = 0; i < BUCKET_BOUNDS_MILLIS.length; i++) {
+            if (millis <= BUCKET_BOUNDS_MILLIS[i]) {
+                return i;
+            }
+        }
+        return BUCKET_BOUNDS_MILLIS.length;
+    }
+
+    public String fingerprint() {
+        return fingerprint;
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public long errors() {
+        return errors.sum();
+    }
+
+    public long totalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long maxNanos() {
+        return maxNanos.get();
+    }
+
+    public long rows() {
+        return rows.sum();
+    }
+
+    // 平均耗时只按自己记录的查询计算，不含继承的部分
+    public double avgNanos() {
+        long n = count() - inheritedCount;
+        return n == 0 ? 0 : (double) (totalNanos() - inheritedNanos) / n;
+    }
+
+    /**
+     * 按直方图估算的分位数 (毫秒)，取所在桶的上界；落在最后一个桶时取最大值
+     */
+    public long percentileMillis(double quantile) {
+        long[] counts = new long[buckets.length];
+        long total = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_BOUNDS_MILLIS.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return BUCKET_BOUNDS_MILLIS[i];
+            }
+        }
+        return TimeUnit.NANOSECONDS.toMillis(maxNanos());
+    }
+
+    public Map<String, Object> snapshot() {
+        long n = count();
+        long succeeded = n - inheritedCount - errors();
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("fingerprint", fingerprint);
+        snapshot.put("sample", sample);
+        snapshot.put("count", n);
+        snapshot.put("errors", errors());
+        snapshot.put("totalMs", TimeUnit.NANOSECONDS.toMillis(totalNanos()));
+        snapshot.put("avgMs", Math.round(avgNanos() / 10_000d) / 100d);
+        snapshot.put("maxMs", TimeUnit.NANOSECONDS.toMillis(maxNanos()));
+        snapshot.put("p50Ms", percentileMillis(0.50));
+        snapshot.put("p95Ms", percentileMillis(0.95));
+        snapshot.put("p99Ms", percentileMillis(0.99));
+        snapshot.put("rows", rows());
+        snapshot.put("avgRows", succeeded == 0 ? 0 : rows() / succeeded);
+        snapshot.put("lastSeen", Instant.ofEpochMilli(lastSeenMillis).toString());
+        if (inheritedCount > 0) {
+            snapshot.put("overestimatedCount", inheritedCount);
+            snapshot.put("overestimatedMs", TimeUnit.NANOSECONDS.toMillis(inheritedNanos));
+        }
+        return snapshot;
+    }
+}
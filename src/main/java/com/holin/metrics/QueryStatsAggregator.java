@@ -0,0 +1,160 @@
+package com.holin.metrics;
+
+import com.holin.exception.McpErrorCode;
+import com.holin.exception.McpException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 按 SQL 指纹聚合的查询统计：次数、总耗时、最大耗时、延迟直方图、返回行数、错误数
+ * 用于找出哪些查询结构最消耗数据库时间，再针对性地加索引或缓存
+ * - 记录路径不加锁：指纹表是 ConcurrentHashMap，各项计数是分段的 LongAdder
+ * - 最多保留 max-fingerprints 个指纹，内存占用有界；已满时新指纹按 Space-Saving 替换总耗时最低的指纹，
+ *   并继承它的次数和总耗时，结果中以 overestimatedCount / overestimatedMs 标出高估的上限
+ */
+@Component
+public class QueryStatsAggregator {
+
+    // 样本 SQL 的最大长度
+    private static final int SAMPLE_LENGTH = 1000;
+
+    @Value("${mcp.stats.queries.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${mcp.stats.queries.max-fingerprints:500}")
+    private int maxFingerprints = 500;
+
+    private final Map<String, QueryStats> stats = new ConcurrentHashMap<>();
+
+    // 因容量限制被淘汰的指纹数
+    private final LongAdder evicted = new LongAdder();
+
+    private volatile Instant since = Instant.now();
+
+    public QueryStatsAggregator() {
+    }
+
+    QueryStatsAggregator(int maxFingerprints) {
+        this.maxFingerprints = maxFingerprints;
+    }
+
+    /**
+     * 记录一次查询
+     *
+     * @param sql 规范化后的 SQL，指纹第一次出现时作为样本保存
+     */
+    public void record(String fingerprint, String sql, long nanos, int rows, boolean error) {
+        if (!enabled || fingerprint == null) {
+            return;
+        }
+        QueryStats entry = stats.get(fingerprint);
+        if (entry == null) {
+            entry = admit(fingerprint, sql);
+        }
+        entry.record(nanos, rows, error);
+    }
+
+    /**
+     * 加入新指纹，只在指纹第一次出现时加锁
+     * 已满时替换总耗时最低的指纹 (Space-Saving)：直接淘汰会让新指纹永远排在最后、下次又被淘汰，
+     * 继承计数后新指纹只要之后的耗时超过其他指纹就能留下；替换瞬间正在写入旧指纹的样本会丢失
+     */
+    private synchronized QueryStats admit(String fingerprint, String sql) {
+        QueryStats entry = stats.get(fingerprint);
+        if (entry != null) {
+            return entry;
+        }
+        entry = new QueryStats(fingerprint, abbreviate(sql));
+        if (stats.size() >= maxFingerprints) {
+            QueryStats min = stats.values().stream()
+                    .min(Comparator.comparingLong(QueryStats::totalNanos))
+                    .orElse(null);
+            if (min != null && stats.remove(min.fingerprint(), min)) {
+                evicted.increment();
+                entry = QueryStats.replacing(fingerprint, abbreviate(sql), min);
+            }
+        }
+        stats.put(fingerprint, entry);
+        return entry;
+    }
+
+    private static String abbreviate(String sql) {
+        if (sql == null || sql.length() <= SAMPLE_LENGTH) {
+            return sql;
+        }
+        return sql.substring(0, SAMPLE_LENGTH) + "...";
+    }
+
+    /**
+     * 按指定维度排序，返回前 limit 个指纹的统计
+     *
+     * @param orderBy totalTime (默认) / count / avgTime / maxTime / errors / rows
+     */
+    public Map<String, Object> top(String orderBy, int limit) {
+        List<Map<String, Object>> queries = ranked(metric(orderBy), true, Math.max(1, limit)).stream()
+                .map(QueryStats::snapshot)
+                .toList();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("since", since.toString());
+        result.put("fingerprints", stats.size());
+        result.put("evicted", evicted.sum());
+        result.put("orderBy", orderBy == null || orderBy.isBlank() ? "totalTime" : orderBy);
+        result.put("queries", queries);
+        return result;
+    }
+
+    /**
+     * 按指标排序后取前 limit 个
+     * 排序期间计数仍在变化，先把每个指纹的指标取一次快照再排序，保证比较结果前后一致
+     */
+    private List<QueryStats> ranked(ToDoubleFunction<QueryStats> metric, boolean descending, int limit) {
+        record Ranked(QueryStats stats, double key) {}
+        Comparator<Ranked> order = Comparator.comparingDouble(Ranked::key);
+        return stats.values().stream()
+                .map(entry -> new Ranked(entry, metric.applyAsDouble(entry)))
+                .sorted(descending ? order.reversed() : order)
+                .limit(limit)
+                .map(Ranked::stats)
+                .toList();
+    }
+
+    private static ToDoubleFunction<QueryStats> metric(String orderBy) {
+        if (orderBy == null || orderBy.isBlank()) {
+            return QueryStats::totalNanos;
+        }
+        return switch (orderBy) {
+            case "totalTime" -> QueryStats::totalNanos;
+            case "count" -> QueryStats::count;
+            case "avgTime" -> QueryStats::avgNanos;
+            case "maxTime" -> QueryStats::maxNanos;
+            case "errors" -> QueryStats::errors;
+            case "rows" -> QueryStats::rows;
+            default -> throw new McpException(McpErrorCode.INVALID_PARAMS,
+                    "Unknown orderBy: " + orderBy + ". Use totalTime, count, avgTime, maxTime, errors or rows.");
+        };
+    }
+
+    public synchronized void reset() {
+        stats.clear();
+        evicted.reset();
+        since = Instant.now();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int size() {
+        return stats.size();
+    }
+}
@@ -0,0 +1,240 @@
+package com.holin.profile;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 单列的统计累加器，一次扫描同时得到空值比例、最值、基数估计、高频值和数值分布
+ * 按列的 JDBC 类型选择读取方式：整数列用 getLong，浮点列用 getDouble，配合 wasNull 判断空值，各统计都按原始类型累加，不创建包装对象
+ */
+public final class ColumnProfiler {
+
+    // 高频值和最值中过长的文本只保留前缀
+    static final int MAX_VALUE_LENGTH = 100;
+
+    enum Kind {INTEGER, DECIMAL, FLOAT, TEXT, TEMPORAL, BINARY}
+
+    private final String name;
+    private final String type;
+    private final Kind kind;
+
+    private long rows;
+    private long nulls;
+
+    private final HyperLogLog distinct = new HyperLogLog();
+    private final SpaceSaving topValues;
+    private final NumericSketch numeric;
+
+    private long minLong = Long.MAX_VALUE;
+    private long maxLong = Long.MIN_VALUE;
+    private BigDecimal minDecimal;
+    private BigDecimal maxDecimal;
+    private String minText;
+    private String maxText;
+
+    private long totalLength;
+    private int minLength = Integer.MAX_VALUE;
+    private int maxLength;
+
+    ColumnProfiler(String name, String type, Kind kind, int topCapacity) {
+        this.name = name;
+        this.type = type;
+        this.kind = kind;
+        this.topValues = kind == Kind.BINARY ? null : new SpaceSaving(topCapacity);
+        this.numeric = kind == Kind.INTEGER || kind == Kind.DECIMAL || kind == Kind.FLOAT ? new NumericSketch() : null;
+    }
+
+    /**
+     * 按结果集中第 column 列 (从 1 开始) 的类型创建累加器
+     */
+    public static ColumnProfiler of(ResultSetMetaData metaData, int column, int topCapacity) throws SQLException {
+        String typeName = metaData.getColumnTypeName(column);
+        return new ColumnProfiler(metaData.getColumnLabel(column), typeName,
+                kind(metaData.getColumnType(column), typeName), topCapacity);
+    }
+
+    static Kind kind(int sqlType, String typeName) {
+        return switch (sqlType) {
+            // BIGINT UNSIGNED 超出 long 的范围
+            case Types.BIGINT -> typeName != null && typeName.toUpperCase(Locale.ROOT).contains("UNSIGNED")
+                    ? Kind.DECIMAL : Kind.INTEGER;
+            case Types.TINYINT, Types.SMALLINT, Types.INTEGER, Types.BIT, Types.BOOLEAN -> Kind.INTEGER;
+            case Types.DECIMAL, Types.NUMERIC -> Kind.DECIMAL;
+            case Types.REAL, Types.FLOAT, Types.DOUBLE -> Kind.FLOAT;
+            case Types.DATE, Types.TIME, Types.TIMESTAMP, Types.TIME_WITH_TIMEZONE, Types.TIMESTAMP_WITH_TIMEZONE ->
+                    Kind.TEMPORAL;
+            case Types.BINARY, Types.VARBINARY, Types.LONGVARBINARY, Types.BLOB -> Kind.BINARY;
+            default -> Kind.TEXT;
+        };
+    }
+
+    /**
+     * 读取当前行第 column 列的值
+     */
+    public void accept(ResultSet rs, int column) throws SQLException {
+        switch (kind) {
+            case INTEGER -> {
+                long value = rs.getLong(column);
+                if (rs.wasNull()) {
+                    acceptNull();
+                } else {
+                    acceptLong(value);
+                }
+            }
+            case FLOAT -> {
+                double value = rs.getDouble(column);
+                if (rs.wasNull()) {
+                    acceptNull();
+                } else {
+                    acceptDouble(value);
+                }
+            }
+            case DECIMAL -> acceptDecimal(rs.getBigDecimal(column));
+            case BINARY -> acceptBytes(rs.getBytes(column));
+            // 日期时间按文本比较：YYYY-MM-DD HH:MM:SS 的字典序就是时间顺序
+            default -> acceptText(rs.getString(column));
+        }
+    }
+
+    void acceptNull() {
+        rows++;
+        nulls++;
+    }
+
+    void acceptLong(long value) {
+        rows++;
+        minLong = Math.min(minLong, value);
+        maxLong = Math.max(maxLong, value);
+        distinct.addLong(value);
+        numeric.add(value);
+        topValues.addLong(value);
+    }
+
+    void acceptDouble(double value) {
+        rows++;
+        distinct.addDouble(value);
+        numeric.add(value);
+        topValues.addDouble(value);
+    }
+
+    void acceptDecimal(BigDecimal value) {
+        if (value == null) {
+            acceptNull();
+            return;
+        }
+        rows++;
+        if (minDecimal == null || value.compareTo(minDecimal) < 0) {
+            minDecimal = value;
+        }
+        if (maxDecimal == null || value.compareTo(maxDecimal) > 0) {
+            maxDecimal = value;
+        }
+        // 1.50 与 1.5 是同一个值
+        BigDecimal normalized = value.signum() == 0 ? BigDecimal.ZERO : value.stripTrailingZeros();
+        distinct.addString(normalized.toPlainString());
+        numeric.add(value.doubleValue());
+        topValues.add(normalized);
+    }
+
+    void acceptText(String value) {
+        if (value == null) {
+            acceptNull();
+            return;
+        }
+        rows++;
+        if (minText == null || value.compareTo(minText) < 0) {
+            minText = value;
+        }
+        if (maxText == null || value.compareTo(maxText) > 0) {
+            maxText = value;
+        }
+        if (kind == Kind.TEXT) {
+            int length = value.length();
+            totalLength += length;
+            minLength = Math.min(minLength, length);
+            maxLength = Math.max(maxLength, length);
+        }
+        distinct.addString(value);
+        topValues.add(abbreviate(value));
+    }
+
+    void acceptBytes(byte[] value) {
+        if (value == null) {
+            acceptNull();
+            return;
+        }
+        rows++;
+        totalLength += value.length;
+        minLength = Math.min(minLength, value.length);
+        maxLength = Math.max(maxLength, value.length);
+        distinct.addBytes(value);
+    }
+
+    /**
+     * 汇总结果
+     *
+     * @param topK    返回的高频值个数
+     * @param buckets 数值列直方图的桶数
+     */
+    public Map<String, Object> profile(int topK, int buckets) {
+        long nonNull = rows - nulls;
+        Map<String, Object> profile = new LinkedHashMap<>();
+        profile.put("name", name);
+        profile.put("type", type);
+        profile.put("nulls", nulls);
+        profile.put("nullRatio", rows == 0 ? 0.0 : Math.round(nulls * 10_000d / rows) / 10_000d);
+        // 估计值不会超过实际的非空行数
+        profile.put("distinct", Math.min(distinct.estimate(), nonNull));
+        if (nonNull == 0) {
+            return profile;
+        }
+
+        switch (kind) {
+            case INTEGER -> {
+                profile.put("min", minLong);
+                profile.put("max", maxLong);
+            }
+            case DECIMAL -> {
+                profile.put("min", minDecimal);
+                profile.put("max", maxDecimal);
+            }
+            case TEXT, TEMPORAL -> {
+                profile.put("min", abbreviate(minText));
+                profile.put("max", abbreviate(maxText));
+            }
+            case FLOAT -> {
+                profile.put("min", numeric.min());
+                profile.put("max", numeric.max());
+            }
+            default -> {
+                // 二进制列只统计长度
+            }
+        }
+        if (numeric != null) {
+            numeric.describe(profile, buckets);
+        }
+        if (kind == Kind.TEXT || kind == Kind.BINARY) {
+            profile.put("minLength", minLength);
+            profile.put("maxLength", maxLength);
+            profile.put("avgLength", Math.round(totalLength * 100d / nonNull) / 100d);
+        }
+        if (topValues != null) {
+            List<Map<String, Object>> top = topValues.top(topK);
+            if (!top.isEmpty()) {
+                profile.put("topValues", top);
+            }
+        }
+        return profile;
+    }
+
+    private static String abbreviate(String value) {
+        return value.length() <= MAX_VALUE_LENGTH ? value : value.substring(0, MAX_VALUE_LENGTH) + "...";
+    }
+}
@@ -0,0 +1,113 @@
+package com.holin.profile;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * 数值列的分布：精确的均值，以及基于蓄水池抽样的分位数和等宽直方图
+ * 蓄水池是一个 double 数组，读取时不装箱
+ */
+public final class NumericSketch {
+
+    static final int RESERVOIR_SIZE = 4096;
+
+    private final double[] reservoir = new double[RESERVOIR_SIZE];
+    private final SplittableRandom random = new SplittableRandom(0x5eed);
+
+    private long count;
+    private double sum;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public void add(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        count++;
+        sum += value;
+        if (value < min) {
+            min = value;
+        }
+        if (value > max) {
+            max = value;
+        }
+        // 蓄水池抽样：第 n 个值以 RESERVOIR_SIZE / n 的概率进入样本
+        if (count <= RESERVOIR_SIZE) {
+            reservoir[(int) count - 1] = value;
+        } else {
+            long slot = random.nextLong(count);
+            if (slot < RESERVOIR_SIZE) {
+                reservoir[(int) slot] = value;
+            }
+        }
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public double min() {
+        return min;
+    }
+
+    public double max() {
+        return max;
+    }
+
+    /**
+     * 写入均值、分位数和直方图；直方图的计数按样本比例换算为全部非空值上的估计
+     *
+     * @param buckets 直方图的桶数
+     */
+    public void describe(Map<String, Object> profile, int buckets) {
+        if (count == 0) {
+            return;
+        }
+        profile.put("mean", round(sum / count));
+
+        int sampled = (int) Math.min(count, RESERVOIR_SIZE);
+        double[] sample = Arrays.copyOf(reservoir, sampled);
+        Arrays.sort(sample);
+        profile.put("p25", sample[(int) ((sampled - 1) * 0.25)]);
+        profile.put("median", sample[(int) ((sampled - 1) * 0.5)]);
+        profile.put("p75", sample[(int) ((sampled - 1) * 0.75)]);
+
+        if (buckets > 0) {
+            profile.put("histogram", histogram(sample, buckets));
+        }
+    }
+
+    private Map<String, Object> histogram(double[] sorted, int buckets) {
+        if (min == max) {
+            buckets = 1;
+        }
+        double width = (max - min) / buckets;
+        long[] counts = new long[buckets];
+        for (double value : sorted) {
+            int bucket = width == 0 ? 0 : (int) ((value - min) / width);
+            counts[Math.min(bucket, buckets - 1)]++;
+        }
+
+        double scale = (double) count / sorted.length;
+        List<Double> bounds = new ArrayList<>(buckets + 1);
+        List<Long> estimated = new ArrayList<>(buckets);
+        for (int i = 0; i < buckets; i++) {
+            bounds.add(round(min + i * width));
+            estimated.add(Math.round(counts[i] * scale));
+        }
+        bounds.add(max);
+
+        Map<String, Object> histogram = new LinkedHashMap<>();
+        histogram.put("bounds", bounds);
+        histogram.put("counts", estimated);
+        return histogram;
+    }
+
+    private static double round(double value) {
+        return Math.abs(value) >= 1e15 ? value : Math.round(value * 10_000d) / 10_000d;
+    }
+}
@@ -0,0 +1,214 @@
+package com.holin.profile;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 高频值统计 (Space-Saving)，只跟踪固定数量的计数器
+ * 计数器满了以后新值替换计数最小的那个，并继承它的计数作为误差上界；
+ * 真实频次超过 总数 / 计数器数 的值一定会被保留下来
+ * 计数器按计数组成最小堆，每次更新 O(log capacity)
+ * 数值列走 addLong / addDouble：键存在开放寻址的 long 数组里，计数器预先分配，每行不创建任何对象
+ */
+public final class SpaceSaving {
+
+    private static final class Counter {
+        private Object value;
+        private long key;
+        private long count;
+        private long error;
+        private int heapIndex;
+        private int poolIndex;
+    }
+
+    private enum KeyType {OBJECT, LONG, DOUBLE}
+
+    private final int capacity;
+    private final Counter[] heap;
+    private int size;
+
+    private KeyType keyType;
+
+    // 对象键
+    private Map<Object, Counter> counters;
+
+    // long 键 (double 按位模式存放)：线性探测的哈希表，slots 中存计数器下标 + 1，0 表示空位
+    private long[] keys;
+    private int[] slots;
+    private Counter[] pool;
+
+    public SpaceSaving(int capacity) {
+        this.capacity = capacity;
+        this.heap = new Counter[capacity];
+    }
+
+    public void add(Object value) {
+        useKeyType(KeyType.OBJECT);
+        Counter counter = counters.get(value);
+        if (counter == null) {
+            if (size < capacity) {
+                counter = new Counter();
+                counter.heapIndex = size;
+                heap[size++] = counter;
+            } else {
+                // 替换计数最小的值
+                counter = heap[0];
+                counters.remove(counter.value);
+                counter.error = counter.count;
+            }
+            counter.value = value;
+            counters.put(value, counter);
+        }
+        counter.count++;
+        siftDown(counter.heapIndex);
+    }
+
+    public void addLong(long value) {
+        useKeyType(KeyType.LONG);
+        addKey(value);
+    }
+
+    public void addDouble(double value) {
+        useKeyType(KeyType.DOUBLE);
+        // 0.0 与 -0.0 视为同一个值
+        addKey(Double.doubleToLongBits(value == 0.0 ? 0.0 : value));
+    }
+
+    private void useKeyType(KeyType type) {
+        if (keyType == type) {
+            return;
+        }
+        if (keyType != null) {
+            throw new IllegalStateException("SpaceSaving already tracks " + keyType + " values");
+        }
+        keyType = type;
+        if (type == KeyType.OBJECT) {
+            counters = new HashMap<>(capacity * 2);
+        } else {
+            // 装载因子不超过 1/2，探测链很短
+            int tableSize = Integer.highestOneBit(Math.max(2, capacity) * 4 - 1);
+            keys = new long[tableSize];
+            slots = new int[tableSize];
+            pool = new Counter[capacity];
+            for (int i = 0; i < capacity; i++) {
+                pool[i] = new Counter();
+                pool[i].poolIndex = i;
+            }
+        }
+    }
+
+    private void addKey(long key) {
+        int mask = slots.length - 1;
+        int index = (int) HyperLogLog.mix(key) & mask;
+        while (slots[index] != 0 && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+
+        Counter counter;
+        if (slots[index] != 0) {
+            counter = pool[slots[index] - 1];
+        } else {
+            if (size < capacity) {
+                counter = pool[size];
+                counter.heapIndex = size;
+                heap[size++] = counter;
+            } else {
+                // 替换计数最小的值；删除旧键可能移动其他键，新键的位置要重新探测
+                counter = heap[0];
+                removeKey(counter.key);
+                counter.error = counter.count;
+                index = (int) HyperLogLog.mix(key) & mask;
+                while (slots[index] != 0) {
+                    index = (index + 1) & mask;
+                }
+            }
+            counter.key = key;
+            keys[index] = key;
+            slots[index] = counter.poolIndex + 1;
+        }
+        counter.count++;
+        siftDown(counter.heapIndex);
+    }
+
+    // 线性探测表的删除：把后面同一探测链上的键前移填补空位，不使用墓碑
+    private void removeKey(long key) {
+        int mask = slots.length - 1;
+        int index = (int) HyperLogLog.mix(key) & mask;
+        while (keys[index] != key || slots[index] == 0) {
+            index = (index + 1) & mask;
+        }
+        int hole = index;
+        int next = (hole + 1) & mask;
+        while (slots[next] != 0) {
+            int home = (int) HyperLogLog.mix(keys[next]) & mask;
+            // home 不在 (hole, next] 区间内时，该键可以移到 hole
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                slots[hole] = slots[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        slots[hole] = 0;
+    }
+
+    private void siftDown(int index) {
+        Counter counter = heap[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1].count < heap[child].count) {
+                child++;
+            }
+            if (heap[child].count >= counter.count) {
+                break;
+            }
+            heap[index] = heap[child];
+            heap[index].heapIndex = index;
+            index = child;
+        }
+        heap[index] = counter;
+        counter.heapIndex = index;
+    }
+
+    /**
+     * 按估计频次从高到低返回前 k 个值
+     * 只返回确定出现过不止一次的值 (计数减去误差大于 1)，全是唯一值的列返回空列表
+     */
+    public List<Map<String, Object>> top(int k) {
+        Counter[] sorted = Arrays.copyOf(heap, size);
+        Arrays.sort(sorted, Comparator.comparingLong((Counter c) -> c.count).reversed());
+        List<Map<String, Object>> top = new ArrayList<>(Math.min(k, size));
+        for (Counter counter : sorted) {
+            if (top.size() >= k) {
+                break;
+            }
+            if (counter.count - counter.error <= 1) {
+                continue;
+            }
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("value", valueOf(counter));
+            entry.put("count", counter.count);
+            if (counter.error > 0) {
+                entry.put("maxError", counter.error);
+            }
+            top.add(entry);
+        }
+        return top;
+    }
+
+    private Object valueOf(Counter counter) {
+        return switch (keyType) {
+            case LONG -> counter.key;
+            case DOUBLE -> Double.longBitsToDouble(counter.key);
+            default -> counter.value;
+        };
+    }
+}
@@ -0,0 +1,122 @@
+package com.holin.replica;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 一个可执行查询的数据库节点 (主库或只读副本) 及其健康状态
+ */
+public class ReplicaNode {
+
+    private final String name;
+    private final boolean primary;
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+
+    // 只读事务，每个节点使用自己的事务管理器
+    private final TransactionTemplate readOnlyTx;
+
+    // 正在该节点上执行的查询数，用于最少未完成请求均衡
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+    private volatile boolean available = true;
+
+    // 被摘除的原因，可用时为 null
+    private volatile String ejectReason;
+
+    // 最近一次检查到的复制延迟 (秒)，未知时为 null
+    private volatile Long lagSeconds;
+
+    ReplicaNode(String name, boolean primary, DataSource dataSource, TransactionTemplate readOnlyTx) {
+        this.name = name;
+        this.primary = primary;
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.readOnlyTx = readOnlyTx;
+    }
+
+    void acquire() {
+        outstanding.incrementAndGet();
+    }
+
+    void release() {
+        outstanding.decrementAndGet();
+    }
+
+    // 健康检查通过：记录延迟，延迟超限时摘除，否则恢复
+    void recordHealthy(Long lagSeconds, long maxLagSeconds) {
+        consecutiveFailures.set(0);
+        this.lagSeconds = lagSeconds;
+        if (lagSeconds == null) {
+            eject("replication stopped");
+        } else if (lagSeconds > maxLagSeconds) {
+            eject("replication lag " + lagSeconds + "s exceeds " + maxLagSeconds + "s");
+        } else {
+            available = true;
+            ejectReason = null;
+        }
+    }
+
+    /**
+     * 记录一次失败 (健康检查或查询拿不到连接)，连续失败达到阈值后摘除
+     *
+     * @return 本次是否导致节点被摘除
+     */
+    boolean recordFailure(int threshold, String reason) {
+        if (consecutiveFailures.incrementAndGet() >= threshold && available) {
+            eject(reason);
+            return true;
+        }
+        return false;
+    }
+
+    private void eject(String reason) {
+        available = false;
+        ejectReason = reason;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isPrimary() {
+        return primary;
+    }
+
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    public JdbcTemplate getJdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    public TransactionTemplate getReadOnlyTx() {
+        return readOnlyTx;
+    }
+
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures.get();
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    public String getEjectReason() {
+        return ejectReason;
+    }
+
+    public Long getLagSeconds() {
+        return lagSeconds;
+    }
+}
@@ -0,0 +1,40 @@
+package com.holin.replica;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 只读副本配置 (mcp.replicas)
+ * 未配置任何副本时，所有查询仍然走 spring.datasource 指定的主库
+ */
+@ConfigurationProperties("mcp.replicas")
+public record ReplicaProperties(
+        List<Node> nodes,
+
+        // 所有副本都不可用时是否退回主库执行查询
+        @DefaultValue("true") boolean fallbackToPrimary,
+
+        // 查询复制延迟的语句；结果中有 Seconds_Behind_Source / Seconds_Behind_Master 列时取该列，否则取第一列；留空表示不检查
+        @DefaultValue("SHOW REPLICA STATUS") String lagQuery,
+
+        // 复制延迟超过该值的副本暂停接收查询
+        @DefaultValue("30s") Duration maxLag,
+
+        // 连续失败多少次后摘除副本
+        @DefaultValue("3") int failureThreshold
+) {
+    public ReplicaProperties {
+        nodes = nodes != null ? List.copyOf(nodes) : List.of();
+    }
+
+    public record Node(
+            String name,
+            String url,
+            String username,
+            String password,
+            @DefaultValue("10") int maxPoolSize
+    ) {}
+}
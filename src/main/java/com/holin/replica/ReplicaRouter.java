@@ -0,0 +1,236 @@
+package com.holin.replica;
+
+import com.holin.exception.McpErrorCode;
+import com.holin.exception.McpException;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 只读副本路由
+ * - query_database 的查询在可用副本间按最少未完成请求分配
+ * - 定时健康检查：连不上、复制中断或延迟超限的副本被摘除，恢复后自动重新加入
+ * - 元数据查询可以通过节点名指定在哪个节点上执行
+ * 未配置副本时只有主库一个节点，行为与单数据源完全一致。
+ */
+@Component
+@EnableConfigurationProperties(ReplicaProperties.class)
+public class ReplicaRouter {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRouter.class);
+
+    public static final String PRIMARY = "primary";
+
+    private final ReplicaProperties properties;
+    private final ReplicaNode primary;
+    private final List<ReplicaNode> replicas = new ArrayList<>();
+    private final Map<String, ReplicaNode> nodesByName = new LinkedHashMap<>();
+
+    public ReplicaRouter(DataSource dataSource, PlatformTransactionManager transactionManager,
+                         ReplicaProperties properties) {
+        this.properties = properties;
+        this.primary = new ReplicaNode(PRIMARY, true, dataSource, readOnly(transactionManager));
+        nodesByName.put(PRIMARY, primary);
+
+        for (ReplicaProperties.Node config : properties.nodes()) {
+            if (nodesByName.containsKey(config.name())) {
+                throw new IllegalStateException("Duplicate replica name: " + config.name());
+            }
+            DataSource replicaDataSource = createDataSource(config);
+            ReplicaNode node = new ReplicaNode(config.name(), false, replicaDataSource,
+                    readOnly(new DataSourceTransactionManager(replicaDataSource)));
+            replicas.add(node);
+            nodesByName.put(node.getName(), node);
+        }
+        if (!replicas.isEmpty()) {
+            log.info("Read replicas configured: {}", replicas.stream().map(ReplicaNode::getName).toList());
+        }
+    }
+
+    private static TransactionTemplate readOnly(PlatformTransactionManager transactionManager) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        return template;
+    }
+
+    private static DataSource createDataSource(ReplicaProperties.Node node) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("replica-" + node.name());
+        config.setJdbcUrl(node.url());
+        config.setUsername(node.username());
+        config.setPassword(node.password());
+        config.setMaximumPoolSize(node.maxPoolSize());
+        config.setReadOnly(true);
+        // 启动时副本不可用不应阻止应用启动，交给健康检查摘除
+        config.setInitializationFailTimeout(-1);
+        return new HikariDataSource(config);
+    }
+
+    /**
+     * 为一次查询选择节点：可用副本中未完成请求最少的一个
+     * 用完必须 close，建议配合 try-with-resources
+     */
+    public Lease acquire() {
+        ReplicaNode node = pick();
+        node.acquire();
+        return new Lease(node);
+    }
+
+    private ReplicaNode pick() {
+        if (replicas.isEmpty()) {
+            return primary;
+        }
+
+        // 从随机位置开始遍历，未完成请求数相同时不会总是落到第一个副本
+        int size = replicas.size();
+        int start = ThreadLocalRandom.current().nextInt(size);
+        ReplicaNode best = null;
+        for (int i = 0; i < size; i++) {
+            ReplicaNode node = replicas.get((start + i) % size);
+            if (node.isAvailable() && (best == null || node.getOutstanding() < best.getOutstanding())) {
+                best = node;
+            }
+        }
+        if (best != null) {
+            return best;
+        }
+
+        if (properties.fallbackToPrimary()) {
+            log.warn("No healthy read replica available, falling back to primary.");
+            return primary;
+        }
+        throw new McpException(McpErrorCode.DATABASE_ERROR, "No healthy read replica available. Please retry later.");
+    }
+
+    /**
+     * 查询执行中拿不到连接时上报，连续失败达到阈值即摘除，不必等下一次健康检查
+     */
+    public void reportFailure(ReplicaNode node, Exception e) {
+        if (!node.isPrimary() && node.recordFailure(properties.failureThreshold(), e.getMessage())) {
+            log.warn("Replica {} ejected: {}", node.getName(), e.getMessage());
+        }
+    }
+
+    /**
+     * 按名称查找节点
+     *
+     * @param name 节点名，为空时返回主库
+     */
+    public ReplicaNode node(String name) {
+        if (name == null || name.isBlank()) {
+            return primary;
+        }
+        ReplicaNode node = nodesByName.get(name);
+        if (node == null) {
+            throw new McpException(McpErrorCode.INVALID_PARAMS,
+                    "Unknown node '" + name + "'. Available nodes: " + nodesByName.keySet());
+        }
+        return node;
+    }
+
+    // 元数据查询的目标数据源，node 为空时使用主库
+    public DataSource dataSource(String node) {
+        return node(node).getDataSource();
+    }
+
+    @Scheduled(initialDelayString = "${mcp.replicas.health-interval:5000}",
+            fixedDelayString = "${mcp.replicas.health-interval:5000}")
+    public void checkHealth() {
+        long maxLagSeconds = properties.maxLag().toSeconds();
+        for (ReplicaNode node : replicas) {
+            boolean wasAvailable = node.isAvailable();
+            try (Connection conn = node.getDataSource().getConnection()) {
+                node.recordHealthy(queryLag(conn), maxLagSeconds);
+            } catch (SQLException e) {
+                node.recordFailure(properties.failureThreshold(), e.getMessage());
+            }
+
+            if (wasAvailable && !node.isAvailable()) {
+                log.warn("Replica {} ejected: {}", node.getName(), node.getEjectReason());
+            } else if (!wasAvailable && node.isAvailable()) {
+                log.info("Replica {} is healthy again, lag: {}s", node.getName(), node.getLagSeconds());
+            }
+        }
+    }
+
+    // 复制延迟 (秒)；复制已停止时为 null；未配置延迟查询或不是副本时视为 0
+    private Long queryLag(Connection conn) throws SQLException {
+        String lagQuery = properties.lagQuery();
+        if (lagQuery == null || lagQuery.isBlank()) {
+            return 0L;
+        }
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(lagQuery)) {
+            if (!rs.next()) {
+                return 0L;
+            }
+            int column = 1;
+            ResultSetMetaData metaData = rs.getMetaData();
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                String label = metaData.getColumnLabel(i);
+                if ("Seconds_Behind_Source".equalsIgnoreCase(label) || "Seconds_Behind_Master".equalsIgnoreCase(label)) {
+                    column = i;
+                    break;
+                }
+            }
+            long lag = rs.getLong(column);
+            return rs.wasNull() ? null : lag;
+        }
+    }
+
+    public List<Map<String, Object>> stats() {
+        List<Map<String, Object>> stats = new ArrayList<>();
+        for (ReplicaNode node : nodesByName.values()) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("name", node.getName());
+            entry.put("role", node.isPrimary() ? "primary" : "replica");
+            entry.put("available", node.isAvailable());
+            entry.put("outstanding", node.getOutstanding());
+            entry.put("lagSeconds", node.getLagSeconds());
+            entry.put("consecutiveFailures", node.getConsecutiveFailures());
+            if (node.getEjectReason() != null) {
+                entry.put("ejectReason", node.getEjectReason());
+            }
+            stats.add(entry);
+        }
+        return stats;
+    }
+
+    @PreDestroy
+    public void close() {
+        for (ReplicaNode node : replicas) {
+            if (node.getDataSource() instanceof HikariDataSource hikari) {
+                hikari.close();
+            }
+        }
+    }
+
+    /**
+     * 一次查询对节点的占用，close 时归还
+     */
+    public record Lease(ReplicaNode node) implements AutoCloseable {
+        @Override
+        public void close() {
+            node.release();
+        }
+    }
+}
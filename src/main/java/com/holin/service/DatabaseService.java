@@ -1,15 +1,24 @@
 package com.holin.service;
 
+import com.holin.admission.DatabaseBulkhead;
+import com.holin.admission.Lane;
+import com.holin.cache.SchemaCatalog;
 import com.holin.exception.McpErrorCode;
 import com.holin.exception.McpException;
+import com.holin.replica.ReplicaRouter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
 
 import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
@@ -26,13 +35,67 @@ public class DatabaseService {
     @Autowired
     private DataSource dataSource;
 
+    @Autowired
+    private SchemaCatalog schemaCatalog;
+
+    // 元数据查询可以指定在某个副本上执行
+    @Autowired
+    private ReplicaRouter replicaRouter;
+
+    // 实时元数据查询走独立的元数据通道，不会排在耗时的 SQL 查询后面
+    @Autowired
+    private DatabaseBulkhead bulkhead;
+
+    // 启动时预热表结构目录，失败时退化为每次直接查库
+    @Value("${mcp.schema.catalog.preload:true}")
+    private boolean preload;
+
+    // describe_tables 单次最多描述的表数量
+    @Value("${mcp.schema.describe-max-tables:50}")
+    private int describeMaxTables;
+
+    // table_list 按模式或分页列出时每页的表数量上限
+    @Value("${mcp.schema.list-max-tables:1000}")
+    private int listMaxTables = 1000;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUpCatalog() {
+        if (!schemaCatalog.isEnabled()) {
+            return;
+        }
+        try {
+            schemaCatalog.refresh();
+            if (preload) {
+                schemaCatalog.putColumns(loadAllColumns());
+            }
+            log.info("Schema catalog warmed up: {}", schemaCatalog.stats());
+        } catch (DataAccessException | McpException e) {
+            log.warn("Schema catalog warm-up failed, falling back to live metadata queries: {}", e.getMessage());
+        }
+    }
+
     // 获取所有表名
     public List<String> listTables() {
+        return listTables(null);
+    }
+
+    /**
+     * 获取所有表名
+     *
+     * @param node 在哪个节点上查询，为空时使用主库 (优先读表结构目录)
+     */
+    public List<String> listTables(String node) {
+        boolean onPrimary = node == null || node.isBlank();
+        if (onPrimary && schemaCatalog.isReady()) {
+            return schemaCatalog.tableNames();
+        }
+
         log.info("Fetching database table list...");
         List<String> tables = new ArrayList<>();
 
         // 使用 try-with-resources 自动关闭连接，防止连接泄漏
-        try (Connection conn = dataSource.getConnection()) {
+        try (DatabaseBulkhead.Permit ignored = bulkhead.enter(Lane.METADATA);
+             Connection conn = replicaRouter.dataSource(node).getConnection()) {
             DatabaseMetaData metaData = conn.getMetaData();
 
             // 这里的 catalog 通常对应 MySQL 的数据库名
@@ -57,35 +120,107 @@ public class DatabaseService {
         }
     }
 
-    // 获取表结构详细信息
+    /**
+     * 按名称模式分页列出表，可附带大小信息，一条 INFORMATION_SCHEMA.TABLES 查询完成
+     * 行数和大小是 InnoDB 的统计估算值 (MySQL 8 默认缓存 24 小时)，用于判断表的量级，不是精确计数
+     *
+     * @param pattern   表名的 LIKE 模式，为空时不过滤
+     * @param withStats 是否附带引擎、估算行数、数据和索引大小、表注释
+     * @param node      在哪个节点上查询，为空时使用主库
+     */
+    public Map<String, Object> listTables(String pattern, boolean withStats, Integer offset, Integer limit, String node) {
+        int from = offset != null ? Math.max(0, offset) : 0;
+        int size = limit != null && limit > 0 ? Math.min(limit, listMaxTables) : listMaxTables;
+        boolean hasPattern = pattern != null && !pattern.isBlank();
+
+        String sql = """
+                SELECT TABLE_NAME, ENGINE, TABLE_ROWS, DATA_LENGTH, INDEX_LENGTH, TABLE_COMMENT
+                FROM INFORMATION_SCHEMA.TABLES
+                WHERE TABLE_SCHEMA = DATABASE() AND TABLE_TYPE = 'BASE TABLE'%s
+                ORDER BY TABLE_NAME LIMIT ? OFFSET ?
+                """.formatted(hasPattern ? " AND TABLE_NAME LIKE ?" : "");
+        List<Object> params = new ArrayList<>();
+        if (hasPattern) {
+            params.add(pattern);
+        }
+        // 多取一行判断是否还有下一页，不再单独 COUNT
+        params.add(size + 1);
+        params.add(from);
+
+        try (DatabaseBulkhead.Permit ignored = bulkhead.enter(Lane.METADATA);
+             Connection conn = replicaRouter.dataSource(node).getConnection();
+             PreparedStatement ps = prepare(conn, sql, params);
+             ResultSet rs = ps.executeQuery()) {
+            List<Object> tables = new ArrayList<>();
+            boolean more = false;
+            while (rs.next()) {
+                if (tables.size() == size) {
+                    more = true;
+                    break;
+                }
+                tables.add(withStats ? toTableStats(rs) : rs.getString("TABLE_NAME"));
+            }
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("tables", tables);
+            result.put("offset", from);
+            if (more) {
+                result.put("nextOffset", from + tables.size());
+            }
+            log.info("Listed {} tables (pattern: {}, offset: {}, more: {})", tables.size(), pattern, from, more);
+            return result;
+
+        } catch (SQLException e) {
+            log.error("Failed to list tables with pattern: {}", pattern, e);
+            throw new McpException(McpErrorCode.DATABASE_ERROR,
+                    "Failed to retrieve table list from database: " + e.getMessage());
+        }
+    }
+
+    private static Map<String, Object> toTableStats(ResultSet rs) throws SQLException {
+        Map<String, Object> table = new LinkedHashMap<>();
+        table.put("name", rs.getString("TABLE_NAME"));
+        table.put("engine", rs.getString("ENGINE"));
+        table.put("estimatedRows", rs.getLong("TABLE_ROWS"));
+        table.put("dataBytes", rs.getLong("DATA_LENGTH"));
+        table.put("indexBytes", rs.getLong("INDEX_LENGTH"));
+        String comment = rs.getString("TABLE_COMMENT");
+        if (comment != null && !comment.isBlank()) {
+            table.put("comment", comment);
+        }
+        return table;
+    }
+
+    // 获取表结构详细信息，优先从表结构目录读取
     public List<Map<String, Object>> getTableSchema(String tableName) {
+        return getTableSchema(tableName, null);
+    }
+
+    /**
+     * 获取表结构详细信息
+     *
+     * @param node 在哪个节点上查询，为空时使用主库 (优先读表结构目录)
+     */
+    public List<Map<String, Object>> getTableSchema(String tableName, String node) {
+        if (node == null || node.isBlank()) {
+            return schemaCatalog.columns(tableName, t -> loadTableSchema(dataSource, t));
+        }
+        return loadTableSchema(replicaRouter.dataSource(node), tableName);
+    }
+
+    private List<Map<String, Object>> loadTableSchema(DataSource source, String tableName) {
         log.info("Fetching schema for table: {}", tableName);
         List<Map<String, Object>> columns = new ArrayList<>();
 
-        try (Connection conn = dataSource.getConnection()) {
+        try (DatabaseBulkhead.Permit ignored = bulkhead.enter(Lane.METADATA);
+             Connection conn = source.getConnection()) {
             DatabaseMetaData metaData = conn.getMetaData();
 
             // 获取列信息
             // 注意：MySQL 通常忽略 schemaPattern (第二个参数)，主要依赖 catalog (第一个参数) 或 tableName
             try (ResultSet rs = metaData.getColumns(conn.getCatalog(), null, tableName, null)) {
                 while (rs.next()) {
-                    // 使用 LinkedHashMap 保证 JSON 输出顺序：name -> type -> comment
-                    // 这样 Agent 阅读起来更顺畅
-                    Map<String, Object> col = new LinkedHashMap<>();
-
-                    col.put("name", rs.getString("COLUMN_NAME"));
-                    col.put("type", rs.getString("TYPE_NAME")); // 如 VARCHAR, BIGINT
-                    col.put("size", rs.getInt("COLUMN_SIZE"));
-
-                    // 转换 boolean 更直观
-                    boolean isNullable = rs.getInt("NULLABLE") == DatabaseMetaData.columnNullable;
-                    col.put("nullable", isNullable);
-
-                    // 获取注释 (前提：JDBC URL 已配置 remarks=true)
-                    String remarks = rs.getString("REMARKS");
-                    col.put("comment", (remarks != null && !remarks.isBlank()) ? remarks : "No description");
-
-                    columns.add(col);
+                    columns.add(toColumn(rs));
                 }
             }
 
@@ -106,4 +241,321 @@ public class DatabaseService {
                     "Database error while inspecting table '" + tableName + "': " + e.getMessage());
         }
     }
+
+    /**
+     * 表上的唯一索引 (含主键)，每个元素是一个索引按顺序包含的列名
+     * 用于判断查询的排序键能否唯一确定一行
+     */
+    public List<List<String>> uniqueKeys(String tableName) {
+        Map<String, List<String>> indexes = new LinkedHashMap<>();
+
+        try (DatabaseBulkhead.Permit ignored = bulkhead.enter(Lane.METADATA);
+             Connection conn = dataSource.getConnection();
+             ResultSet rs = conn.getMetaData().getIndexInfo(conn.getCatalog(), null, tableName, true, true)) {
+            while (rs.next()) {
+                String indexName = rs.getString("INDEX_NAME");
+                // 表统计信息行没有索引名
+                if (indexName == null || rs.getShort("TYPE") == DatabaseMetaData.tableIndexStatistic) {
+                    continue;
+                }
+                indexes.computeIfAbsent(indexName, k -> new ArrayList<>()).add(rs.getString("COLUMN_NAME"));
+            }
+            return new ArrayList<>(indexes.values());
+
+        } catch (SQLException e) {
+            log.error("Failed to fetch unique indexes for table: {}", tableName, e);
+            throw new McpException(McpErrorCode.DATABASE_ERROR,
+                    "Database error while inspecting indexes of '" + tableName + "': " + e.getMessage());
+        }
+    }
+
+    /**
+     * 表的主键列，按在主键中的顺序；没有主键时返回空列表
+     */
+    public List<String> primaryKey(String tableName) {
+        Map<Short, String> columns = new TreeMap<>();
+
+        try (DatabaseBulkhead.Permit ignored = bulkhead.enter(Lane.METADATA);
+             Connection conn = dataSource.getConnection();
+             ResultSet rs = conn.getMetaData().getPrimaryKeys(conn.getCatalog(), null, tableName)) {
+            while (rs.next()) {
+                columns.put(rs.getShort("KEY_SEQ"), rs.getString("COLUMN_NAME"));
+            }
+            return new ArrayList<>(columns.values());
+
+        } catch (SQLException e) {
+            log.error("Failed to fetch primary key for table: {}", tableName, e);
+            throw new McpException(McpErrorCode.DATABASE_ERROR,
+                    "Database error while inspecting primary key of '" + tableName + "': " + e.getMessage());
+        }
+    }
+
+    /**
+     * INFORMATION_SCHEMA 中的估算行数 (InnoDB 为采样统计值)，表不存在时返回 -1
+     */
+    public long estimatedRows(String tableName) {
+        try (DatabaseBulkhead.Permit ignored = bulkhead.enter(Lane.METADATA);
+             Connection conn = dataSource.getConnection();
+             PreparedStatement ps = prepare(conn, """
+                     SELECT TABLE_ROWS FROM INFORMATION_SCHEMA.TABLES
+                     WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?
+                     """, List.of(tableName));
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : -1;
+
+        } catch (SQLException e) {
+            log.error("Failed to fetch row estimate for table: {}", tableName, e);
+            throw new McpException(McpErrorCode.DATABASE_ERROR,
+                    "Database error while estimating rows of '" + tableName + "': " + e.getMessage());
+        }
+    }
+
+    // 一次元数据调用取回当前库所有表的列信息，用于预热
+    private Map<String, List<Map<String, Object>>> loadAllColumns() {
+        Map<String, List<Map<String, Object>>> columnsByTable = new HashMap<>();
+
+        try (Connection conn = dataSource.getConnection()) {
+            DatabaseMetaData metaData = conn.getMetaData();
+            try (ResultSet rs = metaData.getColumns(conn.getCatalog(), null, "%", null)) {
+                while (rs.next()) {
+                    columnsByTable.computeIfAbsent(rs.getString("TABLE_NAME"), t -> new ArrayList<>())
+                            .add(toColumn(rs));
+                }
+            }
+            return columnsByTable;
+
+        } catch (SQLException e) {
+            log.error("Failed to preload column meta data", e);
+            throw new McpException(McpErrorCode.DATABASE_ERROR,
+                    "Failed to preload columns from database: " + e.getMessage());
+        }
+    }
+
+    private static Map<String, Object> toColumn(ResultSet rs) throws SQLException {
+        // 使用 LinkedHashMap 保证 JSON 输出顺序：name -> type -> comment
+        // 这样 Agent 阅读起来更顺畅
+        Map<String, Object> col = new LinkedHashMap<>();
+
+        col.put("name", rs.getString("COLUMN_NAME"));
+        col.put("type", rs.getString("TYPE_NAME")); // 如 VARCHAR, BIGINT
+        col.put("size", rs.getInt("COLUMN_SIZE"));
+
+        // 转换 boolean 更直观
+        boolean isNullable = rs.getInt("NULLABLE") == DatabaseMetaData.columnNullable;
+        col.put("nullable", isNullable);
+
+        // 获取注释 (前提：JDBC URL 已配置 remarks=true)
+        String remarks = rs.getString("REMARKS");
+        col.put("comment", (remarks != null && !remarks.isBlank()) ? remarks : "No description");
+        return col;
+    }
+
+    /**
+     * 批量描述多张表：列、主键、索引、外键
+     * 所有表共用一个连接，每类信息各用一条基于 INFORMATION_SCHEMA 的集合查询取回
+     *
+     * @param node 在哪个节点上查询，为空时使用主库
+     */
+    public Map<String, Object> describeTables(List<String> tableNames, String pattern, String node) {
+        Set<String> requested = new LinkedHashSet<>();
+        if (tableNames != null) {
+            tableNames.stream().filter(t -> t != null && !t.isBlank()).forEach(requested::add);
+        }
+        boolean hasPattern = pattern != null && !pattern.isBlank();
+        if (requested.isEmpty() && !hasPattern) {
+            throw new McpException(McpErrorCode.INVALID_PARAMS, "Either 'tableNames' or 'pattern' must be provided.");
+        }
+        if (requested.size() > describeMaxTables) {
+            throw new McpException(McpErrorCode.INVALID_PARAMS,
+                    "Too many tables requested (" + requested.size() + "). At most " + describeMaxTables + " tables per call.");
+        }
+        log.info("Describing tables: {}, pattern: {}", requested, pattern);
+
+        try (DatabaseBulkhead.Permit ignored = bulkhead.enter(Lane.METADATA);
+             Connection conn = replicaRouter.dataSource(node).getConnection()) {
+            boolean truncated = false;
+            if (hasPattern) {
+                List<String> matched = queryStrings(conn, """
+                        SELECT TABLE_NAME FROM INFORMATION_SCHEMA.TABLES
+                        WHERE TABLE_SCHEMA = DATABASE() AND TABLE_TYPE = 'BASE TABLE' AND TABLE_NAME LIKE ?
+                        ORDER BY TABLE_NAME LIMIT ?
+                        """, pattern, describeMaxTables + 1);
+                for (String table : matched) {
+                    if (requested.size() >= describeMaxTables) {
+                        truncated = true;
+                        break;
+                    }
+                    requested.add(table);
+                }
+            }
+
+            Map<String, Map<String, Object>> described = new LinkedHashMap<>();
+            if (!requested.isEmpty()) {
+                List<String> tables = List.copyOf(requested);
+                loadDescribedColumns(conn, tables, described);
+                loadDescribedIndexes(conn, tables, described);
+                loadDescribedForeignKeys(conn, tables, described);
+            }
+
+            List<String> notFound = requested.stream().filter(t -> !described.containsKey(t)).toList();
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("tables", described.values());
+            if (!notFound.isEmpty()) {
+                result.put("notFound", notFound);
+            }
+            result.put("truncated", truncated);
+            log.info("Described {} tables. Not found: {}", described.size(), notFound);
+            return result;
+
+        } catch (SQLException e) {
+            log.error("Failed to describe tables: {}", requested, e);
+            throw new McpException(McpErrorCode.DATABASE_ERROR,
+                    "Database error while describing tables: " + e.getMessage());
+        }
+    }
+
+    private void loadDescribedColumns(Connection conn, List<String> tables,
+                                      Map<String, Map<String, Object>> described) throws SQLException {
+        String sql = """
+                SELECT TABLE_NAME, COLUMN_NAME, COLUMN_TYPE, IS_NULLABLE, COLUMN_DEFAULT, COLUMN_KEY, EXTRA, COLUMN_COMMENT
+                FROM INFORMATION_SCHEMA.COLUMNS
+                WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME IN (%s)
+                ORDER BY TABLE_NAME, ORDINAL_POSITION
+                """.formatted(placeholders(tables.size()));
+        try (PreparedStatement ps = prepare(conn, sql, tables); ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                Map<String, Object> table = described.computeIfAbsent(rs.getString("TABLE_NAME"), DatabaseService::newDescription);
+
+                Map<String, Object> col = new LinkedHashMap<>();
+                col.put("name", rs.getString("COLUMN_NAME"));
+                col.put("type", rs.getString("COLUMN_TYPE"));
+                col.put("nullable", "YES".equals(rs.getString("IS_NULLABLE")));
+                String defaultValue = rs.getString("COLUMN_DEFAULT");
+                if (defaultValue != null) {
+                    col.put("default", defaultValue);
+                }
+                String extra = rs.getString("EXTRA");
+                if (extra != null && !extra.isBlank()) {
+                    col.put("extra", extra);
+                }
+                String comment = rs.getString("COLUMN_COMMENT");
+                col.put("comment", (comment != null && !comment.isBlank()) ? comment : "No description");
+                listOf(table, "columns").add(col);
+            }
+        }
+    }
+
+    private void loadDescribedIndexes(Connection conn, List<String> tables,
+                                      Map<String, Map<String, Object>> described) throws SQLException {
+        String sql = """
+                SELECT TABLE_NAME, INDEX_NAME, NON_UNIQUE, COLUMN_NAME
+                FROM INFORMATION_SCHEMA.STATISTICS
+                WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME IN (%s)
+                ORDER BY TABLE_NAME, INDEX_NAME, SEQ_IN_INDEX
+                """.formatted(placeholders(tables.size()));
+        try (PreparedStatement ps = prepare(conn, sql, tables); ResultSet rs = ps.executeQuery()) {
+            Map<String, Object> currentIndex = null;
+            String currentKey = null;
+            while (rs.next()) {
+                Map<String, Object> table = described.get(rs.getString("TABLE_NAME"));
+                if (table == null) {
+                    continue;
+                }
+                String indexName = rs.getString("INDEX_NAME");
+                String column = rs.getString("COLUMN_NAME");
+
+                if ("PRIMARY".equals(indexName)) {
+                    listOf(table, "primaryKey").add(column);
+                    continue;
+                }
+
+                String key = rs.getString("TABLE_NAME") + "." + indexName;
+                if (!key.equals(currentKey)) {
+                    currentKey = key;
+                    currentIndex = new LinkedHashMap<>();
+                    currentIndex.put("name", indexName);
+                    currentIndex.put("unique", rs.getInt("NON_UNIQUE") == 0);
+                    currentIndex.put("columns", new ArrayList<>());
+                    listOf(table, "indexes").add(currentIndex);
+                }
+                listOf(currentIndex, "columns").add(column);
+            }
+        }
+    }
+
+    private void loadDescribedForeignKeys(Connection conn, List<String> tables,
+                                          Map<String, Map<String, Object>> described) throws SQLException {
+        String sql = """
+                SELECT TABLE_NAME, CONSTRAINT_NAME, COLUMN_NAME, REFERENCED_TABLE_NAME, REFERENCED_COLUMN_NAME
+                FROM INFORMATION_SCHEMA.KEY_COLUMN_USAGE
+                WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME IN (%s) AND REFERENCED_TABLE_NAME IS NOT NULL
+                ORDER BY TABLE_NAME, CONSTRAINT_NAME, ORDINAL_POSITION
+                """.formatted(placeholders(tables.size()));
+        try (PreparedStatement ps = prepare(conn, sql, tables); ResultSet rs = ps.executeQuery()) {
+            Map<String, Object> currentFk = null;
+            String currentKey = null;
+            while (rs.next()) {
+                Map<String, Object> table = described.get(rs.getString("TABLE_NAME"));
+                if (table == null) {
+                    continue;
+                }
+                String constraint = rs.getString("CONSTRAINT_NAME");
+                String key = rs.getString("TABLE_NAME") + "." + constraint;
+                if (!key.equals(currentKey)) {
+                    currentKey = key;
+                    currentFk = new LinkedHashMap<>();
+                    currentFk.put("name", constraint);
+                    currentFk.put("columns", new ArrayList<>());
+                    currentFk.put("referencedTable", rs.getString("REFERENCED_TABLE_NAME"));
+                    currentFk.put("referencedColumns", new ArrayList<>());
+                    listOf(table, "foreignKeys").add(currentFk);
+                }
+                listOf(currentFk, "columns").add(rs.getString("COLUMN_NAME"));
+                listOf(currentFk, "referencedColumns").add(rs.getString("REFERENCED_COLUMN_NAME"));
+            }
+        }
+    }
+
+    private static Map<String, Object> newDescription(String tableName) {
+        Map<String, Object> table = new LinkedHashMap<>();
+        table.put("name", tableName);
+        table.put("columns", new ArrayList<>());
+        table.put("primaryKey", new ArrayList<>());
+        table.put("indexes", new ArrayList<>());
+        table.put("foreignKeys", new ArrayList<>());
+        return table;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> listOf(Map<String, Object> map, String key) {
+        return (List<Object>) map.get(key);
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private static PreparedStatement prepare(Connection conn, String sql, List<?> params) throws SQLException {
+        PreparedStatement ps = conn.prepareStatement(sql);
+        try {
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
+            return ps;
+        } catch (SQLException e) {
+            ps.close();
+            throw e;
+        }
+    }
+
+    private static List<String> queryStrings(Connection conn, String sql, Object... params) throws SQLException {
+        List<String> values = new ArrayList<>();
+        try (PreparedStatement ps = prepare(conn, sql, List.of(params)); ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                values.add(rs.getString(1));
+            }
+        }
+        return values;
+    }
 }
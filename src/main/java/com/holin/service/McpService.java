@@ -1,17 +1,26 @@
 package com.holin.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.io.SerializedString;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
 import com.holin.dto.JsonRpcRequest;
 import com.holin.dto.JsonRpcResponse;
+import com.holin.dto.ToolCallResult;
 import com.holin.exception.McpErrorCode;
 import com.holin.exception.McpException;
+import com.holin.manager.InFlightRegistry;
+import com.holin.manager.InFlightRequest;
+import com.holin.metrics.McpMetrics;
+import com.holin.store.ResultStore;
 import com.holin.tool.McpTool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
@@ -28,11 +37,25 @@ public class McpService {
 
     private final Map<String, McpTool> toolRegistry;
     private final ObjectMapper objectMapper;
+    private final InFlightRegistry inFlightRegistry;
+    private final McpMetrics metrics;
+    private final ResultStore resultStore;
+
+    // 支持的协议版本，第一个为首选版本：2025-03-26 (Streamable HTTP) 和 2024-11-05 (HTTP+SSE)
+    public static final List<String> PROTOCOL_VERSIONS = List.of("2025-03-26", "2024-11-05");
+
+    // 工具集合在容器启动后就固定了，initialize / tools/list 的结果启动时序列化一次，之后只拷贝字节
+    private final Map<String, RawValue> initializeResults = new LinkedHashMap<>();
+    private final RawValue toolsListResult;
 
     // 构造器注入 List<McpTool>
     // Spring 会自动把所有实现了 McpTool 接口的 Bean 放到这个 List 里
-    public McpService(List<McpTool> tools, ObjectMapper objectMapper) {
+    public McpService(List<McpTool> tools, ObjectMapper objectMapper, InFlightRegistry inFlightRegistry,
+                      McpMetrics metrics, ResultStore resultStore) {
         this.objectMapper = objectMapper;
+        this.inFlightRegistry = inFlightRegistry;
+        this.metrics = metrics;
+        this.resultStore = resultStore;
 
         // 【核心修复】
         // 手动构建 Map，强制使用 tool.getName() (即 "query_database") 作为 Key
@@ -43,25 +66,54 @@ public class McpService {
                         Function.identity() // Value: 工具实例本身
                 ));
 
+        for (String version : PROTOCOL_VERSIONS) {
+            initializeResults.put(version, precompute(buildInitializeResult(version)));
+        }
+        this.toolsListResult = precompute(buildToolsListResult());
+
         log.info("Loaded {} tools: {}", toolRegistry.size(), toolRegistry.keySet());
     }
 
+    private RawValue precompute(Object result) {
+        try {
+            SerializedString json = new SerializedString(objectMapper.writeValueAsString(result));
+            // 提前生成并缓存 UTF-8 字节，后续写出时直接拷贝
+            json.asUnquotedUTF8();
+            return new RawValue(json);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to pre-serialize MCP result", e);
+        }
+    }
+
+
+    public JsonRpcResponse process(JsonRpcRequest request) {
+        return process(null, request);
+    }
 
     /**
      * 核心处理入口：统一异常捕获与分发
+     *
+     * @param sessionId 请求所属会话，用于定位要取消的请求
      */
-    public JsonRpcResponse process(JsonRpcRequest request) {
+    public JsonRpcResponse process(String sessionId, JsonRpcRequest request) {
 
         log.info("Processing request method: {}", request.method());
         try {
             return switch (request.method()) {
                 case "initialize" -> handleInitialize(request);
                 case "tools/list" -> handleListTools(request);
-                case "tools/call" -> handleToolCall(request);
+                case "tools/call" -> handleTrackedToolCall(sessionId, request);
+
+                // 结果存储中的大结果以资源的形式暴露
+                case "resources/list" -> handleListResources(sessionId, request);
+                case "resources/read" -> handleReadResource(sessionId, request);
 
                 // Notification: 握手确认，返回 null (Controller 会转为 204 No Content)
                 case "notifications/initialized" -> null;
 
+                // Notification: 客户端取消一个处理中的请求
+                case "notifications/cancelled" -> handleCancelled(sessionId, request);
+
                 // 未知方法：直接抛出异常，进入下方 catch 块
                 default ->
                         throw new McpException(McpErrorCode.METHOD_NOT_FOUND, "Method not found: " + request.method());
@@ -71,49 +123,120 @@ public class McpService {
             // 捕获业务层明确抛出的已知异常 (如: SQL语法错, 安全拦截, 表不存在)
             // 这种错误 Agent 通常可以自我修正
             log.warn("MCP Business Error [id={}]: Code={}, Msg={}", request.id(), e.getCode(), e.getMessage());
+            metrics.recordError(e.getErrorCode());
             return JsonRpcResponse.error(request.id(), e.getCode(), e.getMessage());
 
         } catch (Exception e) {
             // 捕获未知的系统级异常 (如: 空指针, OOM, 序列化失败)
             // 这种错误需要掩盖堆栈细节，返回 Internal Error
             log.error("MCP System Error [id={}]", request.id(), e);
+            metrics.recordError(McpErrorCode.INTERNAL_ERROR);
             return JsonRpcResponse.error(request.id(),
                     McpErrorCode.INTERNAL_ERROR.getCode(),
                     "Internal Server Error: " + e.getMessage());
         }
     }
 
+    // 客户端请求的版本受支持时原样返回，否则返回首选版本，由客户端决定是否继续
     private JsonRpcResponse handleInitialize(JsonRpcRequest request) {
-        log.info("Client initializing...");
+        String requested = request.params() != null ? request.params().path("protocolVersion").asText(null) : null;
+        log.info("Client initializing, protocol version: {}", requested);
+        RawValue result = initializeResults.get(requested);
+        return JsonRpcResponse.success(request.id(),
+                result != null ? result : initializeResults.get(PROTOCOL_VERSIONS.getFirst()));
+    }
+
+    private JsonRpcResponse handleListTools(JsonRpcRequest request) {
+        log.info("Listing tools...");
+        return JsonRpcResponse.success(request.id(), toolsListResult);
+    }
 
-        var capabilities = Map.of("tools", Map.of());
+    private Map<String, Object> buildInitializeResult(String protocolVersion) {
+        // 开启结果存储时才声明 resources 能力
+        var capabilities = resultStore.isEnabled()
+                ? Map.of("tools", Map.of(), "resources", Map.of())
+                : Map.of("tools", Map.of());
 
         var serverInfo = Map.of(
                 "name", "my-sql-mcp-server",
                 "version", "1.0.0"
         );
 
-        var result = Map.of(
-                "protocolVersion", "2024-11-05",
-                "capabilities", capabilities,
-                "serverInfo", serverInfo
-        );
-
-        return JsonRpcResponse.success(request.id(), result);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("protocolVersion", protocolVersion);
+        result.put("capabilities", capabilities);
+        result.put("serverInfo", serverInfo);
+        return result;
     }
 
-    private JsonRpcResponse handleListTools(JsonRpcRequest request) {
-        log.info("Listing tools...");
-
+    // 每个工具的 inputSchema 只生成一次
+    private Map<String, Object> buildToolsListResult() {
         List<Map<String, Object>> toolsList = toolRegistry.values().stream()
-                .map(tool -> Map.<String, Object>of(
-                        "name", tool.getName(),
-                        "description", tool.getDescription(),
-                        "inputSchema", tool.getInputSchema()
-                ))
+                .map(tool -> {
+                    Map<String, Object> descriptor = new LinkedHashMap<>();
+                    descriptor.put("name", tool.getName());
+                    descriptor.put("description", tool.getDescription());
+                    descriptor.put("inputSchema", tool.getInputSchema());
+                    return descriptor;
+                })
                 .toList();
 
-        return JsonRpcResponse.success(request.id(), Map.of("tools", toolsList));
+        return Map.of("tools", toolsList);
+    }
+
+    private JsonRpcResponse handleListResources(String sessionId, JsonRpcRequest request) {
+        return JsonRpcResponse.success(request.id(), Map.of("resources", resultStore.list(sessionId)));
+    }
+
+    /**
+     * 读取结果存储中的一个分片，内容以 JSON 文本返回
+     */
+    private JsonRpcResponse handleReadResource(String sessionId, JsonRpcRequest request) throws JsonProcessingException {
+        String uri = request.params() != null ? request.params().path("uri").asText(null) : null;
+        if (uri == null || uri.isBlank()) {
+            throw new McpException(McpErrorCode.INVALID_PARAMS, "Missing resource uri");
+        }
+        Map<String, Object> content = new LinkedHashMap<>();
+        content.put("uri", uri);
+        content.put("mimeType", "application/json");
+        content.put("text", objectMapper.writeValueAsString(resultStore.read(uri, sessionId)));
+        return JsonRpcResponse.success(request.id(), Map.of("contents", List.of(content)));
+    }
+
+    private JsonRpcResponse handleCancelled(String sessionId, JsonRpcRequest request) {
+        JsonNode params = request.params();
+        if (params == null || !params.hasNonNull("requestId")) {
+            return null;
+        }
+        String requestId = params.get("requestId").asText();
+        boolean running = inFlightRegistry.cancel(sessionId, requestId);
+        log.info("Cancel requested for [{}#{}], running: {}, reason: {}",
+                sessionId, requestId, running, params.path("reason").asText(""));
+        return null;
+    }
+
+    /**
+     * 登记处理中的工具调用，使其可以被 notifications/cancelled 中断
+     * 被取消的请求按协议不再返回任何响应
+     */
+    private JsonRpcResponse handleTrackedToolCall(String sessionId, JsonRpcRequest request) {
+        InFlightRequest inFlight = inFlightRegistry.register(sessionId, request.id());
+        try {
+            if (inFlight.isCancelled()) {
+                return null;
+            }
+            JsonRpcResponse response = handleToolCall(request);
+            return inFlight.isCancelled() ? null : response;
+
+        } catch (McpException e) {
+            if (inFlight.isCancelled()) {
+                log.info("Request [{}] cancelled: {}", request.id(), e.getMessage());
+                return null;
+            }
+            throw e;
+        } finally {
+            inFlightRegistry.unregister(inFlight);
+        }
     }
 
     /**
@@ -131,20 +254,10 @@ public class McpService {
             throw new McpException(McpErrorCode.TOOL_NOT_FOUND, "Tool not found: " + toolName);
         }
 
-        // 执行工具
-        Object resultData = tool.execute(arguments);
-
-        try {
-            String resultString = objectMapper.writeValueAsString(resultData);
-
-            var contentItem = Map.of(
-                    "type", "text",
-                    "text", resultString
-            );
-            return JsonRpcResponse.success(request.id(), Map.of("content", List.of(contentItem)));
+        // 执行工具，期间的各阶段指标都打上该工具名
+        Object resultData = metrics.recordTool(toolName, () -> tool.execute(arguments));
 
-        } catch (Exception e) {
-            throw new McpException(McpErrorCode.INTERNAL_ERROR, "Failed to serialize tool result: " + e.getMessage());
-        }
+        // 结果在写出响应时才序列化，直接写进最终报文，见 ToolCallResultSerializer
+        return JsonRpcResponse.success(request.id(), new ToolCallResult(toolName, resultData));
     }
-}
\ No newline at end of file
+}
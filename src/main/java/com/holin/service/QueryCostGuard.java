@@ -0,0 +1,158 @@
+package com.holin.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.holin.cache.PlanVerdictCache;
+import com.holin.exception.McpErrorCode;
+import com.holin.exception.McpException;
+import com.holin.manager.InFlightRegistry;
+import com.holin.manager.InFlightRequest;
+import com.holin.metrics.McpMetrics;
+import com.holin.sql.CostVerdict;
+import com.holin.sql.ParsedSql;
+import com.holin.sql.QueryPlan;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 执行前的查询代价检查 (默认关闭)
+ * 合法的 SELECT 也可能是一次笛卡尔积或对亿级大表的全表扫描。开启后，在执行查询的同一个连接上先跑一次
+ * EXPLAIN FORMAT=JSON，按估算扫描行数和访问方式给出结论：超过拒绝阈值直接拒绝，超过警告阈值则照常执行，
+ * 并在结果里附上警告和改写建议。结论按 SQL 指纹缓存，同一结构的查询不再重复 EXPLAIN。
+ */
+@Service
+public class QueryCostGuard {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryCostGuard.class);
+
+    @Autowired
+    private PlanVerdictCache verdictCache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private McpMetrics metrics;
+
+    @Value("${mcp.sql.cost-guard.enabled:false}")
+    private boolean enabled;
+
+    // 估算扫描行数超过该值时附加警告
+    @Value("${mcp.sql.cost-guard.warn-rows-examined:1000000}")
+    private long warnRowsExamined = 1_000_000;
+
+    // 估算扫描行数超过该值时拒绝执行，<= 0 表示只警告不拒绝
+    @Value("${mcp.sql.cost-guard.max-rows-examined:50000000}")
+    private long maxRowsExamined = 50_000_000;
+
+    // 全表 / 全索引扫描的表超过该行数时给出改写建议
+    @Value("${mcp.sql.cost-guard.full-scan-warn-rows:100000}")
+    private long fullScanWarnRows = 100_000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 同一结构的查询此前已被判定代价过高时直接拒绝，不再占用连接
+     */
+    public void rejectIfKnown(ParsedSql parsed) {
+        if (!enabled) {
+            return;
+        }
+        CostVerdict known = verdictCache.getIfPresent(parsed.fingerprint());
+        if (known != null && known.rejected()) {
+            throw new McpException(McpErrorCode.QUERY_TOO_EXPENSIVE, known.rejection());
+        }
+    }
+
+    /**
+     * 在即将执行查询的 Statement 上检查执行计划
+     *
+     * @return 检查结论，未开启或取不到执行计划时为 UNKNOWN
+     * @throws McpException QUERY_TOO_EXPENSIVE 估算代价超过拒绝阈值
+     */
+    public CostVerdict check(Statement stmt, ParsedSql parsed) {
+        if (!enabled) {
+            return CostVerdict.UNKNOWN;
+        }
+        CostVerdict verdict = verdictCache.getIfPresent(parsed.fingerprint());
+        if (verdict == null) {
+            verdict = explain(stmt, parsed);
+        }
+        if (verdict.rejected()) {
+            log.warn("Query rejected by cost guard (~{} rows examined). SQL: {}", verdict.rowsExamined(), parsed.executableSql());
+            throw new McpException(McpErrorCode.QUERY_TOO_EXPENSIVE, verdict.rejection());
+        }
+        return verdict;
+    }
+
+    private CostVerdict explain(Statement stmt, ParsedSql parsed) {
+        long start = System.nanoTime();
+        try (ResultSet rs = stmt.executeQuery("EXPLAIN FORMAT=JSON " + parsed.executableSql())) {
+            if (!rs.next()) {
+                return CostVerdict.UNKNOWN;
+            }
+            QueryPlan plan = QueryPlan.parse(objectMapper.readTree(rs.getString(1)));
+            CostVerdict verdict = evaluate(plan);
+            verdictCache.put(parsed.fingerprint(), verdict);
+            log.debug("Plan verdict for [{}]: {}", parsed.fingerprint(), verdict);
+            return verdict;
+
+        } catch (SQLException | JsonProcessingException e) {
+            // 取不到执行计划时放行，不影响查询本身；结论不缓存，下次再试
+            InFlightRequest inFlight = InFlightRegistry.current();
+            if (inFlight != null && inFlight.isCancelled()) {
+                throw new McpException(McpErrorCode.REQUEST_CANCELLED, "Query cancelled by the client.");
+            }
+            log.warn("EXPLAIN failed, skipping cost check: {}", e.getMessage());
+            return CostVerdict.UNKNOWN;
+
+        } finally {
+            metrics.recordPhase(McpMetrics.EXPLAIN, System.nanoTime() - start);
+        }
+    }
+
+    CostVerdict evaluate(QueryPlan plan) {
+        long rows = (long) plan.rowsExamined();
+        List<String> hints = new ArrayList<>();
+        for (QueryPlan.Scan scan : plan.scans()) {
+            if (scan.rows() >= fullScanWarnRows) {
+                hints.add(("ALL".equals(scan.accessType()) ? "Full table scan" : "Full index scan")
+                        + " on `" + scan.table() + "` (~" + (long) scan.rows() + " rows): filter on an indexed column.");
+            }
+        }
+        if (rows >= fullScanWarnRows) {
+            for (String table : plan.joinBuffered()) {
+                hints.add("`" + table + "` is joined without a usable index: join on an indexed column "
+                        + "and check that the join condition is not missing (cartesian product).");
+            }
+            if (plan.filesort()) {
+                hints.add("Sorting or grouping needs a filesort / temporary table: ORDER BY or GROUP BY an indexed column, "
+                        + "or narrow the range first.");
+            }
+        }
+
+        if (maxRowsExamined > 0 && rows > maxRowsExamined) {
+            String reason = "Query rejected: estimated " + rows + " rows examined exceeds the limit of " + maxRowsExamined + ". "
+                    + (hints.isEmpty() ? "Add selective filters and retry." : String.join(" ", hints));
+            return new CostVerdict(rows, List.copyOf(hints), reason);
+        }
+
+        List<String> warnings = new ArrayList<>();
+        if (rows >= warnRowsExamined) {
+            warnings.add("Estimated " + rows + " rows examined: add selective filters or aggregate over a narrower range.");
+        }
+        warnings.addAll(hints);
+        return new CostVerdict(rows, List.copyOf(warnings), null);
+    }
+}
@@ -1,7 +1,30 @@
 package com.holin.service;
 
+import com.holin.admission.DatabaseBulkhead;
+import com.holin.admission.Lane;
+import com.holin.cache.QueryResultCache;
+import com.holin.cache.SqlParseCache;
+import com.holin.codec.ResultCollector;
+import com.holin.codec.ResultFormat;
+import com.holin.dto.QueryResult;
+import com.holin.dto.SpilledResult;
 import com.holin.exception.McpErrorCode;
 import com.holin.exception.McpException;
+import com.holin.manager.CursorRegistry;
+import com.holin.manager.InFlightRegistry;
+import com.holin.manager.InFlightRequest;
+import com.holin.manager.QueryCursor;
+import com.holin.metrics.McpMetrics;
+import com.holin.metrics.QueryStatsAggregator;
+import com.holin.replica.ReplicaNode;
+import com.holin.replica.ReplicaRouter;
+import com.holin.sql.CostVerdict;
+import com.holin.sql.KeysetPagination;
+import com.holin.sql.LimitRewriter;
+import com.holin.sql.ParsedSql;
+import com.holin.store.ResultStore;
+import com.holin.store.SpillCollector;
+import com.holin.store.StoredResult;
 import net.sf.jsqlparser.JSQLParserException;
 import net.sf.jsqlparser.parser.CCJSqlParserUtil;
 import net.sf.jsqlparser.statement.Statement;
@@ -10,14 +33,26 @@ import net.sf.jsqlparser.statement.select.Select;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataAccessException;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.jdbc.BadSqlGrammarException;
-import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.StatementCallback;
+import org.springframework.jdbc.support.JdbcUtils;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.CannotCreateTransactionException;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
 import java.util.List;
-import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * @author holin
@@ -28,15 +63,106 @@ public class SqlService {
 
     private static final Logger log = LoggerFactory.getLogger(SqlService.class);
 
+    // 选择执行查询的节点 (主库或只读副本)，每个节点自带只读事务；命中结果缓存时不会选节点，也不会占用连接
     @Autowired
-    private JdbcTemplate jdbcTemplate;
+    private ReplicaRouter replicaRouter;
 
-    // sql安全校验
-    public void validate(String sql) {
+    // 取连接之前先拿查询通道的名额，数据库繁忙时在这里公平排队，而不是堵在连接池上
+    @Autowired
+    private DatabaseBulkhead bulkhead;
+
+    @Autowired
+    private SqlParseCache parseCache;
+
+    @Autowired
+    private QueryCostGuard costGuard;
+
+    @Autowired
+    private QueryResultCache resultCache;
+
+    @Autowired
+    private McpMetrics metrics;
+
+    // 按 SQL 指纹累计每类查询的耗时、行数和错误
+    @Autowired
+    private QueryStatsAggregator queryStats;
+
+    // 被截断的查询登记为游标，由 fetch_next 继续读取
+    @Autowired
+    private CursorRegistry cursors;
+
+    // 判断排序键是否唯一时读取表的索引和列信息
+    @Autowired
+    private DatabaseService databaseService;
+
+    // 大结果写入堆外的结果存储，通过 resources/read 分片读取
+    @Autowired
+    private ResultStore resultStore;
+
+    // 单次查询最多返回的行数
+    @Value("${mcp.sql.max-rows:1000}")
+    private int maxRows = 1000;
+
+    // 每批从服务端拉取的行数 (MySQL 需要 useCursorFetch=true 才会按批读取)
+    @Value("${mcp.sql.fetch-size:500}")
+    private int fetchSize = 500;
+
+    // 默认查询超时，请求可以单独指定，但不能超过上限
+    @Value("${mcp.sql.query-timeout:30s}")
+    private Duration queryTimeout = Duration.ofSeconds(30);
+
+    @Value("${mcp.sql.max-query-timeout:300s}")
+    private Duration maxQueryTimeout = Duration.ofSeconds(300);
+
+    // 是否同时通过 MAX_EXECUTION_TIME 优化器提示让 MySQL 服务端自行终止超时查询
+    @Value("${mcp.sql.max-execution-time-hint:true}")
+    private boolean maxExecutionTimeHint = true;
+
+    // 是否在执行前把行数上限改写进 SQL 的 LIMIT 子句
+    @Value("${mcp.sql.limit-rewrite:true}")
+    private boolean limitRewrite = true;
+
+    /**
+     * sql安全校验，返回解析后的 SELECT 语句 (未做 LIMIT 改写)
+     * 返回的是缓存中在线程间共享的语句，调用方只能读取，不能修改；需要改写时自行解析一份
+     */
+    public Select validate(String sql) {
+        return parse(sql).statement();
+    }
+
+    // 解析 + 校验 + LIMIT 改写，结论按 SQL 原文缓存
+    ParsedSql parse(String sql) {
         if (sql == null || sql.isBlank()) {
             throw new McpException(McpErrorCode.INVALID_PARAMS, "SQL content cannot be empty");
         }
 
+        ParsedSql parsed = parseCache != null ? parseCache.get(sql, this::doParse) : doParse(sql);
+        if (parsed.isRejected()) {
+            throw parsed.newError();
+        }
+        return parsed;
+    }
+
+    private ParsedSql doParse(String sql) {
+        try {
+            Select select = parseSelect(sql);
+
+            // 把上限 + 1 下推到服务端，多出的一行用于判断是否被截断；缓存的语句保持原样
+            String executableSql = limitRewrite ? LimitRewriter.render(select, maxRows + 1L) : null;
+            if (executableSql != null) {
+                log.debug("SQL rewritten with row limit: {}", executableSql);
+            } else {
+                executableSql = sql;
+            }
+            return ParsedSql.allowed(select, executableSql);
+
+        } catch (McpException e) {
+            // 校验不通过的结论同样缓存，重复的非法语句不再重新解析
+            return ParsedSql.rejected(e);
+        }
+    }
+
+    private Select parseSelect(String sql) {
         try {
             Statements statements = CCJSqlParserUtil.parseStatements(sql);
 
@@ -60,6 +186,7 @@ public class SqlService {
             }
 
             log.debug("SQL validation passed.");
+            return (Select) statement;
 
         } catch (JSQLParserException e) {
             log.error("SQL parsing failed: {}", e.getMessage());
@@ -69,26 +196,239 @@ public class SqlService {
     }
 
     // 执行sql
-    @Transactional(readOnly = true) // 标记为只读事务，优化数据库性能
-    public List<Map<String, Object>> executeQuery(String sql) {
+    public QueryResult executeQuery(String sql) {
+        return executeQuery(sql, null, ResultFormat.ROWS);
+    }
+
+    /**
+     * 执行sql
+     *
+     * @param timeoutSeconds 本次查询的超时时间，为 null 时使用默认值
+     * @param format         结果编码格式
+     */
+    public QueryResult executeQuery(String sql, Integer timeoutSeconds, ResultFormat format) {
         log.info("Processing SQL query request...");
 
-        validate(sql);
+        long validateStart = System.nanoTime();
+        ParsedSql parsed = parse(sql);
+        metrics.recordPhase(McpMetrics.VALIDATE, System.nanoTime() - validateStart);
+        int timeout = resolveTimeoutSeconds(timeoutSeconds);
+
+        // 结果被截断时登记游标，客户端通过 fetch_next 继续读取，不必用 OFFSET 重新执行
+        QueryCursor held = holdCursor(sql, parsed, format, timeout);
+
+        long start = System.nanoTime();
+        QueryResult result;
+        try {
+            result = held != null ? runHeld(held, format) : executeParsed(parsed, timeout, format);
+            queryStats.record(parsed.fingerprint(), parsed.normalizedSql(), System.nanoTime() - start, result.rowCount(), false);
+        } catch (RuntimeException e) {
+            queryStats.record(parsed.fingerprint(), parsed.normalizedSql(), System.nanoTime() - start, 0, true);
+            throw e;
+        }
+
+        if (held != null) {
+            return result.truncated() ? result.withCursor(cursors.open(held)) : result;
+        }
+        if (result.truncated() && result.next() != null && cursors.isEnabled()) {
+            QueryCursor cursor = keysetCursor(sql, parsed, format, timeout, result);
+            if (cursor != null) {
+                result = result.withCursor(cursors.open(cursor));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 不能键集分页的查询在执行时就打开保持游标：截断后直接从同一个结果集继续读取，
+     * 各页来自同一次执行，排序不确定时也不会重复或遗漏行，也不用 OFFSET 重新扫描已返回的行
+     * 以下情况不持有游标，结果被截断时也不返回 cursor：
+     * - 结果缓存可复用的查询：缓存的结果在调用方之间共享，而结果集只能属于一个调用方
+     * - 保持游标的名额已满
+     *
+     * @return 需要以保持游标方式执行时返回占用了名额的游标，否则为 null
+     */
+    private QueryCursor holdCursor(String sql, ParsedSql parsed, ResultFormat format, int timeout) {
+        if (!cursors.isEnabled() || (resultCache.isEnabled() && parsed.resultCacheable())
+                || KeysetPagination.analyze(parsed.statement()) != null) {
+            return null;
+        }
+        InFlightRequest inFlight = InFlightRegistry.current();
+        QueryCursor cursor = new QueryCursor(inFlight != null ? inFlight.getSessionId() : null, sql, parsed,
+                format, timeout);
+        return cursors.tryHold(cursor) ? cursor : null;
+    }
+
+    /**
+     * 按唯一键排序的查询使用键集方式读取后续的页
+     * 排序键不唯一时按键定位会重复或遗漏行，不返回游标
+     */
+    private QueryCursor keysetCursor(String sql, ParsedSql parsed, ResultFormat format, int timeout,
+                                     QueryResult result) {
+        KeysetPagination.Plan plan = KeysetPagination.analyze(parsed.statement());
+        int[] keyIndexes = plan != null ? plan.indexesIn(result.next().columns()) : null;
+        if (keyIndexes == null || !hasUniqueOrder(plan)) {
+            log.debug("Truncated result is not ordered by a unique key, no cursor returned. SQL: {}", sql);
+            return null;
+        }
+        InFlightRequest inFlight = InFlightRegistry.current();
+        QueryCursor cursor = new QueryCursor(inFlight != null ? inFlight.getSessionId() : null, sql, parsed,
+                format, timeout);
+        // 缓存的语句在线程间共享，游标改写自己解析的一份
+        cursor.plan(parseSelect(sql), plan, keyIndexes);
+        cursor.advance(result.rowCount(), result.next());
+        log.debug("Cursor uses keyset pagination on {}", plan.keys());
+        return cursor;
+    }
+
+    /**
+     * 执行sql，结果写入结果存储，只返回预览和资源 URI
+     * 行数上限使用结果存储的上限，而不是单次查询的 max-rows；堆上只保留预览行
+     *
+     * @param timeoutSeconds 本次查询的超时时间，为 null 时使用默认值
+     */
+    public SpilledResult executeSpilled(String sql, Integer timeoutSeconds) {
+        log.info("Processing SQL query request, spilling result to the result store...");
+
+        long validateStart = System.nanoTime();
+        ParsedSql parsed = parse(sql);
+        metrics.recordPhase(McpMetrics.VALIDATE, System.nanoTime() - validateStart);
+        costGuard.rejectIfKnown(parsed);
+        int timeout = resolveTimeoutSeconds(timeoutSeconds);
+
+        // 缓存的语句已按 max-rows 改写了 LIMIT，这里重新解析一份按结果存储的上限改写
+        int limit = resultStore.getMaxRows();
+        String spillSql = sql;
+        Select select = parseSelect(sql);
+        if (limitRewrite && LimitRewriter.apply(select, limit + 1L)) {
+            spillSql = select.toString();
+        }
+
+        InFlightRequest inFlight = InFlightRegistry.current();
+        SpillCollector collector = resultStore.newCollector(inFlight != null ? inFlight.getSessionId() : null);
+        long start = System.nanoTime();
+        try {
+            QueryResult preview;
+            try (DatabaseBulkhead.Permit ignored = bulkhead.enter(Lane.QUERY)) {
+                preview = runOnReplica(spillSql, null, parsed, limit, timeout, () -> collector);
+            }
+            StoredResult stored = collector.stored();
+            queryStats.record(parsed.fingerprint(), parsed.normalizedSql(), System.nanoTime() - start, stored.getRowCount(), false);
 
+            return new SpilledResult(spillSql, ResultStore.uri(stored.getId()), stored.getColumns(), stored.getRowCount(),
+                    preview.truncated(), stored.getBytes(), stored.getCreatedAt().plus(resultStore.getTtl()).toString(),
+                    preview.rows(), preview.warnings());
+
+        } catch (RuntimeException e) {
+            collector.discard();
+            queryStats.record(parsed.fingerprint(), parsed.normalizedSql(), System.nanoTime() - start, 0, true);
+            throw e;
+        }
+    }
+
+    private QueryResult executeParsed(ParsedSql parsed, int timeout, ResultFormat format) {
+        costGuard.rejectIfKnown(parsed);
+
+        if (resultCache.isEnabled() && parsed.resultCacheable()) {
+            // 同一条 SQL 的不同格式是不同的结果，缓存键需要带上格式
+            String key = format == ResultFormat.ROWS ? parsed.normalizedSql() : format.id() + ':' + parsed.normalizedSql();
+            // 等待相同查询的时间也计入本次查询的超时
+            return resultCache.get(key, parsed.tables(), Duration.ofSeconds(timeout),
+                    () -> runQuery(parsed, timeout, format));
+        }
+        return runQuery(parsed, timeout, format);
+    }
+
+    private int resolveTimeoutSeconds(Integer requested) {
+        long seconds = requested != null && requested > 0 ? requested : queryTimeout.toSeconds();
+        return (int) Math.max(1, Math.min(seconds, maxQueryTimeout.toSeconds()));
+    }
+
+    private QueryResult runQuery(ParsedSql parsed, int timeoutSeconds, ResultFormat format) {
+        try (DatabaseBulkhead.Permit ignored = bulkhead.enter(Lane.QUERY)) {
+            return runOnReplica(parsed, timeoutSeconds, format);
+        }
+    }
+
+    private QueryResult runOnReplica(ParsedSql parsed, int timeoutSeconds, ResultFormat format) {
+        return runOnReplica(parsed.executableSql(), null, parsed, maxRows, timeoutSeconds, format::newCollector);
+    }
+
+    /**
+     * 在路由选出的节点上执行查询
+     *
+     * @param params     不为 null 时以 PreparedStatement 执行并按顺序绑定参数
+     * @param guarded    需要做代价检查的语句，为 null 时跳过
+     * @param limit      最多返回的行数
+     * @param collectors 创建结果编码器
+     */
+    private QueryResult runOnReplica(String finalSql, Object[] params, ParsedSql guarded, int limit,
+                                     int timeoutSeconds, Supplier<ResultCollector> collectors) {
         long startTime = System.currentTimeMillis();
+        InFlightRequest inFlight = InFlightRegistry.current();
+        String statementSql = maxExecutionTimeHint ? withMaxExecutionTime(finalSql, timeoutSeconds * 1000L) : finalSql;
+        ReplicaRouter.Lease lease = replicaRouter.acquire();
+        ReplicaNode node = lease.node();
         try {
-            List<Map<String, Object>> result = jdbcTemplate.queryForList(sql);
+            // 多读一行用于判断是否被截断，读到上限后立即关闭游标，不再拉取剩余数据
+            int readLimit = limit + 1;
+            long acquireStart = System.nanoTime();
+            StatementCallback<QueryResult> callback = stmt -> {
+                // 从开启事务到拿到 Statement 的时间，主要是等待连接池
+                metrics.recordPhase(McpMetrics.ACQUIRE, System.nanoTime() - acquireStart);
+
+                stmt.setFetchSize(fetchSize);
+                // 让驱动/服务端在上限处停止返回数据，避免把整张表拉进内存
+                stmt.setMaxRows(readLimit);
+                stmt.setQueryTimeout(timeoutSeconds);
+
+                // 挂载到处理中请求上，客户端取消时可以直接 cancel 掉这条语句
+                if (inFlight != null) {
+                    inFlight.attach(stmt);
+                }
+                try {
+                    // 开启代价检查时先在同一个连接上看执行计划，代价过高直接拒绝
+                    CostVerdict verdict = guarded != null ? costGuard.check(stmt, guarded) : CostVerdict.UNKNOWN;
+
+                    long executeStart = System.nanoTime();
+                    try (ResultSet rs = params == null
+                            ? stmt.executeQuery(statementSql)
+                            : bind((PreparedStatement) stmt, params).executeQuery()) {
+                        long mappingStart = System.nanoTime();
+                        metrics.recordPhase(McpMetrics.EXECUTE, mappingStart - executeStart);
+
+                        ResultCollector collector = collectors.get();
+                        boolean truncated = collect(rs, collector, limit);
+                        metrics.recordPhase(McpMetrics.MAPPING, System.nanoTime() - mappingStart);
+                        QueryResult result = collector.finish(finalSql, truncated);
+                        // 记下截断处的下一行，作为游标下一页的起点
+                        if (truncated) {
+                            result = result.withNext(nextRow(rs));
+                        }
+                        return verdict.warnings().isEmpty() ? result : result.withWarnings(verdict.warnings());
+                    }
+                } finally {
+                    if (inFlight != null) {
+                        inFlight.detach();
+                    }
+                }
+            };
+            QueryResult result = node.getReadOnlyTx().execute(status -> params == null
+                    ? node.getJdbcTemplate().execute(callback)
+                    : node.getJdbcTemplate().execute(statementSql, (PreparedStatementCallback<QueryResult>) callback::doInStatement));
+            metrics.recordRows(result.rowCount(), result.truncated());
 
             long duration = System.currentTimeMillis() - startTime;
-            log.info("SQL executed successfully in {}ms. Rows returned: {}", duration, result.size());
+            log.info("SQL executed successfully on [{}] in {}ms. Rows returned: {}", node.getName(), duration, result.rowCount());
 
-            if (result.size() > 1000) {
-                log.warn("Query result too large ({} rows), truncating to 1000 rows. SQL: {}", result.size(), sql);
-                return result.subList(0, 1000);
+            if (result.truncated() && guarded != null) {
+                log.warn("Query result exceeds {} rows, truncated. SQL: {}", limit, finalSql);
             }
-
             return result;
 
+        } catch (McpException e) {
+            throw e;
+
         } catch (BadSqlGrammarException e) {
             // sql语法
             String syntaxMessage = e.getSQLException().getMessage();
@@ -96,7 +436,28 @@ public class SqlService {
             log.warn("SQL Syntax Error: {}", syntaxMessage);
             throw new McpException(McpErrorCode.DATABASE_ERROR, "Database Error: " + syntaxMessage);
 
+        } catch (CannotCreateTransactionException e) {
+            // 开启事务时拿不到连接，节点可能已经不可用
+            replicaRouter.reportFailure(node, e);
+            log.error("Failed to obtain a connection from [{}]", node.getName(), e);
+            throw new McpException(McpErrorCode.DATABASE_ERROR,
+                    "Database Error: " + e.getMostSpecificCause().getMessage());
+
         } catch (DataAccessException e) {
+            if (e instanceof CannotGetJdbcConnectionException) {
+                replicaRouter.reportFailure(node, e);
+            }
+
+            // 被客户端取消或执行超时
+            if (inFlight != null && inFlight.isCancelled()) {
+                throw new McpException(McpErrorCode.REQUEST_CANCELLED, "Query cancelled by the client.");
+            }
+            if (isTimeout(e)) {
+                log.warn("SQL query timed out after {}s. SQL: {}", timeoutSeconds, finalSql);
+                throw new McpException(McpErrorCode.QUERY_TIMEOUT,
+                        "Query exceeded the " + timeoutSeconds + "s time limit. Add filters or a smaller LIMIT and retry.");
+            }
+
             // 其他异常（如连接超时、数据库宕机）
             log.error("Database connectivity or execution error", e);
             throw new McpException(McpErrorCode.DATABASE_ERROR,
@@ -106,6 +467,294 @@ public class SqlService {
             // 未知异常（如 OOM、序列化失败等）
             log.error("Unexpected error during SQL execution", e);
             throw new McpException(McpErrorCode.INTERNAL_ERROR, "Internal Execution Error: " + e.getMessage());
+
+        } finally {
+            lease.close();
+        }
+    }
+
+    /**
+     * 以保持游标方式执行：读完第一页后不关闭结果集，连同连接和查询通道的名额一起交给游标，
+     * 之后的每一页都从同一个结果集继续读取；没有被截断或执行失败时立即释放
+     * 结果集在只读事务中读取，最多读取 held-max-rows 行
+     */
+    private QueryResult runHeld(QueryCursor cursor, ResultFormat format) {
+        ParsedSql parsed = cursor.getParsed();
+        String sql = cursor.getSql();
+        int timeoutSeconds = cursor.getTimeoutSeconds();
+        InFlightRequest inFlight = InFlightRegistry.current();
+        boolean kept = false;
+        try {
+            costGuard.rejectIfKnown(parsed);
+            cursor.holdPermit(bulkhead.enter(Lane.QUERY));
+
+            long startTime = System.currentTimeMillis();
+            long acquireStart = System.nanoTime();
+            ReplicaRouter.Lease lease = replicaRouter.acquire();
+            cursor.holdLease(lease);
+            ReplicaNode node = lease.node();
+            Connection connection;
+            try {
+                connection = node.getDataSource().getConnection();
+            } catch (SQLException e) {
+                replicaRouter.reportFailure(node, e);
+                log.error("Failed to obtain a connection from [{}]", node.getName(), e);
+                throw new McpException(McpErrorCode.DATABASE_ERROR, "Database Error: " + e.getMessage());
+            }
+            cursor.holdConnection(connection);
+            metrics.recordPhase(McpMetrics.ACQUIRE, System.nanoTime() - acquireStart);
+
+            // 在只读事务中读取，各页看到的是同一个快照
+            connection.setReadOnly(true);
+            connection.setAutoCommit(false);
+            java.sql.Statement stmt = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            cursor.holdStatement(stmt);
+            stmt.setFetchSize(fetchSize);
+            // 多读一行用于判断是否超出游标的上限
+            int heldMaxRows = cursors.getHeldMaxRows();
+            stmt.setMaxRows(heldMaxRows + 1);
+            stmt.setQueryTimeout(timeoutSeconds);
+
+            if (inFlight != null) {
+                inFlight.attach(stmt);
+            }
+            try {
+                CostVerdict verdict = costGuard.check(stmt, parsed);
+
+                long executeStart = System.nanoTime();
+                ResultSet rs = stmt.executeQuery(maxExecutionTimeHint ? withMaxExecutionTime(sql, timeoutSeconds * 1000L) : sql);
+                cursor.holdResultSet(rs, sql, heldMaxRows);
+                long mappingStart = System.nanoTime();
+                metrics.recordPhase(McpMetrics.EXECUTE, mappingStart - executeStart);
+
+                ResultCollector collector = format.newCollector();
+                boolean truncated = collect(rs, collector, maxRows);
+                metrics.recordPhase(McpMetrics.MAPPING, System.nanoTime() - mappingStart);
+                QueryResult result = collector.finish(sql, truncated);
+                metrics.recordRows(result.rowCount(), result.truncated());
+                log.info("SQL executed successfully on [{}] in {}ms. Rows returned: {}", node.getName(),
+                        System.currentTimeMillis() - startTime, result.rowCount());
+
+                if (truncated) {
+                    // 结果集已经停在下一页的第一行上
+                    cursor.setPositioned(true);
+                    cursor.advance(result.rowCount(), null);
+                    kept = true;
+                    log.info("Holding server-side cursor on [{}] after {} rows. SQL: {}", node.getName(), result.rowCount(), sql);
+                }
+                return verdict.warnings().isEmpty() ? result : result.withWarnings(verdict.warnings());
+            } finally {
+                if (inFlight != null) {
+                    inFlight.detach();
+                }
+            }
+
+        } catch (SQLException e) {
+            throw cursorError(e, inFlight, timeoutSeconds);
+        } finally {
+            if (!kept) {
+                cursors.discard(cursor);
+            }
+        }
+    }
+
+    /**
+     * 读取游标的下一页
+     *
+     * @param format 本页的结果格式，为 null 时沿用原查询的格式
+     */
+    public QueryResult fetchNext(String token, ResultFormat format) {
+        InFlightRequest inFlight = InFlightRegistry.current();
+        QueryCursor cursor = cursors.get(token, inFlight != null ? inFlight.getSessionId() : null);
+        if (!cursor.getLock().tryLock()) {
+            throw new McpException(McpErrorCode.INVALID_PARAMS,
+                    "The cursor is being read by another request. Wait for it to finish before fetching the next page.");
+        }
+        try {
+            if (cursor.isClosed()) {
+                throw new McpException(McpErrorCode.INVALID_PARAMS,
+                        "Unknown or expired cursor. Re-run query_database to start over.");
+            }
+            return fetchPage(token, cursor, format != null ? format : cursor.getFormat());
+        } finally {
+            cursor.getLock().unlock();
+        }
+    }
+
+    // 每页计入原查询指纹的统计；读完或出错后关闭游标
+    private QueryResult fetchPage(String token, QueryCursor cursor, ResultFormat format) {
+        ParsedSql parsed = cursor.getParsed();
+        long start = System.nanoTime();
+        try {
+            QueryResult page = cursor.isKeyset() ? keysetPage(cursor, format) : heldPage(cursor, format);
+            queryStats.record(parsed.fingerprint(), parsed.normalizedSql(), System.nanoTime() - start, page.rowCount(), false);
+
+            if (page.truncated()) {
+                return page.withCursor(token);
+            }
+            cursors.close(token);
+            return page;
+
+        } catch (RuntimeException e) {
+            queryStats.record(parsed.fingerprint(), parsed.normalizedSql(), System.nanoTime() - start, 0, true);
+            cursors.close(token);
+            throw e;
+        }
+    }
+
+    // 排序键是否非空且覆盖某个唯一索引，不能确定时按否处理
+    private boolean hasUniqueOrder(KeysetPagination.Plan plan) {
+        String table = plan.table().getName().replace("`", "");
+        try {
+            List<String> notNullColumns = databaseService.getTableSchema(table).stream()
+                    .filter(column -> Boolean.FALSE.equals(column.get("nullable")))
+                    .map(column -> (String) column.get("name"))
+                    .toList();
+            return KeysetPagination.isUnique(plan, databaseService.uniqueKeys(table), notNullColumns);
+        } catch (McpException e) {
+            log.debug("Keyset pagination unavailable for table {}: {}", table, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 键集方式读取一页：从下一页第一行的排序键开始重新查询，MySQL 在索引上直接定位起点，
+     * 无论翻到第几页，代价都和第一页相同
+     */
+    private QueryResult keysetPage(QueryCursor cursor, ResultFormat format) {
+        long remaining = cursor.remaining();
+        int pageRows = (int) Math.min(maxRows, remaining);
+        // 原语句 LIMIT 内剩余的行不超过一页时不再多读一行，结果不会被截断
+        String pageSql = cursor.keysetSql(remaining > maxRows ? maxRows + 1L : remaining);
+
+        QueryResult page;
+        try (DatabaseBulkhead.Permit ignored = bulkhead.enter(Lane.QUERY)) {
+            page = runOnReplica(pageSql, cursor.keysetParams(), null, pageRows, cursor.getTimeoutSeconds(),
+                    format::newCollector);
+        }
+        cursor.advance(page.rowCount(), page.next());
+        return page;
+    }
+
+    /**
+     * 保持游标方式读取一页：从持有的结果集继续往下读
+     */
+    private QueryResult heldPage(QueryCursor cursor, ResultFormat format) {
+        int pageRows = (int) Math.min(maxRows, cursor.remaining());
+        InFlightRequest inFlight = InFlightRegistry.current();
+        if (inFlight != null) {
+            inFlight.attach(cursor.getStatement());
+        }
+        try {
+            long mappingStart = System.nanoTime();
+            ResultSet rs = cursor.getResultSet();
+            ResultCollector collector = format.newCollector();
+            collector.start(columnNames(rs.getMetaData()));
+
+            // 上一页结束时已经读到了本页的第一行
+            boolean more = cursor.isPositioned() || rs.next();
+            while (more && collector.rowCount() < pageRows) {
+                collector.accept(rs);
+                more = rs.next();
+            }
+            cursor.setPositioned(more);
+            cursor.advance(collector.rowCount(), null);
+            metrics.recordPhase(McpMetrics.MAPPING, System.nanoTime() - mappingStart);
+
+            // 读到游标的上限时结束，不再返回 cursor
+            boolean capped = more && cursor.remaining() == 0;
+            QueryResult page = collector.finish(cursor.getHeldSql(), more && !capped);
+            metrics.recordRows(page.rowCount(), page.truncated());
+            if (capped) {
+                page = page.withWarnings(List.of("Stopped after " + cursors.getHeldMaxRows()
+                        + " rows, the limit for a held cursor. Add filters, or order by a primary or unique key "
+                        + "so the result can be paged by key."));
+            }
+            return page;
+
+        } catch (SQLException e) {
+            throw cursorError(e, inFlight, cursor.getTimeoutSeconds());
+        } finally {
+            if (inFlight != null) {
+                inFlight.detach();
+            }
+        }
+    }
+
+    private static McpException cursorError(SQLException e, InFlightRequest inFlight, int timeoutSeconds) {
+        if (inFlight != null && inFlight.isCancelled()) {
+            return new McpException(McpErrorCode.REQUEST_CANCELLED, "Query cancelled by the client.");
+        }
+        if (e instanceof SQLTimeoutException || e.getErrorCode() == MYSQL_QUERY_TIMEOUT) {
+            return new McpException(McpErrorCode.QUERY_TIMEOUT,
+                    "Query exceeded the " + timeoutSeconds + "s time limit. Add filters or a smaller LIMIT and retry.");
+        }
+        log.error("Failed to read from server-side cursor", e);
+        return new McpException(McpErrorCode.DATABASE_ERROR, "Database Error: " + e.getMessage());
+    }
+
+    // MySQL ER_QUERY_TIMEOUT: 超过 MAX_EXECUTION_TIME 被服务端中断
+    private static final int MYSQL_QUERY_TIMEOUT = 3024;
+
+    static boolean isTimeout(DataAccessException e) {
+        if (e instanceof QueryTimeoutException) {
+            return true;
+        }
+        Throwable cause = e.getMostSpecificCause();
+        return cause instanceof SQLTimeoutException
+                || (cause instanceof SQLException sqlException && sqlException.getErrorCode() == MYSQL_QUERY_TIMEOUT);
+    }
+
+    /**
+     * 在最外层 SELECT 关键字后插入 MAX_EXECUTION_TIME 提示，由 MySQL 服务端自行终止超时查询
+     * 其他数据库会把它当作普通注释忽略
+     */
+    static String withMaxExecutionTime(String sql, long millis) {
+        String trimmed = sql.stripLeading();
+        if (trimmed.length() > 6 && trimmed.regionMatches(true, 0, "SELECT", 0, 6)
+                && Character.isWhitespace(trimmed.charAt(6))) {
+            return "SELECT /*+ MAX_EXECUTION_TIME(" + millis + ") */" + trimmed.substring(6);
+        }
+        return sql;
+    }
+
+    /**
+     * 逐行把结果集交给编码器，最多读取 limit 行
+     *
+     * @return 上限之后是否还有数据 (即结果被截断)
+     */
+    private boolean collect(ResultSet rs, ResultCollector collector, int limit) throws SQLException {
+        // 列名只解析一次，所有行复用
+        collector.start(columnNames(rs.getMetaData()));
+        while (collector.rowCount() < limit && rs.next()) {
+            collector.accept(rs);
+        }
+        // 没读满说明结果集已经读完，不再对读完的结果集调用 next (部分驱动会抛异常)
+        return collector.rowCount() == limit && rs.next();
+    }
+
+    private static String[] columnNames(ResultSetMetaData metaData) throws SQLException {
+        String[] columns = new String[metaData.getColumnCount()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = JdbcUtils.lookupColumnName(metaData, i + 1);
+        }
+        return columns;
+    }
+
+    // 读取结果集当前所在的行
+    private static QueryResult.NextRow nextRow(ResultSet rs) throws SQLException {
+        String[] columns = columnNames(rs.getMetaData());
+        Object[] values = new Object[columns.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = rs.getObject(i + 1);
+        }
+        return new QueryResult.NextRow(columns, values);
+    }
+
+    private static PreparedStatement bind(PreparedStatement ps, Object[] params) throws SQLException {
+        for (int i = 0; i < params.length; i++) {
+            ps.setObject(i + 1, params[i]);
         }
+        return ps;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,417 @@
+package com.holin.service;
+
+import com.holin.admission.DatabaseBulkhead;
+import com.holin.admission.Lane;
+import com.holin.cache.SchemaCatalog;
+import com.holin.exception.McpErrorCode;
+import com.holin.exception.McpException;
+import com.holin.manager.InFlightRegistry;
+import com.holin.manager.InFlightRequest;
+import com.holin.profile.ColumnProfiler;
+import com.holin.replica.ReplicaNode;
+import com.holin.replica.ReplicaRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 表的统计画像：一次流式扫描为每列计算空值比例、最值、近似基数、高频值和数值直方图
+ * 代替对每列分别执行 COUNT(DISTINCT) / MIN / MAX / 空值计数的多次全表扫描
+ * 大表按采样读取：
+ * - 单列整数主键：在主键范围内均匀选取若干段，每段按主键顺序读取连续的行，只走主键索引的范围扫描
+ * - 其他表：WHERE RAND() < 比例，服务端仍需扫描全表，但只传输样本行
+ */
+@Service
+public class TableProfileService {
+
+    private static final Logger log = LoggerFactory.getLogger(TableProfileService.class);
+
+    // 主键范围采样分成多少段
+    private static final int SAMPLE_BLOCKS = 16;
+
+    // 高频值统计跟踪的计数器数，是返回个数的倍数，能更准确地找出真正的高频值
+    private static final int TOP_CAPACITY_FACTOR = 10;
+
+    @Autowired
+    private DatabaseService databaseService;
+
+    // 画像缓存在表结构目录中，表结构或数据变化时一起失效
+    @Autowired
+    private SchemaCatalog schemaCatalog;
+
+    @Autowired
+    private ReplicaRouter replicaRouter;
+
+    // 扫描和普通查询一样走查询通道
+    @Autowired
+    private DatabaseBulkhead bulkhead;
+
+    // 默认采样行数，估算行数不超过该值的表直接全表读取
+    @Value("${mcp.profile.sample-rows:100000}")
+    private int sampleRows = 100_000;
+
+    // 单次画像最多读取的行数，sampleRows = 0 (全表) 时也在这里停止
+    @Value("${mcp.profile.max-rows:5000000}")
+    private int maxRows = 5_000_000;
+
+    @Value("${mcp.profile.max-columns:100}")
+    private int maxColumns = 100;
+
+    @Value("${mcp.profile.top-k:10}")
+    private int topK = 10;
+
+    @Value("${mcp.profile.histogram-buckets:10}")
+    private int histogramBuckets = 10;
+
+    @Value("${mcp.profile.timeout:120s}")
+    private Duration timeout = Duration.ofSeconds(120);
+
+    @Value("${mcp.profile.cache-ttl:10m}")
+    private Duration cacheTtl = Duration.ofMinutes(10);
+
+    @Value("${mcp.sql.fetch-size:500}")
+    private int fetchSize = 500;
+
+    @Value("${mcp.sql.max-query-timeout:300s}")
+    private Duration maxQueryTimeout = Duration.ofSeconds(300);
+
+    private enum Sampling {
+        FULL, PK_RANGE, RANDOM;
+
+        String id() {
+            return name().toLowerCase(Locale.ROOT).replace('_', '-');
+        }
+    }
+
+    /**
+     * 计算表的统计画像
+     *
+     * @param columns    只统计这些列，为空时统计所有列
+     * @param sampleRows 采样行数，为空时使用默认值，0 表示全表读取 (最多 max-rows 行)
+     */
+    public Map<String, Object> profile(String tableName, List<String> columns, Integer sampleRows, Integer timeoutSeconds) {
+        if (tableName == null || tableName.isBlank()) {
+            throw new McpException(McpErrorCode.INVALID_PARAMS, "tableName is required.");
+        }
+        // 表名和列名都以表结构为准，拼进 SQL 的只有实际存在的标识符
+        List<String> selected = resolveColumns(tableName, columns);
+        int sample = sampleRows == null ? this.sampleRows : Math.max(0, Math.min(sampleRows, maxRows));
+        int timeout = (int) Math.max(1, Math.min(timeoutSeconds != null && timeoutSeconds > 0
+                ? timeoutSeconds : this.timeout.toSeconds(), maxQueryTimeout.toSeconds()));
+
+        String key = sample + ":" + String.join(",", selected);
+        return schemaCatalog.profile(tableName, key, cacheTtl, () -> scan(tableName, selected, sample, timeout));
+    }
+
+    private List<String> resolveColumns(String tableName, List<String> requested) {
+        Map<String, String> known = new LinkedHashMap<>();
+        for (Map<String, Object> column : databaseService.getTableSchema(tableName)) {
+            String name = (String) column.get("name");
+            known.put(name.toLowerCase(Locale.ROOT), name);
+        }
+
+        List<String> selected = new ArrayList<>();
+        if (requested == null || requested.isEmpty()) {
+            selected.addAll(known.values());
+        } else {
+            List<String> unknown = new ArrayList<>();
+            for (String column : requested) {
+                String name = column == null ? null : known.get(column.toLowerCase(Locale.ROOT));
+                if (name == null) {
+                    unknown.add(column);
+                } else if (!selected.contains(name)) {
+                    selected.add(name);
+                }
+            }
+            if (!unknown.isEmpty()) {
+                throw new McpException(McpErrorCode.INVALID_PARAMS,
+                        "Unknown columns in table '" + tableName + "': " + unknown + ". Use 'table_schema' to list the columns.");
+            }
+        }
+        if (selected.size() > maxColumns) {
+            throw new McpException(McpErrorCode.INVALID_PARAMS,
+                    "Table '" + tableName + "' has " + selected.size() + " columns; at most " + maxColumns
+                            + " can be profiled per call. Pass 'columns' to choose a subset.");
+        }
+        return selected;
+    }
+
+    private Map<String, Object> scan(String tableName, List<String> columns, int sample, int timeoutSeconds) {
+        long estimatedRows = databaseService.estimatedRows(tableName);
+        String rangeKey = null;
+        Sampling sampling = Sampling.FULL;
+        if (sample > 0 && estimatedRows > sample) {
+            rangeKey = integerPrimaryKey(tableName);
+            sampling = rangeKey != null ? Sampling.PK_RANGE : Sampling.RANDOM;
+        }
+
+        log.info("Profiling table '{}' ({} columns, ~{} rows, sampling: {})", tableName, columns.size(), estimatedRows, sampling.id());
+        long start = System.nanoTime();
+        InFlightRequest inFlight = InFlightRegistry.current();
+
+        try (DatabaseBulkhead.Permit ignored = bulkhead.enter(Lane.QUERY)) {
+            ReplicaRouter.Lease lease = replicaRouter.acquire();
+            ReplicaNode node = lease.node();
+            try {
+                Sampling mode = sampling;
+                String key = rangeKey;
+                Scan scan = new Scan(tableName, columns, timeoutSeconds, inFlight);
+                node.getReadOnlyTx().execute(status -> node.getJdbcTemplate().execute((ConnectionCallback<Void>) conn -> {
+                    switch (mode) {
+                        case FULL -> scan.full(conn, maxRows);
+                        case PK_RANGE -> scan.ranges(conn, key, sample);
+                        case RANDOM -> scan.random(conn, sample, estimatedRows);
+                    }
+                    return null;
+                }));
+
+                Map<String, Object> result = new LinkedHashMap<>();
+                result.put("table", tableName);
+                result.put("sampling", mode.id());
+                result.put("estimatedRows", estimatedRows);
+                result.put("scannedRows", scan.rows);
+                if (scan.truncated) {
+                    result.put("truncated", true);
+                }
+                result.put("columns", scan.profiles());
+                result.put("elapsedMs", (System.nanoTime() - start) / 1_000_000);
+                result.put("profiledAt", Instant.now().toString());
+                log.info("Profiled table '{}' on [{}]: {} rows in {}ms", tableName, node.getName(), scan.rows, result.get("elapsedMs"));
+                return result;
+
+            } catch (CannotCreateTransactionException e) {
+                replicaRouter.reportFailure(node, e);
+                throw new McpException(McpErrorCode.DATABASE_ERROR, "Database Error: " + e.getMostSpecificCause().getMessage());
+
+            } catch (DataAccessException e) {
+                if (e instanceof CannotGetJdbcConnectionException) {
+                    replicaRouter.reportFailure(node, e);
+                }
+                if (inFlight != null && inFlight.isCancelled()) {
+                    throw new McpException(McpErrorCode.REQUEST_CANCELLED, "Profiling cancelled by the client.");
+                }
+                if (SqlService.isTimeout(e)) {
+                    throw new McpException(McpErrorCode.QUERY_TIMEOUT, "Profiling '" + tableName + "' exceeded the "
+                            + timeoutSeconds + "s time limit. Use a smaller sampleRows or fewer columns.");
+                }
+                log.error("Failed to profile table: {}", tableName, e);
+                throw new McpException(McpErrorCode.DATABASE_ERROR, "Database Error: " + e.getMostSpecificCause().getMessage());
+
+            } finally {
+                lease.close();
+            }
+        }
+    }
+
+    // 单列整数主键的列名，否则为 null
+    private String integerPrimaryKey(String tableName) {
+        List<String> primaryKey = databaseService.primaryKey(tableName);
+        if (primaryKey.size() != 1) {
+            return null;
+        }
+        String column = primaryKey.getFirst();
+        for (Map<String, Object> definition : databaseService.getTableSchema(tableName)) {
+            if (column.equals(definition.get("name"))) {
+                String type = String.valueOf(definition.get("type")).toUpperCase(Locale.ROOT);
+                // BIGINT UNSIGNED 超出 long 的范围，不参与范围计算
+                boolean integer = type.contains("INT") && !(type.startsWith("BIGINT") && type.contains("UNSIGNED"));
+                return integer ? column : null;
+            }
+        }
+        return null;
+    }
+
+    static String quote(String identifier) {
+        return "`" + identifier.replace("`", "``") + "`";
+    }
+
+    /**
+     * 一次画像的扫描状态，列的累加器在第一条语句返回结果时按元数据创建
+     */
+    private final class Scan {
+
+        private final String table;
+        private final List<String> columns;
+        private final String selectList;
+        private final long deadline;
+        private final InFlightRequest inFlight;
+
+        private ColumnProfiler[] profilers;
+        private long rows;
+        private boolean truncated;
+
+        private Scan(String table, List<String> columns, int timeoutSeconds, InFlightRequest inFlight) {
+            this.table = quote(table);
+            this.columns = columns;
+            this.selectList = String.join(", ", columns.stream().map(TableProfileService::quote).toList());
+            this.deadline = System.nanoTime() + Duration.ofSeconds(timeoutSeconds).toNanos();
+            this.inFlight = inFlight;
+        }
+
+        // 估算行数可能偏小，全表读取同样以 max-rows 为上限，多读一行判断是否达到上限
+        void full(Connection conn, int limit) throws SQLException {
+            String sql = "SELECT " + selectList + " FROM " + table;
+            try (PreparedStatement ps = prepare(conn, sql, limit + 1)) {
+                read(ps, limit, -1);
+            }
+        }
+
+        void random(Connection conn, int sample, long estimatedRows) throws SQLException {
+            // 比例略放大一些，保证样本行数大致够用，再由 LIMIT 截住
+            double fraction = Math.min(1.0, sample * 1.1 / estimatedRows);
+            String sql = "SELECT " + selectList + " FROM " + table + " WHERE RAND() < ? LIMIT ?";
+            try (PreparedStatement ps = prepare(conn, sql, sample)) {
+                ps.setDouble(1, fraction);
+                ps.setInt(2, sample);
+                read(ps, sample, -1);
+            }
+        }
+
+        /**
+         * 在 [MIN(pk), MAX(pk)] 内均匀分成若干段，每段随机选一个起点，按主键顺序读取连续的行
+         * 后一段的起点不早于前一段读到的最后一个主键，各段不会重复读取同一行
+         */
+        void ranges(Connection conn, String primaryKey, int sample) throws SQLException {
+            String pk = quote(primaryKey);
+            long min;
+            long max;
+            try (PreparedStatement ps = prepare(conn, "SELECT MIN(" + pk + "), MAX(" + pk + ") FROM " + table, 1);
+                 ResultSet rs = execute(ps)) {
+                rs.next();
+                min = rs.getLong(1);
+                if (rs.wasNull()) {
+                    return;
+                }
+                max = rs.getLong(2);
+            } finally {
+                detach();
+            }
+
+            int perBlock = (sample + SAMPLE_BLOCKS - 1) / SAMPLE_BLOCKS;
+            double span = ((double) max - min + 1) / SAMPLE_BLOCKS;
+            String sql = "SELECT " + selectList + ", " + pk + " FROM " + table
+                    + " WHERE " + pk + " >= ? ORDER BY " + pk + " LIMIT ?";
+            int pkColumn = columns.size() + 1;
+
+            long next = min;
+            try (PreparedStatement ps = prepare(conn, sql, perBlock)) {
+                for (int block = 0; block < SAMPLE_BLOCKS && next <= max; block++) {
+                    double jitter = ThreadLocalRandom.current().nextDouble() * Math.max(0, span - perBlock);
+                    long from = Math.max(next, min + (long) (block * span + jitter));
+                    ps.setLong(1, from);
+                    ps.setInt(2, perBlock);
+                    long last = read(ps, perBlock, pkColumn);
+                    if (last == Long.MIN_VALUE || last == Long.MAX_VALUE) {
+                        break;
+                    }
+                    next = last + 1;
+                }
+            }
+        }
+
+        private PreparedStatement prepare(Connection conn, String sql, int maxRows) throws SQLException {
+            PreparedStatement ps = conn.prepareStatement(SqlService.withMaxExecutionTime(sql, remainingSeconds() * 1000L));
+            ps.setFetchSize(fetchSize);
+            ps.setMaxRows(maxRows);
+            return ps;
+        }
+
+        /**
+         * 执行并把每一行交给各列的累加器
+         *
+         * @param pkColumn 不为 -1 时返回读到的最后一行在该列的值，没有读到行时返回 Long.MIN_VALUE
+         */
+        private long read(PreparedStatement ps, int limit, int pkColumn) throws SQLException {
+            long last = Long.MIN_VALUE;
+            try (ResultSet rs = execute(ps)) {
+                if (profilers == null) {
+                    profilers = newProfilers(rs.getMetaData());
+                }
+                int read = 0;
+                while (read < limit && rs.next()) {
+                    for (int i = 0; i < profilers.length; i++) {
+                        profilers[i].accept(rs, i + 1);
+                    }
+                    if (pkColumn > 0) {
+                        last = rs.getLong(pkColumn);
+                    }
+                    read++;
+                }
+                rows += read;
+                if (pkColumn < 0 && read == limit && rs.next()) {
+                    truncated = true;
+                }
+            } finally {
+                detach();
+            }
+            return last;
+        }
+
+        /**
+         * 按剩余时间设置超时后执行，并挂载到处理中请求上，客户端取消时可以直接 cancel 掉；调用方结束后需要 detach
+         */
+        private ResultSet execute(PreparedStatement ps) throws SQLException {
+            if (inFlight != null && inFlight.isCancelled()) {
+                throw new McpException(McpErrorCode.REQUEST_CANCELLED, "Profiling cancelled by the client.");
+            }
+            ps.setQueryTimeout(remainingSeconds());
+            if (inFlight != null) {
+                inFlight.attach(ps);
+            }
+            return ps.executeQuery();
+        }
+
+        private void detach() {
+            if (inFlight != null) {
+                inFlight.detach();
+            }
+        }
+
+        private ColumnProfiler[] newProfilers(ResultSetMetaData metaData) throws SQLException {
+            ColumnProfiler[] created = new ColumnProfiler[columns.size()];
+            for (int i = 0; i < created.length; i++) {
+                created[i] = ColumnProfiler.of(metaData, i + 1, topK * TOP_CAPACITY_FACTOR);
+            }
+            return created;
+        }
+
+        private int remainingSeconds() {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                throw new McpException(McpErrorCode.QUERY_TIMEOUT,
+                        "Profiling exceeded the time limit. Use a smaller sampleRows or fewer columns.");
+            }
+            return (int) Math.max(1, Duration.ofNanos(remaining).toSeconds());
+        }
+
+        List<Map<String, Object>> profiles() {
+            List<Map<String, Object>> result = new ArrayList<>();
+            if (profilers != null) {
+                for (ColumnProfiler profiler : profilers) {
+                    result.add(profiler.profile(topK, histogramBuckets));
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.holin.sql;
+
+import java.util.List;
+
+/**
+ * 执行计划检查的结论，按 SQL 指纹缓存
+ *
+ * @param rowsExamined 估算扫描行数
+ * @param warnings     超过警告阈值时给出的提示与改写建议
+ * @param rejection    超过拒绝阈值时的拒绝原因，放行时为 null
+ */
+public record CostVerdict(long rowsExamined, List<String> warnings, String rejection) {
+
+    // 无法取得执行计划 (非 MySQL、EXPLAIN 失败) 时放行，不缓存
+    public static final CostVerdict UNKNOWN = new CostVerdict(-1, List.of(), null);
+
+    public boolean rejected() {
+        return rejection != null;
+    }
+}
@@ -0,0 +1,197 @@
+package com.holin.sql;
+
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.expression.AnalyticExpression;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+import net.sf.jsqlparser.statement.select.AllColumns;
+import net.sf.jsqlparser.statement.select.OrderByElement;
+import net.sf.jsqlparser.statement.select.PlainSelect;
+import net.sf.jsqlparser.statement.select.Select;
+import net.sf.jsqlparser.statement.select.SelectItem;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 键集分页 (keyset pagination)
+ * 对按唯一键排序的查询，下一页改写为 WHERE (k1, k2) >= (?, ?)，MySQL 直接在索引上定位起点，
+ * 翻到多深每页的代价都和第一页相同，而不是像 OFFSET 那样重新扫描前面所有的行
+ */
+public final class KeysetPagination {
+
+    private KeysetPagination() {
+    }
+
+    /**
+     * 排序键
+     *
+     * @param table      查询的表
+     * @param keys       ORDER BY 中的列，用于改写 WHERE
+     * @param labels     每个排序键在结果集中的列名，用于读取下一页起点的值
+     * @param descending 所有排序键是否都是降序
+     */
+    public record Plan(Table table, List<Column> keys, List<String> labels, boolean descending) {
+
+        // 排序键的列名 (小写，不含引号)
+        public Set<String> columnNames() {
+            return keys.stream().map(key -> unquote(key.getColumnName())).collect(Collectors.toSet());
+        }
+
+        /**
+         * 排序键在结果列中的位置
+         *
+         * @return 某个排序键不在结果中时返回 null
+         */
+        public int[] indexesIn(String[] columns) {
+            int[] indexes = new int[labels.size()];
+            for (int i = 0; i < labels.size(); i++) {
+                indexes[i] = -1;
+                for (int c = 0; c < columns.length; c++) {
+                    if (labels.get(i).equalsIgnoreCase(columns[c])) {
+                        indexes[i] = c;
+                        break;
+                    }
+                }
+                if (indexes[i] < 0) {
+                    return null;
+                }
+            }
+            return indexes;
+        }
+    }
+
+    /**
+     * 从语法上判断能否使用键集分页：单表查询，ORDER BY 全部是同方向的普通列，且这些列都出现在结果中
+     * 不检查排序键是否唯一，这需要表的索引信息，见 {@link #isUnique}
+     *
+     * @return 不满足条件时返回 null
+     */
+    public static Plan analyze(Select select) {
+        if (!(select instanceof PlainSelect plain)
+                || !(plain.getFromItem() instanceof Table table)
+                || table.getSchemaName() != null
+                || (plain.getJoins() != null && !plain.getJoins().isEmpty())
+                || plain.getDistinct() != null
+                || plain.getGroupBy() != null
+                || plain.getHaving() != null
+                || plain.getOrderByElements() == null || plain.getOrderByElements().isEmpty()
+                || select.getFetch() != null) {
+            return null;
+        }
+
+        // 窗口函数的结果依赖前面的行，加上起点条件后会变化
+        boolean wildcard = false;
+        for (SelectItem<?> item : plain.getSelectItems()) {
+            if (item.getExpression() instanceof AnalyticExpression) {
+                return null;
+            }
+            wildcard |= item.getExpression() instanceof AllColumns;
+        }
+
+        List<Column> keys = new ArrayList<>();
+        List<String> labels = new ArrayList<>();
+        Boolean ascending = null;
+        for (OrderByElement element : plain.getOrderByElements()) {
+            if (!(element.getExpression() instanceof Column column)
+                    || element.getNullOrdering() != null
+                    || (ascending != null && ascending != element.isAsc())) {
+                return null;
+            }
+            ascending = element.isAsc();
+
+            SelectItem<?> item = selectItemFor(plain, column);
+            if (item != null) {
+                // ORDER BY 引用的可能是列的别名，WHERE 中要换回原来的列
+                keys.add((Column) item.getExpression());
+                labels.add(item.getAlias() != null ? unquote(item.getAlias().getName()) : unquote(column.getColumnName()));
+            } else if (wildcard) {
+                keys.add(column);
+                labels.add(unquote(column.getColumnName()));
+            } else {
+                return null;
+            }
+        }
+        return new Plan(table, keys, labels, !ascending);
+    }
+
+    // 找到 ORDER BY 列对应的查询列：同名的列，或者以它为别名的列
+    // 以表达式别名排序时 (如 ORDER BY total，total 为 a + b) 无法改写 WHERE，调用方会放弃键集分页
+    private static SelectItem<?> selectItemFor(PlainSelect plain, Column column) {
+        String name = unquote(column.getColumnName());
+        SelectItem<?> match = null;
+        for (SelectItem<?> item : plain.getSelectItems()) {
+            boolean aliased = item.getAlias() != null && unquote(item.getAlias().getName()).equals(name)
+                    && column.getTable() == null;
+            if (!(item.getExpression() instanceof Column selected)) {
+                if (aliased) {
+                    return null;
+                }
+                continue;
+            }
+            if (match == null && (aliased || unquote(selected.getColumnName()).equals(name))) {
+                match = item;
+            }
+        }
+        return match;
+    }
+
+    /**
+     * 排序键能否唯一确定一行：所有排序键都非空，且覆盖某个唯一索引 (含主键) 的全部列
+     * 允许 NULL 的列在行比较中结果为 NULL，会漏掉行，因此不能作为排序键
+     *
+     * @param uniqueKeys     表上每个唯一索引的列名
+     * @param notNullColumns 表上所有 NOT NULL 的列名
+     */
+    public static boolean isUnique(Plan plan, Collection<? extends Collection<String>> uniqueKeys,
+                                   Collection<String> notNullColumns) {
+        Set<String> keyColumns = plan.columnNames();
+        Set<String> notNull = notNullColumns.stream().map(KeysetPagination::unquote).collect(Collectors.toSet());
+        if (!notNull.containsAll(keyColumns)) {
+            return false;
+        }
+        return uniqueKeys.stream().anyMatch(index -> !index.isEmpty()
+                && index.stream().map(KeysetPagination::unquote).allMatch(keyColumns::contains));
+    }
+
+    /**
+     * 把语句改写为从某一行 (含) 开始读取：在 WHERE 上追加 (k1, k2) >= (?, ?)，降序时为 <=
+     * 同时去掉原有的 OFFSET，行数由调用方每页单独设置
+     *
+     * @param select 语句副本，会被直接修改
+     */
+    public static void rewrite(Select select, Plan plan) {
+        PlainSelect plain = (PlainSelect) select;
+        String keys = plan.keys().stream().map(Column::getFullyQualifiedName).collect(Collectors.joining(", "));
+        String params = String.join(", ", Collections.nCopies(plan.keys().size(), "?"));
+        String operator = plan.descending() ? " <= " : " >= ";
+        String predicate = plan.keys().size() == 1
+                ? keys + operator + params
+                : "(" + keys + ")" + operator + "(" + params + ")";
+
+        Expression where = plain.getWhere();
+        try {
+            plain.setWhere(CCJSqlParserUtil.parseCondExpression(
+                    where == null ? predicate : "(" + where + ") AND " + predicate));
+        } catch (JSQLParserException e) {
+            throw new IllegalStateException("Failed to build keyset predicate: " + predicate, e);
+        }
+        LimitRewriter.window(select, 0, -1);
+    }
+
+    static String unquote(String identifier) {
+        String name = identifier;
+        if (name.length() >= 2 && (name.startsWith("`") && name.endsWith("`")
+                || name.startsWith("\"") && name.endsWith("\""))) {
+            name = name.substring(1, name.length() - 1);
+        }
+        return name.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,103 @@
+package com.holin.sql;
+
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.LongValue;
+import net.sf.jsqlparser.statement.select.Limit;
+import net.sf.jsqlparser.statement.select.Offset;
+import net.sf.jsqlparser.statement.select.Select;
+import net.sf.jsqlparser.statement.select.Values;
+
+/**
+ * LIMIT 改写器
+ * 在执行前把行数上限下推到最外层查询，让 MySQL 在服务端提前停止扫描
+ */
+public final class LimitRewriter {
+
+    private LimitRewriter() {
+    }
+
+    /**
+     * 为最外层查询 (PlainSelect / SetOperationList / 括号查询) 补充 LIMIT，
+     * 或把大于上限的 LIMIT 收紧到上限
+     *
+     * @return 语句是否被修改
+     */
+    public static boolean apply(Select select, long maxRowCount) {
+        // VALUES 语句行数由字面量决定; FETCH FIRST 与 LIMIT 不能共存，交给 setMaxRows 兜底
+        if (select instanceof Values || select.getFetch() != null) {
+            return false;
+        }
+
+        Limit limit = select.getLimit();
+        if (limit == null) {
+            select.setLimit(new Limit().withRowCount(new LongValue(maxRowCount)));
+            return true;
+        }
+
+        // LIMIT ALL / LIMIT NULL / 参数占位符等非数字形式统一替换为上限
+        Expression rowCount = limit.getRowCount();
+        if (rowCount instanceof LongValue value && value.getValue() <= maxRowCount) {
+            return false;
+        }
+        limit.setRowCount(new LongValue(maxRowCount));
+        return true;
+    }
+
+    /**
+     * 按 {@link #apply} 的规则生成改写后的 SQL，语句本身保持不变
+     * 用于只需要改写后文本、语句还要原样保留的场合，省去复制或重新解析语句
+     *
+     * @return 改写后的 SQL；不需要改写时返回 null
+     */
+    public static String render(Select select, long maxRowCount) {
+        Limit limit = select.getLimit();
+        Expression rowCount = limit != null ? limit.getRowCount() : null;
+        if (!apply(select, maxRowCount)) {
+            return null;
+        }
+        try {
+            return select.toString();
+        } finally {
+            select.setLimit(limit);
+            if (limit != null) {
+                limit.setRowCount(rowCount);
+            }
+        }
+    }
+
+    /**
+     * 语句自身 LIMIT 限定的行数，没有 LIMIT 或不是数字时返回 -1
+     */
+    public static long rowCount(Select select) {
+        Limit limit = select.getLimit();
+        if (limit != null && limit.getRowCount() instanceof LongValue value) {
+            return value.getValue();
+        }
+        return -1;
+    }
+
+    /**
+     * 把 LIMIT / OFFSET 整体替换为给定的窗口，用于从结果中间继续读取
+     *
+     * @param rowCount 小于 0 表示不限行数
+     * @return 是否改写成功；VALUES 与 FETCH FIRST 语句无法改写
+     */
+    public static boolean window(Select select, long offset, long rowCount) {
+        if (select instanceof Values || select.getFetch() != null) {
+            return false;
+        }
+
+        select.setOffset((Offset) null);
+        if (offset <= 0 && rowCount < 0) {
+            select.setLimit(null);
+            return true;
+        }
+        // MySQL 不支持只有 OFFSET 没有行数，不限行数时用最大值代替
+        Limit limit = new Limit().withRowCount(new LongValue(rowCount < 0 ? Long.MAX_VALUE : rowCount));
+        if (offset > 0) {
+            limit.setOffset(new LongValue(offset));
+        }
+        select.setLimit(limit);
+        return true;
+    }
+}
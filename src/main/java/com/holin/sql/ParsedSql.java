@@ -0,0 +1,50 @@
+package com.holin.sql;
+
+import com.holin.exception.McpErrorCode;
+import com.holin.exception.McpException;
+import net.sf.jsqlparser.statement.select.Select;
+
+import java.util.Set;
+
+/**
+ * 一条 SQL 的解析与校验结论
+ * 会被缓存并在多个线程间共享，statement 只读，禁止修改；需要改写时先自行解析一份
+ */
+public record ParsedSql(
+        Select statement,       // 校验通过的原始语句 (未做 LIMIT 改写)
+        String executableSql,   // 实际下发给数据库的 SQL
+        String normalizedSql,   // 由 AST 重新生成的规范化 SQL，作为结果缓存的 key
+        String fingerprint,     // 字面量替换为 ? 后的语句结构，执行计划结论按它缓存
+        Set<String> tables,     // 引用到的表，无法分析时为 null
+        McpErrorCode errorCode, // 校验不通过时的错误码和信息
+        String errorMessage
+) {
+    public static ParsedSql allowed(Select statement, String executableSql) {
+        String normalizedSql = statement.toString();
+        return new ParsedSql(statement, executableSql, normalizedSql, SqlFingerprint.of(statement),
+                SqlInspector.tables(statement), null, null);
+    }
+
+    // 只保存错误码和信息，异常对象不跨线程共享
+    public static ParsedSql rejected(McpException error) {
+        return new ParsedSql(null, null, null, null, null, error.getErrorCode(), error.getMessage());
+    }
+
+    public boolean isRejected() {
+        return errorCode != null;
+    }
+
+    /**
+     * 为本次调用新建校验失败的异常，堆栈指向当前调用方
+     */
+    public McpException newError() {
+        return new McpException(errorCode, errorMessage);
+    }
+
+    /**
+     * 结果是否可以被缓存复用：能确定引用的表 (用于失效)，且不含非确定性函数
+     */
+    public boolean resultCacheable() {
+        return tables != null && !tables.isEmpty() && SqlInspector.isDeterministic(statement);
+    }
+}
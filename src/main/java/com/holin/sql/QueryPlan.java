@@ -0,0 +1,112 @@
+package com.holin.sql;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 从 MySQL EXPLAIN FORMAT=JSON 的输出中提取的执行代价估算
+ *
+ * @param rowsExamined 估算扫描的总行数：嵌套循环里每张表的 rows_examined_per_scan 乘以前面各表连接后的行数
+ * @param queryCost    优化器给出的 query_cost，没有时为 0
+ * @param scans        全表扫描 (ALL) 或全索引扫描 (index) 的表
+ * @param joinBuffered 通过 join buffer 连接的表，说明连接条件用不上索引，缺少连接条件时就是笛卡尔积
+ * @param filesort     是否需要 filesort 或临时表来完成排序、分组、去重
+ */
+public record QueryPlan(
+        double rowsExamined,
+        double queryCost,
+        List<Scan> scans,
+        List<String> joinBuffered,
+        boolean filesort
+) {
+
+    public record Scan(String table, String accessType, double rows) {}
+
+    public static QueryPlan parse(JsonNode explain) {
+        Walker walker = new Walker();
+        walker.walk(explain);
+        double cost = explain.path("query_block").path("cost_info").path("query_cost").asDouble(0);
+        return new QueryPlan(walker.rowsExamined, cost, List.copyOf(walker.scans),
+                List.copyOf(walker.joinBuffered), walker.filesort);
+    }
+
+    private static final class Walker {
+        private double rowsExamined;
+        private final List<Scan> scans = new ArrayList<>();
+        private final List<String> joinBuffered = new ArrayList<>();
+        private boolean filesort;
+
+        void walk(JsonNode node) {
+            if (node.isArray()) {
+                for (JsonNode child : node) {
+                    walk(child);
+                }
+                return;
+            }
+            if (!node.isObject()) {
+                return;
+            }
+            if (node.path("using_filesort").asBoolean(false) || node.path("using_temporary_table").asBoolean(false)) {
+                filesort = true;
+            }
+
+            // 嵌套循环连接：内层表的扫描次数等于前面各表连接后的行数
+            JsonNode loop = node.get("nested_loop");
+            if (loop != null && loop.isArray()) {
+                double prefix = 1;
+                for (JsonNode step : loop) {
+                    JsonNode table = step.get("table");
+                    if (table != null && table.isObject()) {
+                        prefix = table(table, prefix);
+                    } else {
+                        walk(step);
+                    }
+                }
+            }
+
+            JsonNode table = node.get("table");
+            if (table != null && table.isObject()) {
+                table(table, 1);
+            }
+
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                if (!"nested_loop".equals(field.getKey()) && !"table".equals(field.getKey()) && field.getValue().isContainerNode()) {
+                    walk(field.getValue());
+                }
+            }
+        }
+
+        // 累加一张表的扫描行数，返回它参与连接后的行数
+        private double table(JsonNode table, double prefix) {
+            String name = table.path("table_name").asText("?");
+            String access = table.path("access_type").asText("");
+            double perScan = table.path("rows_examined_per_scan").asDouble(0);
+            rowsExamined += perScan * prefix;
+
+            if ("ALL".equals(access) || "index".equals(access)) {
+                scans.add(new Scan(name, access, perScan));
+            }
+            if (table.has("using_join_buffer")) {
+                joinBuffered.add(name);
+            }
+
+            // 派生表、附属子查询等嵌在表节点内部
+            Iterator<Map.Entry<String, JsonNode>> fields = table.fields();
+            while (fields.hasNext()) {
+                JsonNode child = fields.next().getValue();
+                if (child.isContainerNode()) {
+                    walk(child);
+                }
+            }
+
+            double produced = table.path("rows_produced_per_join").asDouble(0);
+            return produced > 0 ? produced : prefix * Math.max(1, perScan);
+        }
+    }
+}
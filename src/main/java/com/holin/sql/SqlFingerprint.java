@@ -0,0 +1,113 @@
+package com.holin.sql;
+
+import net.sf.jsqlparser.expression.DateTimeLiteralExpression;
+import net.sf.jsqlparser.expression.DateValue;
+import net.sf.jsqlparser.expression.DoubleValue;
+import net.sf.jsqlparser.expression.HexValue;
+import net.sf.jsqlparser.expression.LongValue;
+import net.sf.jsqlparser.expression.StringValue;
+import net.sf.jsqlparser.expression.TimeValue;
+import net.sf.jsqlparser.expression.TimestampValue;
+import net.sf.jsqlparser.statement.Statement;
+import net.sf.jsqlparser.statement.select.Select;
+import net.sf.jsqlparser.util.deparser.ExpressionDeParser;
+import net.sf.jsqlparser.util.deparser.SelectDeParser;
+import net.sf.jsqlparser.util.deparser.StatementDeParser;
+
+import java.util.regex.Pattern;
+
+/**
+ * SQL 指纹：把字面量替换为 ?，只保留语句的结构
+ * WHERE id = 1 与 WHERE id = 2 得到同一个指纹，执行计划和统计可以按指纹归并
+ */
+public final class SqlFingerprint {
+
+    // 单引号字符串，支持 '' 与 \' 两种转义
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^'\\\\]|\\\\.|'')*'");
+
+    // 独立的数字 (含小数、科学计数法、十六进制)，不匹配 t1、col_2 这类标识符中的数字
+    private static final Pattern NUMBER_LITERAL = Pattern.compile(
+            "(?<![\\w.`])(?:0x[0-9a-fA-F]+|\\d+(?:\\.\\d+)?(?:[eE][+-]?\\d+)?)(?![\\w`])");
+
+    // LIMIT / OFFSET 的行数可能不经过表达式访问器直接输出
+    private static final Pattern LIMIT_LITERAL = Pattern.compile("(?i)\\b(LIMIT|OFFSET)\\s+\\d+(?:\\s*,\\s*\\d+)?");
+
+    // IN (?, ?, ?) 不论元素多少都归并为 IN (?)
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bIN\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+
+    private SqlFingerprint() {
+    }
+
+    /**
+     * 基于 AST 生成指纹：重新输出语句，遇到字面量时输出 ?
+     * 调用方需保证 statement 在此期间不被修改
+     */
+    public static String of(Select statement) {
+        try {
+            StringBuilder buffer = new StringBuilder();
+            ExpressionDeParser expressions = new LiteralMaskingDeParser();
+            SelectDeParser selects = new SelectDeParser(expressions, buffer);
+            expressions.setSelectVisitor(selects);
+            expressions.setBuffer(buffer);
+            ((Statement) statement).accept(new StatementDeParser(expressions, selects, buffer));
+
+            String fingerprint = LIMIT_LITERAL.matcher(buffer).replaceAll("$1 ?");
+            return IN_LIST.matcher(fingerprint).replaceAll("IN (?)");
+        } catch (RuntimeException e) {
+            // 个别语法 DeParser 不支持，退回按文本替换
+            return of(statement.toString());
+        }
+    }
+
+    /**
+     * 基于文本生成指纹，输入应当是 AST 重新生成的规范化 SQL，关键字大小写和空白已经统一
+     */
+    public static String of(String normalizedSql) {
+        String fingerprint = STRING_LITERAL.matcher(normalizedSql).replaceAll("?");
+        fingerprint = NUMBER_LITERAL.matcher(fingerprint).replaceAll("?");
+        return IN_LIST.matcher(fingerprint).replaceAll("IN (?)");
+    }
+
+    private static final class LiteralMaskingDeParser extends ExpressionDeParser {
+
+        @Override
+        public void visit(LongValue value) {
+            getBuffer().append('?');
+        }
+
+        @Override
+        public void visit(DoubleValue value) {
+            getBuffer().append('?');
+        }
+
+        @Override
+        public void visit(HexValue value) {
+            getBuffer().append('?');
+        }
+
+        @Override
+        public void visit(StringValue value) {
+            getBuffer().append('?');
+        }
+
+        @Override
+        public void visit(DateValue value) {
+            getBuffer().append('?');
+        }
+
+        @Override
+        public void visit(TimeValue value) {
+            getBuffer().append('?');
+        }
+
+        @Override
+        public void visit(TimestampValue value) {
+            getBuffer().append('?');
+        }
+
+        @Override
+        public void visit(DateTimeLiteralExpression value) {
+            getBuffer().append('?');
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.holin.sql;
+
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.Function;
+import net.sf.jsqlparser.expression.TimeKeyExpression;
+import net.sf.jsqlparser.expression.UserVariable;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.statement.Statement;
+import net.sf.jsqlparser.statement.select.OrderByElement;
+import net.sf.jsqlparser.statement.select.ParenthesedSelect;
+import net.sf.jsqlparser.statement.select.PlainSelect;
+import net.sf.jsqlparser.statement.select.Select;
+import net.sf.jsqlparser.statement.select.SetOperationList;
+import net.sf.jsqlparser.util.TablesNamesFinder;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 基于 AST 的 SQL 静态分析工具
+ */
+public final class SqlInspector {
+
+    // 结果随调用时刻、连接或会话变化的函数，包含它们的查询不能复用结果
+    private static final Set<String> NON_DETERMINISTIC_FUNCTIONS = Set.of(
+            "RAND", "UUID", "UUID_SHORT", "NOW", "SYSDATE", "CURDATE", "CURTIME",
+            "CURRENT_TIMESTAMP", "CURRENT_DATE", "CURRENT_TIME", "LOCALTIME", "LOCALTIMESTAMP",
+            "UTC_TIMESTAMP", "UTC_DATE", "UTC_TIME", "UNIX_TIMESTAMP",
+            "CONNECTION_ID", "LAST_INSERT_ID", "FOUND_ROWS", "ROW_COUNT", "SLEEP", "GET_LOCK", "RELEASE_LOCK",
+            "IS_FREE_LOCK", "IS_USED_LOCK", "DATABASE", "SCHEMA", "USER", "CURRENT_USER", "CURRENT_ROLE",
+            "SESSION_USER", "SYSTEM_USER");
+
+    // 不带括号时按列名解析的会话函数
+    private static final Set<String> NON_DETERMINISTIC_KEYWORDS = Set.of("CURRENT_USER", "CURRENT_ROLE");
+
+    private SqlInspector() {
+    }
+
+    /**
+     * 提取语句引用的表名 (去掉库名前缀和引号，统一小写)
+     *
+     * @return 表名集合；JSqlParser 无法分析的语句返回 null
+     */
+    @SuppressWarnings("deprecation")
+    public static Set<String> tables(Select select) {
+        try {
+            List<String> names = new TablesNamesFinder().getTableList((Statement) select);
+            Set<String> tables = new LinkedHashSet<>();
+            for (String name : names) {
+                tables.add(normalizeTableName(name));
+            }
+            return tables;
+        } catch (RuntimeException e) {
+            // TablesNamesFinder 对部分表达式会抛出 UnsupportedOperationException
+            return null;
+        }
+    }
+
+    /**
+     * `db`.`Orders` -> orders
+     */
+    public static String normalizeTableName(String name) {
+        String table = name;
+        int dot = table.lastIndexOf('.');
+        if (dot >= 0) {
+            table = table.substring(dot + 1);
+        }
+        return table.replace("`", "").replace("\"", "").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 判断查询结果是否只由数据决定 (不含时间、随机数、会话相关的函数和 @ 变量)
+     * 按 AST 中的函数节点判断，列名或字符串里出现的同名文本不影响结论；无法分析的语句视为不确定
+     */
+    @SuppressWarnings("deprecation")
+    public static boolean isDeterministic(Select select) {
+        DeterminismFinder finder = new DeterminismFinder();
+        try {
+            finder.getTableList((Statement) select);
+        } catch (RuntimeException e) {
+            return false;
+        }
+        return finder.deterministic;
+    }
+
+    /**
+     * 复用 TablesNamesFinder 对子查询、JOIN、WHERE 等的遍历，只关心其中的函数和变量节点
+     * TablesNamesFinder 不访问 ORDER BY 和 GROUP BY，这里补上 (ORDER BY RAND() 很常见)
+     */
+    private static final class DeterminismFinder extends TablesNamesFinder {
+
+        private boolean deterministic = true;
+
+        @Override
+        public void visit(Function function) {
+            String name = function.getName();
+            int dot = name.lastIndexOf('.');
+            if (NON_DETERMINISTIC_FUNCTIONS.contains(name.substring(dot + 1).toUpperCase(Locale.ROOT))) {
+                deterministic = false;
+            }
+            super.visit(function);
+        }
+
+        // CURRENT_TIMESTAMP、CURRENT_DATE 等不带括号的时间关键字
+        @Override
+        public void visit(TimeKeyExpression expression) {
+            deterministic = false;
+        }
+
+        // @var 与 @@system_var 都取决于会话
+        @Override
+        public void visit(UserVariable variable) {
+            deterministic = false;
+        }
+
+        @Override
+        public void visit(Column column) {
+            if (column.getTable() == null
+                    && NON_DETERMINISTIC_KEYWORDS.contains(column.getColumnName().toUpperCase(Locale.ROOT))) {
+                deterministic = false;
+            }
+            super.visit(column);
+        }
+
+        @Override
+        public void visit(PlainSelect select) {
+            super.visit(select);
+            if (select.getGroupBy() != null) {
+                visitAll(select.getGroupBy().getGroupByExpressionList());
+            }
+            visitOrderBy(select);
+        }
+
+        @Override
+        public void visit(SetOperationList select) {
+            super.visit(select);
+            visitOrderBy(select);
+        }
+
+        @Override
+        public void visit(ParenthesedSelect select) {
+            super.visit(select);
+            visitOrderBy(select);
+        }
+
+        private void visitOrderBy(Select select) {
+            if (select.getOrderByElements() != null) {
+                for (OrderByElement element : select.getOrderByElements()) {
+                    element.getExpression().accept(this);
+                }
+            }
+        }
+
+        private void visitAll(List<? extends Expression> expressions) {
+            if (expressions != null) {
+                for (Expression expression : expressions) {
+                    expression.accept(this);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.holin.store;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.holin.exception.McpErrorCode;
+import com.holin.exception.McpException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 大结果的堆外存储
+ * - 查询结果以紧凑的二进制行格式写入临时文件并只读映射，响应中只返回预览和资源 URI
+ * - 客户端通过 MCP resources/read 按分片读取，直接从映射的文件解码，不再访问 MySQL
+ * - 每个结果在 ttl 后过期；所有结果的文件总大小 (也是映射的内存总量) 不超过 max-size，超出时淘汰旧结果
+ */
+@Component
+public class ResultStore {
+
+    private static final Logger log = LoggerFactory.getLogger(ResultStore.class);
+
+    public static final String URI_PREFIX = "mysql-mcp://results/";
+
+    private static final String FILE_SUFFIX = ".rows";
+
+    @Value("${mcp.sql.spill.enabled:false}")
+    private boolean enabled;
+
+    // 结果文件目录，为空时使用系统临时目录下的 mcp-results
+    @Value("${mcp.sql.spill.dir:}")
+    private String dir;
+
+    @Value("${mcp.sql.spill.ttl:30m}")
+    private Duration ttl = Duration.ofMinutes(30);
+
+    // 所有结果文件的总大小上限，文件整体映射，因此也是映射内存的上限
+    @Value("${mcp.sql.spill.max-size:2GB}")
+    private DataSize maxSize = DataSize.ofGigabytes(2);
+
+    // 单个结果的大小上限
+    @Value("${mcp.sql.spill.max-result-size:512MB}")
+    private DataSize maxResultSize = DataSize.ofMegabytes(512);
+
+    // 单个结果的行数上限
+    @Value("${mcp.sql.spill.max-rows:1000000}")
+    private int maxRows = 1_000_000;
+
+    // 工具响应中返回的预览行数
+    @Value("${mcp.sql.spill.preview-rows:20}")
+    private int previewRows = 20;
+
+    // resources/read 默认每次读取的行数与上限
+    @Value("${mcp.sql.spill.page-rows:1000}")
+    private int pageRows = 1000;
+
+    @Value("${mcp.sql.spill.max-page-rows:5000}")
+    private int maxPageRows = 5000;
+
+    private Path directory;
+
+    private Cache<String, StoredResult> results;
+
+    private final LongAdder stored = new LongAdder();
+    private final LongAdder slices = new LongAdder();
+
+    @PostConstruct
+    void init() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        directory = dir == null || dir.isBlank()
+                ? Path.of(System.getProperty("java.io.tmpdir"), "mcp-results") : Path.of(dir);
+        Files.createDirectories(directory);
+        deleteStaleFiles();
+
+        results = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumWeight(maxSize.toBytes())
+                .weigher((String id, StoredResult result) -> (int) Math.min(Integer.MAX_VALUE, result.getBytes()))
+                .scheduler(Scheduler.systemScheduler())
+                .removalListener((String id, StoredResult result, RemovalCause cause) -> {
+                    if (result != null) {
+                        result.delete();
+                    }
+                    log.debug("Stored result {} removed: {}", id, cause);
+                })
+                .build();
+        log.info("Result store enabled at {}, budget {}, ttl {}", directory, maxSize, ttl);
+    }
+
+    // 上次运行遗留的结果文件已经没有引用，直接删除
+    private void deleteStaleFiles() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + FILE_SUFFIX)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getMaxRows() {
+        return maxRows;
+    }
+
+    /**
+     * 为一次查询创建写入器，结果写完后自动登记
+     */
+    public SpillCollector newCollector(String sessionId) {
+        if (!enabled) {
+            throw new McpException(McpErrorCode.INVALID_PARAMS,
+                    "The result store is disabled. Enable mcp.sql.spill.enabled to spill large results.");
+        }
+        String id = UUID.randomUUID().toString().replace("-", "");
+        try {
+            Path file = Files.createFile(directory.resolve(id + FILE_SUFFIX));
+            long limit = Math.min(maxResultSize.toBytes(), maxSize.toBytes());
+            return new SpillCollector(this, new SpillWriter(file, limit), id, sessionId, previewRows);
+        } catch (IOException e) {
+            log.error("Failed to create result file in {}", directory, e);
+            throw new McpException(McpErrorCode.INTERNAL_ERROR, "Failed to create result file: " + e.getMessage());
+        }
+    }
+
+    StoredResult register(StoredResult result) {
+        results.put(result.getId(), result);
+        stored.increment();
+        return result;
+    }
+
+    public static String uri(String id) {
+        return URI_PREFIX + id;
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    /**
+     * 当前会话可见的结果，供 resources/list 使用
+     */
+    public List<Map<String, Object>> list(String sessionId) {
+        if (!enabled) {
+            return List.of();
+        }
+        return results.asMap().values().stream()
+                .filter(result -> visibleTo(result, sessionId))
+                .sorted(Comparator.comparing(StoredResult::getCreatedAt).reversed())
+                .map(result -> {
+                    Map<String, Object> resource = new LinkedHashMap<>();
+                    resource.put("uri", uri(result.getId()));
+                    resource.put("name", "query result " + result.getId());
+                    resource.put("description", result.getRowCount() + " rows: " + abbreviate(result.getSql()));
+                    resource.put("mimeType", "application/json");
+                    resource.put("size", result.getBytes());
+                    return resource;
+                })
+                .toList();
+    }
+
+    /**
+     * 读取一个分片，uri 形如 mysql-mcp://results/{id}?offset=1000&limit=500
+     */
+    public Map<String, Object> read(String uri, String sessionId) {
+        if (!enabled || uri == null || !uri.startsWith(URI_PREFIX)) {
+            throw new McpException(McpErrorCode.INVALID_PARAMS, "Unknown resource: " + uri);
+        }
+        String path = uri.substring(URI_PREFIX.length());
+        int query = path.indexOf('?');
+        String id = query < 0 ? path : path.substring(0, query);
+        int offset = 0;
+        int limit = pageRows;
+        if (query >= 0) {
+            for (String pair : path.substring(query + 1).split("&")) {
+                int eq = pair.indexOf('=');
+                String name = eq < 0 ? pair : pair.substring(0, eq);
+                String value = eq < 0 ? "" : pair.substring(eq + 1);
+                if (name.equals("offset")) {
+                    offset = parseInt(name, value);
+                } else if (name.equals("limit")) {
+                    // limit=0 会返回同一个 offset 的 next，客户端跟着 next 读会一直原地打转
+                    limit = Math.max(1, Math.min(parseInt(name, value), maxPageRows));
+                }
+            }
+        }
+
+        StoredResult result = results.getIfPresent(id);
+        if (result == null || !visibleTo(result, sessionId)) {
+            throw new McpException(McpErrorCode.INVALID_PARAMS,
+                    "Unknown or expired resource: " + uri + ". Results are kept for " + ttl.toMinutes() + " minutes.");
+        }
+
+        List<Object[]> rows = result.slice(offset, limit);
+        slices.increment();
+
+        Map<String, Object> slice = new LinkedHashMap<>();
+        slice.put("columns", result.getColumns());
+        slice.put("offset", offset);
+        slice.put("rowCount", rows.size());
+        slice.put("totalRows", result.getRowCount());
+        slice.put("rows", rows);
+        if (offset + rows.size() < result.getRowCount()) {
+            slice.put("next", uri(id) + "?offset=" + (offset + rows.size()) + "&limit=" + limit);
+        }
+        return slice;
+    }
+
+    private static int parseInt(String name, String value) {
+        try {
+            return Math.max(0, Integer.parseInt(value));
+        } catch (NumberFormatException e) {
+            throw new McpException(McpErrorCode.INVALID_PARAMS, "Invalid " + name + " in resource URI: " + value);
+        }
+    }
+
+    private static boolean visibleTo(StoredResult result, String sessionId) {
+        return result.getSessionId() == null || sessionId == null || result.getSessionId().equals(sessionId);
+    }
+
+    private static String abbreviate(String sql) {
+        return sql.length() <= 200 ? sql : sql.substring(0, 200) + "...";
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        if (!enabled) {
+            return stats;
+        }
+        stats.put("results", results.estimatedSize());
+        stats.put("bytes", results.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L));
+        stats.put("maxBytes", maxSize.toBytes());
+        stats.put("stored", stored.sum());
+        stats.put("slicesRead", slices.sum());
+        return stats;
+    }
+
+    @PreDestroy
+    void close() {
+        if (results != null) {
+            results.invalidateAll();
+            results.cleanUp();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.holin.store;
+
+import com.holin.codec.ResultCollector;
+import com.holin.dto.QueryResult;
+import org.springframework.jdbc.support.JdbcUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 把结果集写入结果存储，只在堆上保留前几行作为预览
+ */
+public class SpillCollector implements ResultCollector {
+
+    private final ResultStore store;
+    private final SpillWriter writer;
+    private final String id;
+    private final String sessionId;
+    private final int previewRows;
+
+    private String[] columns;
+    private Object[] values;
+    private final List<Object[]> preview = new ArrayList<>();
+
+    private StoredResult stored;
+
+    SpillCollector(ResultStore store, SpillWriter writer, String id, String sessionId, int previewRows) {
+        this.store = store;
+        this.writer = writer;
+        this.id = id;
+        this.sessionId = sessionId;
+        this.previewRows = previewRows;
+    }
+
+    @Override
+    public void start(String[] columns) {
+        this.columns = columns;
+        this.values = new Object[columns.length];
+    }
+
+    @Override
+    public void accept(ResultSet rs) throws SQLException {
+        for (int i = 0; i < columns.length; i++) {
+            values[i] = JdbcUtils.getResultSetValue(rs, i + 1);
+        }
+        try {
+            writer.append(values);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write result file", e);
+        }
+        if (preview.size() < previewRows) {
+            preview.add(values.clone());
+        }
+    }
+
+    @Override
+    public int rowCount() {
+        return writer.rowCount();
+    }
+
+    /**
+     * 写入完成并登记到结果存储，返回只含预览行的列式结果
+     */
+    @Override
+    public QueryResult finish(String sql, boolean truncated) {
+        try {
+            stored = store.register(writer.seal(id, sessionId, sql, columns));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to map result file", e);
+        }
+        return QueryResult.columnar(sql, List.of(columns), preview, truncated);
+    }
+
+    public StoredResult stored() {
+        return stored;
+    }
+
+    /**
+     * 执行失败时删除已写入的部分
+     */
+    public void discard() {
+        if (stored == null) {
+            writer.discard();
+        }
+    }
+}
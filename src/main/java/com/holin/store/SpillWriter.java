@@ -0,0 +1,176 @@
+package com.holin.store;
+
+import com.holin.exception.McpErrorCode;
+import com.holin.exception.McpException;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * 把结果行顺序写入临时文件，写完后以只读方式整体映射到内存
+ * 行格式：[int 行字节数][列值...]，列值为 [byte 类型][数据]，行字节数用于读取时跳过整行
+ * 堆上只保留一个行缓冲和稀疏的行偏移索引，结果再大堆占用也不变
+ */
+final class SpillWriter {
+
+    // 每隔多少行记录一次文件偏移，读取时先跳到最近的记录点再逐行跳过
+    static final int INDEX_INTERVAL = 1024;
+
+    static final byte NULL = 0;
+    static final byte LONG = 1;
+    static final byte DOUBLE = 2;
+    static final byte DECIMAL = 3;
+    static final byte BOOLEAN = 4;
+    static final byte STRING = 5;
+    static final byte BYTES = 6;
+
+    private static final int OUTPUT_BUFFER_SIZE = 256 * 1024;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final long maxBytes;
+
+    // 写文件用的直接内存缓冲，攒满后一次写出
+    private final ByteBuffer out = ByteBuffer.allocateDirect(OUTPUT_BUFFER_SIZE);
+
+    // 编码单行用的缓冲，遇到超长的行时扩容
+    private ByteBuffer row = ByteBuffer.allocate(8192);
+
+    private long[] checkpoints = new long[16];
+    private int checkpointCount;
+
+    private long position;
+    private int rowCount;
+
+    SpillWriter(Path file, long maxBytes) throws IOException {
+        this.file = file;
+        this.maxBytes = Math.min(maxBytes, Integer.MAX_VALUE);
+        this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    void append(Object[] values) throws IOException {
+        row.clear();
+        row.putInt(0);
+        for (Object value : values) {
+            encode(value);
+        }
+        row.putInt(0, row.position() - Integer.BYTES);
+        row.flip();
+
+        int length = row.remaining();
+        if (position + length > maxBytes) {
+            throw new McpException(McpErrorCode.RESULT_TOO_LARGE,
+                    "Result exceeds the " + (maxBytes >> 20) + "MB result store limit after " + rowCount
+                            + " rows. Select fewer columns or add filters.");
+        }
+        if (rowCount % INDEX_INTERVAL == 0) {
+            addCheckpoint(position);
+        }
+
+        if (length > out.remaining()) {
+            flush();
+        }
+        if (length > out.capacity()) {
+            while (row.hasRemaining()) {
+                channel.write(row);
+            }
+        } else {
+            out.put(row);
+        }
+        position += length;
+        rowCount++;
+    }
+
+    private void encode(Object value) {
+        if (value == null) {
+            ensure(1);
+            row.put(NULL);
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            ensure(1 + Long.BYTES);
+            row.put(LONG).putLong(((Number) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            ensure(1 + Double.BYTES);
+            row.put(DOUBLE).putDouble(((Number) value).doubleValue());
+        } else if (value instanceof BigDecimal || value instanceof BigInteger) {
+            putBytes(DECIMAL, value.toString().getBytes(StandardCharsets.US_ASCII));
+        } else if (value instanceof Boolean bool) {
+            ensure(2);
+            row.put(BOOLEAN).put((byte) (bool ? 1 : 0));
+        } else if (value instanceof byte[] bytes) {
+            putBytes(BYTES, bytes);
+        } else {
+            // 日期时间等其他类型与 CSV 格式一样按文本保存
+            putBytes(STRING, value.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private void putBytes(byte type, byte[] bytes) {
+        ensure(1 + Integer.BYTES + bytes.length);
+        row.put(type).putInt(bytes.length).put(bytes);
+    }
+
+    private void ensure(int bytes) {
+        if (row.remaining() >= bytes) {
+            return;
+        }
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(row.capacity() * 2, row.position() + bytes));
+        row.flip();
+        larger.put(row);
+        row = larger;
+    }
+
+    private void addCheckpoint(long offset) {
+        if (checkpointCount == checkpoints.length) {
+            checkpoints = Arrays.copyOf(checkpoints, checkpointCount * 2);
+        }
+        checkpoints[checkpointCount++] = offset;
+    }
+
+    private void flush() throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+
+    int rowCount() {
+        return rowCount;
+    }
+
+    /**
+     * 写入完成，映射整个文件用于读取
+     */
+    StoredResult seal(String id, String sessionId, String sql, String[] columns) throws IOException {
+        try {
+            flush();
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, position);
+            return new StoredResult(id, sessionId, sql, columns, rowCount, position, data,
+                    Arrays.copyOf(checkpoints, checkpointCount), file);
+        } finally {
+            // 映射在通道关闭后依然有效
+            channel.close();
+        }
+    }
+
+    /**
+     * 放弃写入，删除临时文件
+     */
+    void discard() {
+        try {
+            channel.close();
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // 临时目录启动时会整体清理
+        }
+    }
+}
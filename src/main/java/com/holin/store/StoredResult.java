@@ -0,0 +1,131 @@
+package com.holin.store;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 写入结果存储的一个查询结果
+ * 数据在只读映射的文件中，读取分片时直接解码映射的页，不经过额外的读缓冲，也不再访问数据库
+ */
+public final class StoredResult {
+
+    private final String id;
+    private final String sessionId;
+    private final String sql;
+    private final List<String> columns;
+    private final int rowCount;
+    private final long bytes;
+    private final MappedByteBuffer data;
+    private final long[] checkpoints;
+    private final Path file;
+    private final Instant createdAt = Instant.now();
+
+    StoredResult(String id, String sessionId, String sql, String[] columns, int rowCount, long bytes,
+                 MappedByteBuffer data, long[] checkpoints, Path file) {
+        this.id = id;
+        this.sessionId = sessionId;
+        this.sql = sql;
+        this.columns = List.of(columns);
+        this.rowCount = rowCount;
+        this.bytes = bytes;
+        this.data = data;
+        this.checkpoints = checkpoints;
+        this.file = file;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * 读取 [offset, offset + limit) 范围内的行，每行是一个值数组
+     * 先跳到最近的索引点，再按行字节数逐行跳过，不解码被跳过的行
+     */
+    public List<Object[]> slice(int offset, int limit) {
+        if (offset < 0 || offset >= rowCount || limit <= 0) {
+            return List.of();
+        }
+        // 每次读取使用独立的读取位置，多个请求可以并发读同一个结果
+        ByteBuffer buffer = data.duplicate();
+        int checkpoint = offset / SpillWriter.INDEX_INTERVAL;
+        buffer.position((int) checkpoints[checkpoint]);
+        for (int i = checkpoint * SpillWriter.INDEX_INTERVAL; i < offset; i++) {
+            buffer.position(buffer.position() + Integer.BYTES + buffer.getInt(buffer.position()));
+        }
+
+        int end = (int) Math.min(rowCount, (long) offset + limit);
+        List<Object[]> rows = new ArrayList<>(end - offset);
+        for (int i = offset; i < end; i++) {
+            buffer.getInt();
+            Object[] row = new Object[columns.size()];
+            for (int c = 0; c < row.length; c++) {
+                row[c] = decode(buffer);
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static Object decode(ByteBuffer buffer) {
+        byte type = buffer.get();
+        return switch (type) {
+            case SpillWriter.NULL -> null;
+            case SpillWriter.LONG -> buffer.getLong();
+            case SpillWriter.DOUBLE -> buffer.getDouble();
+            case SpillWriter.DECIMAL -> new BigDecimal(new String(bytes(buffer), StandardCharsets.US_ASCII));
+            case SpillWriter.BOOLEAN -> buffer.get() != 0;
+            case SpillWriter.STRING -> new String(bytes(buffer), StandardCharsets.UTF_8);
+            case SpillWriter.BYTES -> bytes(buffer);
+            default -> throw new IllegalStateException("Corrupted result file, unknown value type " + type);
+        };
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * 删除结果文件；映射的内存在不再被引用后由 GC 释放，正在进行的读取不受影响
+     */
+    void delete() {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // 临时目录启动时会整体清理
+        }
+    }
+}
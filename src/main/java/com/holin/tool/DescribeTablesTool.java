@@ -0,0 +1,47 @@
+package com.holin.tool;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.holin.dto.DescribeTablesReq;
+import com.holin.schema.SchemaHelper;
+import com.holin.service.DatabaseService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * @author holin
+ * @date 2025/12/17
+ */
+@Component
+public class DescribeTablesTool implements McpTool {
+
+    @Autowired
+    private SchemaHelper schemaHelper;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Autowired
+    private DatabaseService databaseService;
+
+    @Override
+    public String getName() {
+        return "describe_tables";
+    }
+
+    @Override
+    public String getDescription() {
+        return "批量查询多张数据表的结构，包括字段、主键、索引和外键，适合一次性了解多张相关表";
+    }
+
+    @Override
+    public JsonNode getInputSchema() {
+        return schemaHelper.generate(DescribeTablesReq.class);
+    }
+
+    @Override
+    public Object execute(JsonNode arguments) {
+        DescribeTablesReq req = mapper.convertValue(arguments, DescribeTablesReq.class);
+        return databaseService.describeTables(req.tableNames(), req.pattern(), req.node());
+    }
+}
@@ -0,0 +1,49 @@
+package com.holin.tool;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.holin.codec.ResultFormat;
+import com.holin.dto.FetchNextReq;
+import com.holin.schema.SchemaHelper;
+import com.holin.service.SqlService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * @author holin
+ * @date 2025/12/17
+ */
+@Component
+public class FetchNextTool implements McpTool {
+
+    @Autowired
+    private SchemaHelper schemaHelper;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Autowired
+    private SqlService sqlService;
+
+    @Override
+    public String getName() {
+        return "fetch_next";
+    }
+
+    @Override
+    public String getDescription() {
+        return "读取被截断查询的下一页。传入 query_database 返回的 cursor，返回结构与 query_database 相同；结果中仍有 cursor 表示还有更多行。不要用 OFFSET 重新执行查询来翻页";
+    }
+
+    @Override
+    public JsonNode getInputSchema() {
+        return schemaHelper.generate(FetchNextReq.class);
+    }
+
+    @Override
+    public Object execute(JsonNode arguments) {
+        FetchNextReq req = mapper.convertValue(arguments, FetchNextReq.class);
+        ResultFormat format = req.format() == null || req.format().isBlank() ? null : ResultFormat.from(req.format());
+        return sqlService.fetchNext(req.cursor(), format);
+    }
+}
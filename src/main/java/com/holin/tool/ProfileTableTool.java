@@ -0,0 +1,47 @@
+package com.holin.tool;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.holin.dto.ProfileTableReq;
+import com.holin.schema.SchemaHelper;
+import com.holin.service.TableProfileService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * @author holin
+ * @date 2025/12/17
+ */
+@Component
+public class ProfileTableTool implements McpTool {
+
+    @Autowired
+    private SchemaHelper schemaHelper;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Autowired
+    private TableProfileService profileService;
+
+    @Override
+    public String getName() {
+        return "profile_table";
+    }
+
+    @Override
+    public String getDescription() {
+        return "一次扫描分析数据表每列的数据分布：空值比例、最小/最大值、近似不同值个数、高频值，数值列另有均值、分位数和直方图。大表按采样读取，结果会缓存。了解数据时请用它代替逐列执行 COUNT(DISTINCT)、MIN/MAX 等查询";
+    }
+
+    @Override
+    public JsonNode getInputSchema() {
+        return schemaHelper.generate(ProfileTableReq.class);
+    }
+
+    @Override
+    public Object execute(JsonNode arguments) {
+        ProfileTableReq req = mapper.convertValue(arguments, ProfileTableReq.class);
+        return profileService.profile(req.tableName(), req.columns(), req.sampleRows(), req.timeoutSeconds());
+    }
+}
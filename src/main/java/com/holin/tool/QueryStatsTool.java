@@ -0,0 +1,51 @@
+package com.holin.tool;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.holin.dto.QueryStatsReq;
+import com.holin.metrics.QueryStatsAggregator;
+import com.holin.schema.SchemaHelper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * @author holin
+ * @date 2025/12/17
+ */
+@Component
+public class QueryStatsTool implements McpTool {
+
+    private static final int DEFAULT_LIMIT = 20;
+    private static final int MAX_LIMIT = 100;
+
+    @Autowired
+    private SchemaHelper schemaHelper;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Autowired
+    private QueryStatsAggregator queryStats;
+
+    @Override
+    public String getName() {
+        return "query_stats";
+    }
+
+    @Override
+    public String getDescription() {
+        return "查看本服务执行过的查询统计。查询按结构 (字面量替换为 ?) 归并，给出次数、总耗时、平均/最大耗时、p50/p95/p99、返回行数和错误数，用于找出最耗数据库时间的查询";
+    }
+
+    @Override
+    public JsonNode getInputSchema() {
+        return schemaHelper.generate(QueryStatsReq.class);
+    }
+
+    @Override
+    public Object execute(JsonNode arguments) {
+        QueryStatsReq req = mapper.convertValue(arguments, QueryStatsReq.class);
+        int limit = req.limit() != null && req.limit() > 0 ? Math.min(req.limit(), MAX_LIMIT) : DEFAULT_LIMIT;
+        return queryStats.top(req.orderBy(), limit);
+    }
+}
@@ -2,6 +2,7 @@ package com.holin.tool;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.holin.codec.ResultFormat;
 import com.holin.dto.SqlQueryReq;
 import com.holin.schema.SchemaHelper;
 import com.holin.service.SqlService;
@@ -31,7 +32,7 @@ public class SqlQueryTool implements McpTool {
 
     @Override
     public String getDescription() {
-        return "在数据库中执行一条 SELECT 语句";
+        return "在数据库中执行一条 SELECT 语句。结果行数有上限，truncated 为 true 表示结果已被截断，此时用返回的 cursor 调用 fetch_next 读取后续的行；sql 为实际执行的语句。返回行数较多时可指定 format 为 columnar 或 csv 以减少输出体积";
     }
 
     @Override
@@ -42,6 +43,9 @@ public class SqlQueryTool implements McpTool {
     @Override
     public Object execute(JsonNode arguments) {
         SqlQueryReq req = mapper.convertValue(arguments, SqlQueryReq.class);
-        return sqlService.executeQuery(req.sql());
+        if (Boolean.TRUE.equals(req.spill())) {
+            return sqlService.executeSpilled(req.sql(), req.timeoutSeconds());
+        }
+        return sqlService.executeQuery(req.sql(), req.timeoutSeconds(), ResultFormat.from(req.format()));
     }
 }
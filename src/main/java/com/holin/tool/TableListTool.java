@@ -32,7 +32,7 @@ public class TableListTool implements McpTool {
 
     @Override
     public String getDescription() {
-        return "获取并显示当前数据库中所有可用数据表的名称列表，用于了解数据库结构和可用的表资源";
+        return "获取并显示当前数据库中所有可用数据表的名称列表，用于了解数据库结构和可用的表资源。可按名称模式过滤、分页，withStats=true 时附带每张表的估算行数和大小";
     }
 
     @Override
@@ -42,6 +42,22 @@ public class TableListTool implements McpTool {
 
     @Override
     public Object execute(JsonNode arguments) {
-        return databaseService.listTables();
+        // table_list 可以不带任何参数，此时仍返回简单的表名列表
+        if (arguments == null || !arguments.isObject()) {
+            return databaseService.listTables(null);
+        }
+        TableListReq req = mapper.convertValue(arguments, TableListReq.class);
+        if (!detailed(req)) {
+            return databaseService.listTables(req.node());
+        }
+        return databaseService.listTables(req.pattern(), Boolean.TRUE.equals(req.withStats()),
+                req.offset(), req.limit(), req.node());
+    }
+
+    // 是否需要按模式、分页或附带统计信息列出；这些参数都没有传时保持原来的表名列表
+    // 显式传了 withStats (包括 false) 也返回分页结构，客户端拿到的格式只取决于传了哪些参数
+    private static boolean detailed(TableListReq req) {
+        return req.withStats() != null || (req.pattern() != null && !req.pattern().isBlank())
+                || req.offset() != null || req.limit() != null;
     }
 }
@@ -43,6 +43,6 @@ public class TableSchemaTool implements McpTool{
     @Override
     public Object execute(JsonNode arguments) {
         TableSchemaReq req = mapper.convertValue(arguments, TableSchemaReq.class);
-        return databaseService.getTableSchema(req.tableName());
+        return databaseService.getTableSchema(req.tableName(), req.node());
     }
 }
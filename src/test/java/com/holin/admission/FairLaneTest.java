@@ -0,0 +1,106 @@
+package com.holin.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FairLaneTest {
+
+    private static final long WAIT = TimeUnit.SECONDS.toNanos(10);
+
+    @Test
+    void shouldGrantImmediatelyWhileSlotsAreFree() throws Exception {
+        FairLane lane = new FairLane(2);
+        assertTrue(lane.acquire("a", 1, 0));
+        assertTrue(lane.acquire("b", 1, 0));
+        assertEquals(2, lane.active());
+    }
+
+    @Test
+    void shouldTimeOutWhenNoSlotIsReleased() throws Exception {
+        FairLane lane = new FairLane(1);
+        assertTrue(lane.acquire("a", 1, WAIT));
+
+        assertFalse(lane.acquire("b", 1, TimeUnit.MILLISECONDS.toNanos(50)));
+        assertEquals(0, lane.queued());
+        assertEquals(1, lane.active());
+    }
+
+    @Test
+    void shouldInterleaveSessionsInsteadOfArrivalOrder() throws Exception {
+        FairLane lane = new FairLane(1);
+        assertTrue(lane.acquire("holder", 1, WAIT));
+
+        List<String> granted = new CopyOnWriteArrayList<>();
+        // a 先连续排进三个请求，b 之后才来一个
+        List<Thread> threads = List.of(
+                waitFor(lane, "a", 1, "a1", granted),
+                waitFor(lane, "a", 1, "a2", granted),
+                waitFor(lane, "a", 1, "a3", granted),
+                waitFor(lane, "b", 1, "b1", granted));
+
+        releaseAll(lane, granted, threads.size());
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(List.of("a1", "b1", "a2", "a3"), granted);
+    }
+
+    @Test
+    void shouldFavourHeavierSessions() throws Exception {
+        FairLane lane = new FairLane(1);
+        assertTrue(lane.acquire("holder", 1, WAIT));
+
+        List<String> granted = new CopyOnWriteArrayList<>();
+        List<Thread> threads = List.of(
+                waitFor(lane, "light", 1, "l1", granted),
+                waitFor(lane, "light", 1, "l2", granted),
+                waitFor(lane, "heavy", 2, "h1", granted),
+                waitFor(lane, "heavy", 2, "h2", granted),
+                waitFor(lane, "heavy", 2, "h3", granted));
+
+        releaseAll(lane, granted, threads.size());
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        // 权重为 2 的会话每轮拿到两个名额
+        assertEquals(List.of("l1", "h1", "h2", "l2", "h3"), granted);
+    }
+
+    // 启动一个等待者，确认它已经排上队后再返回，保证到达顺序确定
+    private static Thread waitFor(FairLane lane, String session, int weight, String label, List<String> granted)
+            throws InterruptedException {
+        int queued = lane.queued();
+        Thread thread = Thread.ofVirtual().start(() -> {
+            try {
+                if (lane.acquire(session, weight, WAIT)) {
+                    granted.add(label);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        long deadline = System.nanoTime() + WAIT;
+        while (lane.queued() == queued) {
+            assertTrue(System.nanoTime() < deadline, "waiter did not queue");
+            Thread.sleep(1);
+        }
+        return thread;
+    }
+
+    // 每次释放一个名额，等拿到名额的请求记录下来后再释放下一个
+    private static void releaseAll(FairLane lane, List<String> granted, int count) throws InterruptedException {
+        for (int i = 0; i < count; i++) {
+            lane.release();
+            long deadline = System.nanoTime() + WAIT;
+            while (granted.size() <= i) {
+                assertTrue(System.nanoTime() < deadline, "slot was not handed over");
+                Thread.sleep(1);
+            }
+        }
+    }
+}
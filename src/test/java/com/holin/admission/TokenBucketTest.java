@@ -0,0 +1,39 @@
+package com.holin.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void shouldAllowBurstThenReject() {
+        TokenBucket bucket = new TokenBucket(10, 3, 0);
+        assertTrue(bucket.tryAcquire(0));
+        assertTrue(bucket.tryAcquire(0));
+        assertTrue(bucket.tryAcquire(0));
+        assertFalse(bucket.tryAcquire(0));
+    }
+
+    @Test
+    void shouldRefillAtConfiguredRate() {
+        TokenBucket bucket = new TokenBucket(10, 1, 0);
+        assertTrue(bucket.tryAcquire(0));
+        assertFalse(bucket.tryAcquire(SECOND / 20));
+        assertEquals(SECOND / 20, bucket.nanosUntilNext(SECOND / 20), 1000);
+        assertTrue(bucket.tryAcquire(SECOND / 10));
+    }
+
+    @Test
+    void shouldNotAccumulateBeyondBurst() {
+        TokenBucket bucket = new TokenBucket(10, 2, 0);
+        long later = 60 * SECOND;
+        assertTrue(bucket.tryAcquire(later));
+        assertTrue(bucket.tryAcquire(later));
+        assertFalse(bucket.tryAcquire(later));
+    }
+}
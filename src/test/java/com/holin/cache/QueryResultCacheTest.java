@@ -0,0 +1,136 @@
+package com.holin.cache;
+
+import com.holin.dto.QueryResult;
+import com.holin.exception.McpErrorCode;
+import com.holin.exception.McpException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QueryResultCacheTest {
+
+    private static final String SQL = "SELECT * FROM orders";
+    private static final Duration WAIT = Duration.ofSeconds(5);
+
+    private final QueryResultCache cache = new QueryResultCache();
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "defaultTtl", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(cache, "maxSize", DataSize.ofMegabytes(1));
+        cache.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static QueryResult result() {
+        return QueryResult.rows(SQL, List.of(), false);
+    }
+
+    // 让一个执行者卡在 loader 里，等到另一个请求合并进来后以指定错误结束
+    private Future<QueryResult> coalesceAndFail(McpErrorCode leaderError, AtomicInteger waiterLoads) throws Exception {
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.submit(() -> cache.get(SQL, Set.of("orders"), WAIT, () -> {
+            leaderStarted.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new McpException(leaderError, "leader failed");
+        }));
+        assertTrue(leaderStarted.await(5, TimeUnit.SECONDS));
+
+        Future<QueryResult> waiter = executor.submit(() -> cache.get(SQL, Set.of("orders"), WAIT, () -> {
+            waiterLoads.incrementAndGet();
+            return result();
+        }));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (cache.coalescedCount() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(1, cache.coalescedCount());
+        release.countDown();
+        return waiter;
+    }
+
+    @Test
+    void shouldReloadWhenLeaderWasCancelled() throws Exception {
+        AtomicInteger waiterLoads = new AtomicInteger();
+        QueryResult result = coalesceAndFail(McpErrorCode.REQUEST_CANCELLED, waiterLoads).get(5, TimeUnit.SECONDS);
+
+        assertEquals(SQL, result.sql());
+        assertEquals(1, waiterLoads.get());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void shouldShareLeaderFailureOtherwise() throws Exception {
+        AtomicInteger waiterLoads = new AtomicInteger();
+        Future<QueryResult> waiter = coalesceAndFail(McpErrorCode.DATABASE_ERROR, waiterLoads);
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> waiter.get(5, TimeUnit.SECONDS));
+        assertEquals(McpErrorCode.DATABASE_ERROR, ((McpException) e.getCause()).getErrorCode());
+        assertEquals(0, waiterLoads.get());
+    }
+
+    @Test
+    void shouldNotCacheResultLoadedAcrossInvalidation() {
+        cache.get(SQL, Set.of("orders"), WAIT, () -> {
+            cache.invalidateTable("orders");
+            return result();
+        });
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void shouldStopWaitingAtCallerDeadline() throws Exception {
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.submit(() -> cache.get(SQL, Set.of("orders"), WAIT, () -> {
+            leaderStarted.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return result();
+        }));
+        assertTrue(leaderStarted.await(5, TimeUnit.SECONDS));
+
+        try {
+            McpException e = assertThrows(McpException.class,
+                    () -> cache.get(SQL, Set.of("orders"), Duration.ofMillis(50), QueryResultCacheTest::result));
+            assertEquals(McpErrorCode.QUERY_TIMEOUT, e.getErrorCode());
+
+            // 等待中的线程被中断时立即结束
+            Thread.currentThread().interrupt();
+            e = assertThrows(McpException.class, () -> cache.get(SQL, Set.of("orders"), WAIT, QueryResultCacheTest::result));
+            assertEquals(McpErrorCode.REQUEST_CANCELLED, e.getErrorCode());
+            assertTrue(Thread.interrupted());
+        } finally {
+            release.countDown();
+        }
+    }
+}
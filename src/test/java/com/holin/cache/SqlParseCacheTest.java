@@ -0,0 +1,49 @@
+package com.holin.cache;
+
+import com.holin.exception.McpErrorCode;
+import com.holin.exception.McpException;
+import com.holin.service.SqlService;
+import net.sf.jsqlparser.statement.select.Select;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SqlParseCacheTest {
+
+    private final SqlParseCache cache = new SqlParseCache();
+    private final SqlService service = new SqlService();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxWeight", 1_000_000L);
+        cache.init();
+        ReflectionTestUtils.setField(service, "parseCache", cache);
+    }
+
+    @Test
+    void shouldThrowNewExceptionOnEachCachedRejection() {
+        McpException first = assertThrows(McpException.class, () -> service.validate("DELETE FROM users"));
+        McpException second = assertThrows(McpException.class, () -> service.validate("DELETE FROM users"));
+
+        assertEquals(1, cache.size());
+        assertNotSame(first, second);
+        assertEquals(McpErrorCode.SECURITY_VIOLATION, second.getErrorCode());
+        assertEquals(first.getMessage(), second.getMessage());
+    }
+
+    @Test
+    void shouldReturnCachedStatementWithoutRewrite() {
+        String sql = "SELECT * FROM users WHERE id = 1";
+        Select first = service.validate(sql);
+        Select second = service.validate(sql);
+
+        assertEquals(1, cache.size());
+        // 命中缓存时不再解析，直接返回共享的原始语句
+        assertSame(first, second);
+        assertNull(first.getLimit());
+        assertEquals(sql, first.toString());
+    }
+}
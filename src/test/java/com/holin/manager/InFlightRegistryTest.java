@@ -0,0 +1,37 @@
+package com.holin.manager;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InFlightRegistryTest {
+
+    private final InFlightRegistry registry = new InFlightRegistry();
+
+    @Test
+    void shouldCancelRequestOfSession() {
+        InFlightRequest request = registry.register("s1", 1);
+        assertSame(request, InFlightRegistry.current());
+        assertFalse(registry.cancel("s2", 1));
+        assertTrue(registry.cancel("s1", "1"));
+        assertTrue(request.isCancelled());
+
+        registry.unregister(request);
+        assertNull(InFlightRegistry.current());
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    void shouldNotTrackRequestsWithoutSession() {
+        InFlightRequest first = registry.register(null, 1);
+        assertSame(first, InFlightRegistry.current());
+        registry.unregister(first);
+        InFlightRequest second = registry.register(null, 1);
+
+        // 不进入登记表，相同的请求 ID 不会互相覆盖或被误取消
+        assertEquals(0, registry.size());
+        assertFalse(registry.cancel(null, 1));
+        assertFalse(second.isCancelled());
+        registry.unregister(second);
+    }
+}
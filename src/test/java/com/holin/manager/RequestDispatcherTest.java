@@ -0,0 +1,85 @@
+package com.holin.manager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.holin.dto.JsonRpcRequest;
+import com.holin.metrics.McpMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RequestDispatcherTest {
+
+    // 所有会话都按顺序处理
+    private static class OrderedSessions extends SseSessionManager {
+        @Override
+        public boolean isOrdered(String sessionId) {
+            return true;
+        }
+    }
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final RequestDispatcher dispatcher = new RequestDispatcher();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(dispatcher, "maxInFlight", 4);
+        ReflectionTestUtils.setField(dispatcher, "queueCapacity", 4);
+        ReflectionTestUtils.setField(dispatcher, "maxBatchSize", 10);
+        ReflectionTestUtils.setField(dispatcher, "batchParallelism", 2);
+        ReflectionTestUtils.setField(dispatcher, "metrics", new McpMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(dispatcher, "mcpExecutor", executor);
+        ReflectionTestUtils.setField(dispatcher, "sessionManager", new OrderedSessions());
+        dispatcher.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void shouldReleasePendingWhenOrderedTaskIsRejected() throws Exception {
+        // 应用关闭中，执行器拒绝新任务
+        executor.shutdown();
+
+        assertTrue(dispatcher.dispatch("s1", new JsonRpcRequest("2.0", "tools/list", null, 1)));
+        assertEquals(0, dispatcher.getPending());
+        assertEquals(1, dispatcher.getRejected());
+
+        assertTrue(dispatcher.dispatchBatch("s1", new ObjectMapper().readTree("[{\"jsonrpc\":\"2.0\",\"method\":\"ping\",\"id\":2}]")));
+        assertEquals(0, dispatcher.getPending());
+        assertEquals(2, dispatcher.getRejected());
+    }
+
+    @Test
+    void shouldReserveWholeBatchBeforeItRuns() throws Exception {
+        // 执行器被占住，批次只能排队
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        String batch = "[" + String.join(",", Collections.nCopies(5, "{\"jsonrpc\":\"2.0\",\"method\":\"ping\",\"id\":1}")) + "]";
+        ObjectMapper mapper = new ObjectMapper();
+        assertTrue(dispatcher.dispatchBatch("s1", mapper.readTree(batch)));
+        assertEquals(5, dispatcher.getPending());
+
+        // 排队中的批次已经占用计数，第二个批次会超过 maxInFlight + queueCapacity
+        assertFalse(dispatcher.dispatchBatch("s1", mapper.readTree(batch)));
+        assertEquals(5, dispatcher.getPending());
+        assertEquals(1, dispatcher.getRejected());
+    }
+}
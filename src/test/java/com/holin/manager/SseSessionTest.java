@@ -0,0 +1,91 @@
+package com.holin.manager;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SseSessionTest {
+
+    // 记录 complete 调用，send 按需模拟客户端断开
+    private static class RecordingEmitter extends SseEmitter {
+        final CountDownLatch completed = new CountDownLatch(1);
+        final boolean failSend;
+
+        RecordingEmitter(boolean failSend) {
+            super(0L);
+            this.failSend = failSend;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (failSend) {
+                throw new IOException("Broken pipe");
+            }
+        }
+
+        @Override
+        public synchronized void complete() {
+            completed.countDown();
+        }
+    }
+
+    private static SseSession session(SseEmitter emitter, long maxQueuedBytes) {
+        return new SseSession("s1", emitter, false, 16, maxQueuedBytes, Duration.ofSeconds(15),
+                new SimpleMeterRegistry().timer("send"));
+    }
+
+    @Test
+    void shouldRejectOversizedEventWithoutClosingSession() {
+        SseSession session = session(new RecordingEmitter(false), 100);
+
+        assertEquals(SseSession.Offer.TOO_LARGE, session.offer(SseEmitter.event().data("x"), 101));
+        assertFalse(session.isClosed());
+        assertEquals(1, session.getDropped());
+        assertEquals(0, session.getQueuedBytes());
+        assertEquals(SseSession.Offer.QUEUED, session.offer(SseEmitter.event().data("x"), 60));
+
+        // 多个正常大小的事件积压超过预算仍按慢客户端断开
+        assertEquals(SseSession.Offer.EVICTED, session.offer(SseEmitter.event().data("x"), 60));
+        assertTrue(session.isClosed());
+    }
+
+    @Test
+    void shouldCompleteEmitterWhenWriteFails() throws Exception {
+        RecordingEmitter emitter = new RecordingEmitter(true);
+        SseSession session = session(emitter, 1024);
+        // 与 SseSessionManager 一样，写失败时移除并关闭会话
+        session.start(e -> session.close());
+
+        session.offer(SseEmitter.event().data("x"), 1);
+        assertTrue(emitter.completed.await(5, TimeUnit.SECONDS));
+        assertTrue(session.isClosed());
+    }
+
+    @Test
+    void shouldWithdrawEventOfferedWhileClosing() {
+        SseSession session = session(new RecordingEmitter(false), 1024);
+        // 模拟 offer 检查 closed 之后、入队之前会话被关闭，写线程已经退出
+        ReflectionTestUtils.setField(session, "queue", new LinkedBlockingQueue<Object>() {
+            @Override
+            public boolean add(Object item) {
+                if (!session.isClosed()) {
+                    session.close();
+                }
+                return super.add(item);
+            }
+        });
+
+        assertEquals(SseSession.Offer.CLOSED, session.offer(SseEmitter.event().data("x"), 10));
+        assertEquals(0, session.getQueuedBytes());
+        assertEquals(1, session.getDropped());
+    }
+}
@@ -0,0 +1,47 @@
+package com.holin.metrics;
+
+import com.holin.exception.McpErrorCode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class McpMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final McpMetrics metrics = new McpMetrics(registry);
+
+    @Test
+    void shouldReuseMetersPerTag() {
+        assertSame(metrics.phaseTimer(McpMetrics.EXECUTE, "query_database"),
+                metrics.phaseTimer(McpMetrics.EXECUTE, "query_database"));
+        assertNotSame(metrics.phaseTimer(McpMetrics.EXECUTE, "query_database"),
+                metrics.phaseTimer(McpMetrics.EXECUTE, McpMetrics.NO_TOOL));
+
+        metrics.recordTool("query_database", () -> {
+            metrics.recordPhase(McpMetrics.EXECUTE, 1_000);
+            metrics.recordRows(10, true);
+            metrics.recordRows(5, false);
+            return null;
+        });
+        metrics.recordError(McpErrorCode.QUERY_TIMEOUT);
+        metrics.recordError(McpErrorCode.QUERY_TIMEOUT);
+
+        assertEquals(1, registry.get("mcp.phase").tag("phase", "execute").tag("tool", "query_database").timer().count());
+        assertEquals(2, registry.get("mcp.query.rows").tag("tool", "query_database").summary().count());
+        assertEquals(1, registry.get("mcp.query.truncated").counter().count());
+        assertEquals(2, registry.get("mcp.errors").tag("code", "QUERY_TIMEOUT").counter().count());
+    }
+
+    @Test
+    void shouldTagToolOutcome() {
+        metrics.recordTool("table_list", () -> "ok");
+        assertThrows(IllegalStateException.class, () -> metrics.recordTool("table_list", () -> {
+            throw new IllegalStateException();
+        }));
+
+        assertEquals(1, registry.get("mcp.tool.duration").tag("outcome", "success").timer().count());
+        assertEquals(1, registry.get("mcp.tool.duration").tag("outcome", "error").timer().count());
+        assertEquals(McpMetrics.NO_TOOL, McpMetrics.currentTool());
+    }
+}
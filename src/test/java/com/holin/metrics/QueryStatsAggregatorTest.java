@@ -0,0 +1,87 @@
+package com.holin.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QueryStatsAggregatorTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> queries(Map<String, Object> top) {
+        return (List<Map<String, Object>>) top.get("queries");
+    }
+
+    @Test
+    void shouldAggregateByFingerprint() {
+        QueryStatsAggregator aggregator = new QueryStatsAggregator(10);
+        aggregator.record("SELECT * FROM t WHERE id = ?", "SELECT * FROM t WHERE id = 1", 4 * MS, 1, false);
+        aggregator.record("SELECT * FROM t WHERE id = ?", "SELECT * FROM t WHERE id = 2", 8 * MS, 1, false);
+        aggregator.record("SELECT * FROM t WHERE id = ?", "SELECT * FROM t WHERE id = 3", 20 * MS, 0, true);
+
+        Map<String, Object> stats = queries(aggregator.top(null, 10)).getFirst();
+        assertEquals(3L, stats.get("count"));
+        assertEquals(1L, stats.get("errors"));
+        assertEquals(32L, stats.get("totalMs"));
+        assertEquals(20L, stats.get("maxMs"));
+        assertEquals(2L, stats.get("rows"));
+        assertEquals(10L, stats.get("p50Ms"));
+        assertEquals(25L, stats.get("p99Ms"));
+        assertEquals("SELECT * FROM t WHERE id = 1", stats.get("sample"));
+    }
+
+    @Test
+    void shouldOrderByRequestedMetric() {
+        QueryStatsAggregator aggregator = new QueryStatsAggregator(10);
+        aggregator.record("slow", "slow", 500 * MS, 1, false);
+        for (int i = 0; i < 5; i++) {
+            aggregator.record("frequent", "frequent", MS, 1, false);
+        }
+
+        assertEquals("slow", queries(aggregator.top("totalTime", 1)).getFirst().get("fingerprint"));
+        assertEquals("frequent", queries(aggregator.top("count", 1)).getFirst().get("fingerprint"));
+    }
+
+    @Test
+    void shouldKeepOnlyTheMostExpensiveFingerprints() {
+        QueryStatsAggregator aggregator = new QueryStatsAggregator(10);
+        aggregator.record("expensive", "expensive", 10_000 * MS, 1, false);
+        for (int i = 0; i < 100; i++) {
+            aggregator.record("cheap-" + i, "cheap", MS, 1, false);
+        }
+
+        assertTrue(aggregator.size() <= 11);
+        assertTrue((long) aggregator.top(null, 1).get("evicted") > 0);
+        assertEquals("expensive", queries(aggregator.top(null, 1)).getFirst().get("fingerprint"));
+    }
+
+    @Test
+    void shouldLetNewExpensiveFingerprintReplaceCheapest() {
+        QueryStatsAggregator aggregator = new QueryStatsAggregator(3);
+        aggregator.record("a", "a", 30 * MS, 1, false);
+        aggregator.record("b", "b", 20 * MS, 1, false);
+        aggregator.record("c", "c", 10 * MS, 1, false);
+
+        // 新指纹替换总耗时最低的 c，并继承它的计数
+        aggregator.record("new", "new", 15 * MS, 1, false);
+        assertEquals(3, aggregator.size());
+        Map<String, Object> top = aggregator.top(null, 3);
+        assertEquals(1L, top.get("evicted"));
+
+        Map<String, Object> stats = queries(top).stream()
+                .filter(q -> "new".equals(q.get("fingerprint")))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(2L, stats.get("count"));
+        assertEquals(25L, stats.get("totalMs"));
+        assertEquals(15.0, stats.get("avgMs"));
+        assertEquals(1L, stats.get("overestimatedCount"));
+        assertEquals(10L, stats.get("overestimatedMs"));
+        assertFalse(queries(top).stream().anyMatch(q -> "c".equals(q.get("fingerprint"))));
+    }
+}
@@ -0,0 +1,128 @@
+package com.holin.profile;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColumnProfilerTest {
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> topValues(Map<String, Object> profile) {
+        return (List<Map<String, Object>>) profile.get("topValues");
+    }
+
+    @Test
+    void shouldEstimateDistinctCountWithinErrorBound() {
+        HyperLogLog small = new HyperLogLog();
+        for (int i = 0; i < 1000; i++) {
+            small.addLong(i % 100);
+        }
+        assertEquals(100, small.estimate(), 3);
+
+        HyperLogLog large = new HyperLogLog();
+        for (int i = 0; i < 1_000_000; i++) {
+            large.addString("user-" + i);
+        }
+        assertEquals(1_000_000, large.estimate(), 1_000_000 * 0.05);
+    }
+
+    @Test
+    void shouldKeepHeavyHitters() {
+        SpaceSaving topValues = new SpaceSaving(20);
+        for (int i = 0; i < 100_000; i++) {
+            // 三个高频值穿插在大量唯一值中间
+            topValues.add(i % 10 == 0 ? "a" : i % 10 == 1 ? "b" : i % 20 == 2 ? "c" : "unique-" + i);
+        }
+        List<Map<String, Object>> top = topValues.top(3);
+        assertEquals(List.of("a", "b", "c"), top.stream().map(e -> e.get("value")).toList());
+        assertTrue((long) top.get(0).get("count") >= 10_000);
+    }
+
+    @Test
+    void shouldTrackPrimitiveKeysLikeObjectKeys() {
+        SpaceSaving objects = new SpaceSaving(16);
+        SpaceSaving longs = new SpaceSaving(16);
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            // 少量高频值加上大量触发替换的低频值，覆盖线性探测表的删除
+            long value = random.nextInt(4) == 0 ? random.nextInt(5) : random.nextInt(100_000);
+            objects.add(value);
+            longs.addLong(value);
+        }
+        assertEquals(objects.top(5), longs.top(5));
+
+        SpaceSaving doubles = new SpaceSaving(8);
+        for (int i = 0; i < 1000; i++) {
+            doubles.addDouble(i % 3 == 0 ? 0.0 : i % 3 == 1 ? -0.0 : 1.5);
+        }
+        List<Map<String, Object>> top = doubles.top(2);
+        assertEquals(0.0, top.get(0).get("value"));
+        assertEquals(667L, top.get(0).get("count"));
+        assertEquals(1.5, top.get(1).get("value"));
+    }
+
+    @Test
+    void shouldProfileIntegerColumn() {
+        ColumnProfiler profiler = new ColumnProfiler("age", "INT", ColumnProfiler.Kind.INTEGER, 100);
+        for (int i = 0; i < 1000; i++) {
+            if (i % 10 == 0) {
+                profiler.acceptNull();
+            } else {
+                profiler.acceptLong(i % 50);
+            }
+        }
+        Map<String, Object> profile = profiler.profile(5, 10);
+        assertEquals(100L, profile.get("nulls"));
+        assertEquals(0.1, profile.get("nullRatio"));
+        assertEquals(1L, profile.get("min"));
+        assertEquals(49L, profile.get("max"));
+        assertEquals(45, (long) profile.get("distinct"), 2);
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> histogram = (Map<String, Object>) profile.get("histogram");
+        List<?> counts = (List<?>) histogram.get("counts");
+        assertEquals(10, counts.size());
+        assertEquals(900L, counts.stream().mapToLong(c -> (Long) c).sum());
+        assertEquals(5, topValues(profile).size());
+    }
+
+    @Test
+    void shouldProfileTextAndDecimalColumns() {
+        ColumnProfiler text = new ColumnProfiler("status", "VARCHAR", ColumnProfiler.Kind.TEXT, 100);
+        for (String value : new String[]{"paid", "paid", "shipped", "new", null}) {
+            text.acceptText(value);
+        }
+        Map<String, Object> profile = text.profile(10, 10);
+        assertEquals("new", profile.get("min"));
+        assertEquals("shipped", profile.get("max"));
+        assertEquals(3L, profile.get("distinct"));
+        assertEquals(3, profile.get("minLength"));
+        assertEquals(7, profile.get("maxLength"));
+        assertEquals("paid", topValues(profile).getFirst().get("value"));
+        assertNull(profile.get("histogram"));
+
+        ColumnProfiler decimal = new ColumnProfiler("amount", "DECIMAL", ColumnProfiler.Kind.DECIMAL, 100);
+        decimal.acceptDecimal(new BigDecimal("1.50"));
+        decimal.acceptDecimal(new BigDecimal("1.5"));
+        decimal.acceptDecimal(new BigDecimal("-2.25"));
+        profile = decimal.profile(10, 10);
+        assertEquals(2L, profile.get("distinct"));
+        assertEquals(new BigDecimal("-2.25"), profile.get("min"));
+        assertEquals(0.25, profile.get("mean"));
+    }
+
+    @Test
+    void shouldReportOnlyNullsForEmptyColumn() {
+        ColumnProfiler profiler = new ColumnProfiler("note", "TEXT", ColumnProfiler.Kind.TEXT, 100);
+        profiler.acceptText(null);
+        Map<String, Object> profile = profiler.profile(10, 10);
+        assertEquals(1.0, profile.get("nullRatio"));
+        assertEquals(0L, profile.get("distinct"));
+        assertFalse(profile.containsKey("min"));
+    }
+}
@@ -0,0 +1,161 @@
+package com.holin.replica;
+
+import com.holin.exception.McpException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 用几个内存 H2 库模拟主库和副本
+ */
+public class ReplicaRouterTest {
+
+    private static final String LAG_QUERY = "SELECT lag_seconds FROM replica_lag";
+
+    private DriverManagerDataSource primary;
+    private ReplicaRouter router;
+
+    @BeforeEach
+    void setUp() {
+        primary = h2("primary");
+        init(new JdbcTemplate(primary), "primary");
+        init(new JdbcTemplate(h2("replica-a")), "replica-a");
+        init(new JdbcTemplate(h2("replica-b")), "replica-b");
+        router = newRouter(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        router.close();
+        for (String node : List.of("primary", "replica-a", "replica-b")) {
+            new JdbcTemplate(h2(node)).execute("DROP ALL OBJECTS");
+        }
+    }
+
+    private ReplicaRouter newRouter(boolean fallbackToPrimary) {
+        ReplicaProperties properties = new ReplicaProperties(
+                List.of(node("replica-a"), node("replica-b")),
+                fallbackToPrimary, LAG_QUERY, Duration.ofSeconds(30), 2);
+        return new ReplicaRouter(primary, new DataSourceTransactionManager(primary), properties);
+    }
+
+    private static ReplicaProperties.Node node(String name) {
+        return new ReplicaProperties.Node(name, url(name), "sa", "", 2);
+    }
+
+    private static String url(String name) {
+        return "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1";
+    }
+
+    private static DriverManagerDataSource h2(String name) {
+        return new DriverManagerDataSource(url(name), "sa", "");
+    }
+
+    private static void init(JdbcTemplate jdbc, String name) {
+        jdbc.execute("CREATE TABLE IF NOT EXISTS node_info (name VARCHAR(32))");
+        jdbc.execute("CREATE TABLE IF NOT EXISTS replica_lag (lag_seconds BIGINT)");
+        jdbc.update("DELETE FROM node_info");
+        jdbc.update("DELETE FROM replica_lag");
+        jdbc.update("INSERT INTO node_info VALUES (?)", name);
+        jdbc.update("INSERT INTO replica_lag VALUES (0)");
+    }
+
+    private static String whoAmI(ReplicaNode node) {
+        return node.getJdbcTemplate().queryForObject("SELECT name FROM node_info", String.class);
+    }
+
+    // 副本连接池是只读的，测试数据通过单独的连接写入
+    private static void setLag(String node, Long seconds) {
+        new JdbcTemplate(h2(node)).update("UPDATE replica_lag SET lag_seconds = ?", seconds);
+    }
+
+    @Test
+    void shouldPreferReplicaWithFewestOutstandingQueries() {
+        try (ReplicaRouter.Lease first = router.acquire(); ReplicaRouter.Lease second = router.acquire()) {
+            assertFalse(first.node().isPrimary());
+            assertFalse(second.node().isPrimary());
+            assertNotEquals(first.node().getName(), second.node().getName());
+            // 每个节点的连接确实指向各自的库
+            assertEquals(first.node().getName(), whoAmI(first.node()));
+            assertEquals(second.node().getName(), whoAmI(second.node()));
+        }
+    }
+
+    @Test
+    void shouldEjectLaggingReplicaAndReadmitWhenCaughtUp() {
+        setLag("replica-a", 120L);
+        router.checkHealth();
+        for (int i = 0; i < 10; i++) {
+            try (ReplicaRouter.Lease lease = router.acquire()) {
+                assertEquals("replica-b", lease.node().getName());
+            }
+        }
+
+        setLag("replica-a", 1L);
+        router.checkHealth();
+        try (ReplicaRouter.Lease busy = router.acquire(); ReplicaRouter.Lease next = router.acquire()) {
+            assertNotEquals(busy.node().getName(), next.node().getName());
+        }
+    }
+
+    @Test
+    void shouldEjectReplicaWithStoppedReplication() {
+        setLag("replica-b", null);
+        router.checkHealth();
+        try (ReplicaRouter.Lease lease = router.acquire()) {
+            assertEquals("replica-a", lease.node().getName());
+        }
+    }
+
+    @Test
+    void shouldEjectAfterRepeatedConnectionFailures() {
+        ReplicaNode replicaA = router.node("replica-a");
+
+        router.reportFailure(replicaA, new IllegalStateException("connection refused"));
+        assertTrue(replicaA.isAvailable(), "one failure is below the threshold");
+        router.reportFailure(replicaA, new IllegalStateException("connection refused"));
+        assertFalse(replicaA.isAvailable());
+
+        try (ReplicaRouter.Lease lease = router.acquire()) {
+            assertEquals("replica-b", lease.node().getName());
+        }
+    }
+
+    @Test
+    void shouldFallBackToPrimaryWhenNoReplicaIsHealthy() {
+        setLag("replica-a", 120L);
+        setLag("replica-b", 120L);
+        router.checkHealth();
+        try (ReplicaRouter.Lease lease = router.acquire()) {
+            assertTrue(lease.node().isPrimary());
+            assertEquals("primary", whoAmI(lease.node()));
+        }
+    }
+
+    @Test
+    void shouldRejectWhenNoReplicaIsHealthyAndFallbackIsDisabled() {
+        router.close();
+        router = newRouter(false);
+        setLag("replica-a", 120L);
+        setLag("replica-b", 120L);
+        router.checkHealth();
+        assertThrows(McpException.class, router::acquire);
+    }
+
+    @Test
+    void shouldResolveNodesForMetadataQueries() {
+        assertSame(primary, router.dataSource(null));
+        assertSame(primary, router.dataSource("primary"));
+        assertEquals("replica-b", new JdbcTemplate(router.dataSource("replica-b"))
+                .queryForObject("SELECT name FROM node_info", String.class));
+        assertThrows(McpException.class, () -> router.dataSource("replica-z"));
+    }
+}
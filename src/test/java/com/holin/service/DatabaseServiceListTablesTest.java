@@ -0,0 +1,147 @@
+package com.holin.service;
+
+import com.holin.admission.AdmissionProperties;
+import com.holin.admission.DatabaseBulkhead;
+import com.holin.metrics.McpMetrics;
+import com.holin.replica.ReplicaProperties;
+import com.holin.replica.ReplicaRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 用内存 H2 库测试 table_list 的模式过滤和分页
+ * H2 的 INFORMATION_SCHEMA.TABLES 没有 MySQL 的 ENGINE、TABLE_ROWS 等列，
+ * 测试库里建一个同名列的视图，连接把查询指向这个视图
+ */
+public class DatabaseServiceListTablesTest {
+
+    private static final String URL = "jdbc:h2:mem:list_tables;DB_CLOSE_DELAY=-1";
+
+    private final DriverManagerDataSource dataSource = new DriverManagerDataSource(URL, "sa", "") {
+        @Override
+        protected Connection getConnectionFromDriverManager(String url, Properties props) throws SQLException {
+            return withMySqlTables(super.getConnectionFromDriverManager(url, props));
+        }
+    };
+
+    private ReplicaRouter router;
+    private DatabaseService service;
+
+    @BeforeEach
+    void setUp() {
+        JdbcTemplate jdbc = new JdbcTemplate(new DriverManagerDataSource(URL, "sa", ""));
+        for (String table : List.of("audit_log", "order_items", "orders", "user_roles", "users")) {
+            jdbc.execute("CREATE TABLE \"" + table + "\" (id INT)");
+        }
+        jdbc.execute("COMMENT ON TABLE \"orders\" IS '订单'");
+        jdbc.execute("CREATE VIEW \"order_view\" AS SELECT id FROM \"orders\"");
+        jdbc.execute("CREATE SCHEMA meta");
+        // 库名对应 MySQL 的 TABLE_SCHEMA，使 TABLE_SCHEMA = DATABASE() 成立
+        jdbc.execute("""
+                CREATE VIEW meta.tables AS
+                SELECT TABLE_CATALOG AS TABLE_SCHEMA, TABLE_NAME, TABLE_TYPE, 'InnoDB' AS ENGINE,
+                       ROW_COUNT_ESTIMATE AS TABLE_ROWS, CAST(16384 AS BIGINT) AS DATA_LENGTH,
+                       CAST(0 AS BIGINT) AS INDEX_LENGTH, REMARKS AS TABLE_COMMENT
+                FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_SCHEMA = 'PUBLIC'
+                """);
+
+        ReplicaProperties replicas = new ReplicaProperties(List.of(), true, null, Duration.ofSeconds(30), 2);
+        router = new ReplicaRouter(dataSource, new DataSourceTransactionManager(dataSource), replicas);
+        AdmissionProperties admission = new AdmissionProperties(false, 0, 2, Duration.ofSeconds(5), 0, 0,
+                Duration.ofMinutes(30), null);
+
+        service = new DatabaseService();
+        ReflectionTestUtils.setField(service, "replicaRouter", router);
+        ReflectionTestUtils.setField(service, "bulkhead",
+                new DatabaseBulkhead(admission, replicas, new McpMetrics(new SimpleMeterRegistry()), 10));
+    }
+
+    @AfterEach
+    void tearDown() {
+        router.close();
+        new JdbcTemplate(new DriverManagerDataSource(URL, "sa", "")).execute("DROP ALL OBJECTS");
+    }
+
+    private static Connection withMySqlTables(Connection conn) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("prepareStatement") && args[0] instanceof String sql) {
+                        args[0] = sql.replace("INFORMATION_SCHEMA.TABLES", "meta.tables");
+                    }
+                    try {
+                        return method.invoke(conn, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> tables(Map<String, Object> result) {
+        return (List<Object>) result.get("tables");
+    }
+
+    @Test
+    void shouldPageWithNextOffset() {
+        Map<String, Object> page = service.listTables(null, false, null, 2, null);
+        assertEquals(List.of("audit_log", "order_items"), tables(page));
+        assertEquals(0, page.get("offset"));
+        assertEquals(2, page.get("nextOffset"));
+
+        page = service.listTables(null, false, 2, 2, null);
+        assertEquals(List.of("orders", "user_roles"), tables(page));
+        assertEquals(4, page.get("nextOffset"));
+
+        // 最后一页正好取满时多取的那一行不存在，不再返回 nextOffset
+        page = service.listTables(null, false, 4, 1, null);
+        assertEquals(List.of("users"), tables(page));
+        assertFalse(page.containsKey("nextOffset"));
+
+        page = service.listTables(null, false, 5, 2, null);
+        assertEquals(List.of(), tables(page));
+        assertFalse(page.containsKey("nextOffset"));
+    }
+
+    @Test
+    void shouldFilterByLikePattern() {
+        Map<String, Object> page = service.listTables("order%", false, null, null, null);
+        // 视图不在结果中
+        assertEquals(List.of("order_items", "orders"), tables(page));
+        assertFalse(page.containsKey("nextOffset"));
+
+        page = service.listTables("user%", false, 0, 1, null);
+        assertEquals(List.of("user_roles"), tables(page));
+        assertEquals(1, page.get("nextOffset"));
+    }
+
+    @Test
+    void shouldIncludeStatsWhenRequested() {
+        Map<String, Object> page = service.listTables("orders", true, null, null, null);
+        List<Object> tables = tables(page);
+        assertEquals(1, tables.size());
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> orders = (Map<String, Object>) tables.getFirst();
+        assertEquals("orders", orders.get("name"));
+        assertEquals("InnoDB", orders.get("engine"));
+        assertEquals(16384L, orders.get("dataBytes"));
+        assertEquals("订单", orders.get("comment"));
+    }
+}
@@ -0,0 +1,84 @@
+package com.holin.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.holin.sql.CostVerdict;
+import com.holin.sql.QueryPlan;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QueryCostGuardTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final QueryCostGuard guard = new QueryCostGuard();
+
+    private QueryPlan plan(String json) throws Exception {
+        return QueryPlan.parse(mapper.readTree(json));
+    }
+
+    @Test
+    void shouldPassIndexedLookup() throws Exception {
+        QueryPlan plan = plan("""
+                {"query_block": {"select_id": 1, "cost_info": {"query_cost": "1.00"},
+                  "table": {"table_name": "orders", "access_type": "const", "key": "PRIMARY",
+                            "rows_examined_per_scan": 1, "rows_produced_per_join": 1}}}
+                """);
+        assertEquals(1, plan.rowsExamined());
+        assertEquals(1.0, plan.queryCost());
+
+        CostVerdict verdict = guard.evaluate(plan);
+        assertFalse(verdict.rejected());
+        assertTrue(verdict.warnings().isEmpty());
+    }
+
+    @Test
+    void shouldWarnOnLargeFullScan() throws Exception {
+        QueryPlan plan = plan("""
+                {"query_block": {"select_id": 1,
+                  "ordering_operation": {"using_filesort": true,
+                    "table": {"table_name": "events", "access_type": "ALL",
+                              "rows_examined_per_scan": 2000000, "rows_produced_per_join": 200000}}}}
+                """);
+        assertEquals(2_000_000, plan.rowsExamined());
+        assertTrue(plan.filesort());
+
+        CostVerdict verdict = guard.evaluate(plan);
+        assertFalse(verdict.rejected());
+        assertTrue(verdict.warnings().stream().anyMatch(w -> w.contains("Full table scan on `events`")));
+        assertTrue(verdict.warnings().stream().anyMatch(w -> w.contains("filesort")));
+    }
+
+    @Test
+    void shouldRejectCartesianJoin() throws Exception {
+        // 内层表每次扫描 10 万行，被外层 1 万行各驱动一次
+        QueryPlan plan = plan("""
+                {"query_block": {"select_id": 1, "nested_loop": [
+                  {"table": {"table_name": "users", "access_type": "ALL",
+                             "rows_examined_per_scan": 10000, "rows_produced_per_join": 10000}},
+                  {"table": {"table_name": "orders", "access_type": "ALL", "using_join_buffer": "hash join",
+                             "rows_examined_per_scan": 100000, "rows_produced_per_join": 1000000000}}
+                ]}}
+                """);
+        assertEquals(10_000 + 10_000 * 100_000.0, plan.rowsExamined());
+        assertEquals(2, plan.scans().size());
+        assertEquals(1, plan.joinBuffered().size());
+
+        CostVerdict verdict = guard.evaluate(plan);
+        assertTrue(verdict.rejected());
+        assertTrue(verdict.rejection().contains("cartesian"));
+    }
+
+    @Test
+    void shouldCountRowsInsideDerivedTables() throws Exception {
+        QueryPlan plan = plan("""
+                {"query_block": {"select_id": 1,
+                  "table": {"table_name": "t", "access_type": "ALL", "rows_examined_per_scan": 10,
+                    "materialized_from_subquery": {"query_block": {"select_id": 2,
+                      "table": {"table_name": "logs", "access_type": "range",
+                                "rows_examined_per_scan": 500, "rows_produced_per_join": 10}}}}}}
+                """);
+        assertEquals(510, plan.rowsExamined());
+        assertEquals(1, plan.scans().size());
+    }
+}
@@ -0,0 +1,165 @@
+package com.holin.service;
+
+import com.holin.admission.AdmissionProperties;
+import com.holin.admission.DatabaseBulkhead;
+import com.holin.admission.Lane;
+import com.holin.cache.QueryResultCache;
+import com.holin.codec.ResultFormat;
+import com.holin.dto.QueryResult;
+import com.holin.manager.CursorRegistry;
+import com.holin.metrics.McpMetrics;
+import com.holin.metrics.QueryStatsAggregator;
+import com.holin.replica.ReplicaProperties;
+import com.holin.replica.ReplicaRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 用内存 H2 库测试保持游标：执行时打开，各页来自同一次执行，名额在关闭时归还
+ */
+public class SqlServiceCursorTest {
+
+    private static final String URL = "jdbc:h2:mem:held_cursor;DB_CLOSE_DELAY=-1";
+
+    private final DriverManagerDataSource dataSource = new DriverManagerDataSource(URL, "sa", "");
+    private final JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+
+    private ReplicaRouter router;
+    private DatabaseBulkhead bulkhead;
+    private CursorRegistry cursors;
+    private SqlService service;
+
+    @BeforeEach
+    void setUp() {
+        jdbc.execute("CREATE TABLE items (id INT, name VARCHAR(20))");
+        for (int i = 1; i <= 25; i++) {
+            jdbc.update("INSERT INTO items VALUES (?, ?)", i, "item" + i);
+        }
+
+        ReplicaProperties replicas = new ReplicaProperties(List.of(), true, null, Duration.ofSeconds(30), 2);
+        router = new ReplicaRouter(dataSource, new DataSourceTransactionManager(dataSource), replicas);
+        AdmissionProperties admission = new AdmissionProperties(true, 3, 1, Duration.ofSeconds(5), 0, 0,
+                Duration.ofMinutes(30), null);
+        McpMetrics metrics = new McpMetrics(new SimpleMeterRegistry());
+        bulkhead = new DatabaseBulkhead(admission, replicas, metrics, 10);
+
+        cursors = new CursorRegistry();
+        ReflectionTestUtils.setField(cursors, "heldMaxRows", 100);
+        ReflectionTestUtils.invokeMethod(cursors, "init");
+
+        service = new SqlService();
+        ReflectionTestUtils.setField(service, "replicaRouter", router);
+        ReflectionTestUtils.setField(service, "bulkhead", bulkhead);
+        ReflectionTestUtils.setField(service, "costGuard", new QueryCostGuard());
+        ReflectionTestUtils.setField(service, "resultCache", new QueryResultCache());
+        ReflectionTestUtils.setField(service, "metrics", metrics);
+        ReflectionTestUtils.setField(service, "queryStats", new QueryStatsAggregator());
+        ReflectionTestUtils.setField(service, "cursors", cursors);
+        ReflectionTestUtils.setField(service, "maxRows", 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(cursors, "closeAll");
+        router.close();
+        jdbc.execute("DROP ALL OBJECTS");
+    }
+
+    private long activeQuerySlots() {
+        return bulkhead.stats().stream()
+                .filter(lane -> Lane.QUERY.id().equals(lane.get("lane")))
+                .mapToLong(lane -> ((Number) lane.get("active")).longValue())
+                .sum();
+    }
+
+    private long heldCursors() {
+        return ((Number) cursors.stats().get("held")).longValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> ids(QueryResult result) {
+        List<Object> ids = new ArrayList<>();
+        for (Object row : result.rows()) {
+            ids.add(((Map<String, Object>) row).get("ID"));
+        }
+        return ids;
+    }
+
+    @Test
+    void shouldPageHeldCursorFromOriginalExecution() {
+        QueryResult first = service.executeQuery("SELECT id FROM items", null, ResultFormat.ROWS);
+        assertEquals(10, first.rowCount());
+        assertNotNull(first.cursor());
+        // 游标持有查询通道的名额，直到读完
+        assertEquals(1, activeQuerySlots());
+        assertEquals(1, heldCursors());
+
+        // 后续的页从同一个结果集读取，不会重新执行而看到新插入的行
+        jdbc.update("INSERT INTO items VALUES (?, ?)", 26, "item26");
+
+        List<Object> seen = new ArrayList<>(ids(first));
+        QueryResult second = service.fetchNext(first.cursor(), null);
+        assertEquals(10, second.rowCount());
+        assertNotNull(second.cursor());
+        seen.addAll(ids(second));
+
+        QueryResult last = service.fetchNext(second.cursor(), null);
+        assertEquals(5, last.rowCount());
+        assertNull(last.cursor());
+        seen.addAll(ids(last));
+
+        assertEquals(25, seen.size());
+        assertEquals(25, seen.stream().distinct().count());
+        assertEquals(0, activeQuerySlots());
+        assertEquals(0, heldCursors());
+    }
+
+    @Test
+    void shouldReleaseHeldSlotWhenNotTruncated() {
+        QueryResult result = service.executeQuery("SELECT id FROM items WHERE id <= 5", null, ResultFormat.ROWS);
+        assertEquals(5, result.rowCount());
+        assertFalse(result.truncated());
+        assertNull(result.cursor());
+        assertEquals(0, activeQuerySlots());
+        assertEquals(0, heldCursors());
+    }
+
+    @Test
+    void shouldStopAtHeldRowLimit() {
+        ReflectionTestUtils.setField(cursors, "heldMaxRows", 15);
+
+        QueryResult first = service.executeQuery("SELECT id FROM items", null, ResultFormat.ROWS);
+        assertNotNull(first.cursor());
+
+        QueryResult last = service.fetchNext(first.cursor(), null);
+        assertEquals(5, last.rowCount());
+        assertNull(last.cursor());
+        assertNotNull(last.warnings());
+        assertEquals(0, activeQuerySlots());
+    }
+
+    @Test
+    void shouldNotReturnCursorWhenHeldSlotsAreFull() {
+        ReflectionTestUtils.setField(cursors, "maxHeld", 1);
+        QueryResult held = service.executeQuery("SELECT id FROM items", null, ResultFormat.ROWS);
+        assertNotNull(held.cursor());
+
+        QueryResult other = service.executeQuery("SELECT name FROM items", null, ResultFormat.ROWS);
+        assertTrue(other.truncated());
+        assertNull(other.cursor());
+        assertEquals(1, activeQuerySlots());
+    }
+}
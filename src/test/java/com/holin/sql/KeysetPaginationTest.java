@@ -0,0 +1,80 @@
+package com.holin.sql;
+
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.statement.select.Select;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KeysetPaginationTest {
+
+    private static Select parse(String sql) throws Exception {
+        return (Select) CCJSqlParserUtil.parse(sql);
+    }
+
+    @Test
+    void shouldRewriteSingleKeyToRangePredicate() throws Exception {
+        Select select = parse("SELECT * FROM orders WHERE status = 'paid' ORDER BY id");
+        KeysetPagination.Plan plan = KeysetPagination.analyze(select);
+        assertNotNull(plan);
+        assertEquals(List.of("id"), plan.labels());
+        assertFalse(plan.descending());
+
+        KeysetPagination.rewrite(select, plan);
+        LimitRewriter.window(select, 0, 1001);
+        String sql = select.toString();
+        assertTrue(sql.contains("status = 'paid'"));
+        assertTrue(sql.contains("id >= ?"));
+        assertTrue(sql.endsWith("ORDER BY id LIMIT 1001"));
+    }
+
+    @Test
+    void shouldUseRowComparisonForCompositeDescendingKey() throws Exception {
+        Select select = parse("SELECT o.id AS order_id, o.created_at FROM orders o "
+                + "ORDER BY o.created_at DESC, o.id DESC LIMIT 5000 OFFSET 100");
+        KeysetPagination.Plan plan = KeysetPagination.analyze(select);
+        assertNotNull(plan);
+        assertTrue(plan.descending());
+        assertEquals(List.of("created_at", "order_id"), plan.labels());
+        assertArrayEquals(new int[]{1, 0}, plan.indexesIn(new String[]{"order_id", "created_at"}));
+
+        KeysetPagination.rewrite(select, plan);
+        String sql = select.toString();
+        assertTrue(sql.contains("(o.created_at, o.id) <= (?, ?)"));
+        assertFalse(sql.contains("OFFSET"));
+    }
+
+    @Test
+    void shouldResolveOrderByAlias() throws Exception {
+        KeysetPagination.Plan plan = KeysetPagination.analyze(parse("SELECT id AS order_id, amount FROM orders ORDER BY order_id"));
+        assertNotNull(plan);
+        assertEquals("id", plan.keys().getFirst().getColumnName());
+        assertEquals(List.of("order_id"), plan.labels());
+    }
+
+    @Test
+    void shouldRejectOrderingThatCannotBeResumed() throws Exception {
+        assertNull(KeysetPagination.analyze(parse("SELECT * FROM orders")));
+        assertNull(KeysetPagination.analyze(parse("SELECT * FROM orders ORDER BY created_at DESC, id")));
+        assertNull(KeysetPagination.analyze(parse("SELECT * FROM orders ORDER BY LOWER(status)")));
+        assertNull(KeysetPagination.analyze(parse("SELECT name FROM users ORDER BY id")));
+        assertNull(KeysetPagination.analyze(parse("SELECT id, a + b AS total FROM t ORDER BY total")));
+        assertNull(KeysetPagination.analyze(parse("SELECT user_id, COUNT(*) FROM orders GROUP BY user_id ORDER BY user_id")));
+        assertNull(KeysetPagination.analyze(parse("SELECT o.* FROM orders o JOIN users u ON u.id = o.user_id ORDER BY o.id")));
+        assertNull(KeysetPagination.analyze(parse("SELECT id FROM a UNION ALL SELECT id FROM b ORDER BY id")));
+    }
+
+    @Test
+    void shouldRequireNotNullUniqueKey() throws Exception {
+        KeysetPagination.Plan plan = KeysetPagination.analyze(parse("SELECT * FROM orders ORDER BY created_at, id"));
+        assertNotNull(plan);
+
+        assertTrue(KeysetPagination.isUnique(plan, List.of(List.of("id")), List.of("id", "created_at")));
+        // 排序键中有允许 NULL 的列
+        assertFalse(KeysetPagination.isUnique(plan, List.of(List.of("id")), List.of("id")));
+        // 排序键没有覆盖任何唯一索引
+        assertFalse(KeysetPagination.isUnique(plan, List.of(List.of("id", "tenant_id")), List.of("id", "created_at")));
+    }
+}
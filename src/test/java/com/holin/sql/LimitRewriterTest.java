@@ -0,0 +1,71 @@
+package com.holin.sql;
+
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.statement.select.Select;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LimitRewriterTest {
+
+    private static Select parse(String sql) throws Exception {
+        return (Select) CCJSqlParserUtil.parse(sql);
+    }
+
+    @Test
+    void shouldAppendLimitWhenMissing() throws Exception {
+        Select select = parse("SELECT * FROM users WHERE age > 18");
+        assertTrue(LimitRewriter.apply(select, 1001));
+        assertTrue(select.toString().endsWith("LIMIT 1001"));
+    }
+
+    @Test
+    void shouldLowerLargerLimit() throws Exception {
+        Select select = parse("SELECT * FROM users LIMIT 50000");
+        assertTrue(LimitRewriter.apply(select, 1001));
+        assertTrue(select.toString().endsWith("LIMIT 1001"));
+    }
+
+    @Test
+    void shouldKeepSmallerLimit() throws Exception {
+        Select select = parse("SELECT * FROM users LIMIT 10");
+        assertFalse(LimitRewriter.apply(select, 1001));
+        assertTrue(select.toString().endsWith("LIMIT 10"));
+    }
+
+    @Test
+    void shouldRenderWithoutModifyingStatement() throws Exception {
+        Select select = parse("SELECT * FROM users LIMIT 5000");
+        assertTrue(LimitRewriter.render(select, 1001).endsWith("LIMIT 1001"));
+        assertTrue(select.toString().endsWith("LIMIT 5000"));
+
+        select = parse("SELECT * FROM users");
+        assertTrue(LimitRewriter.render(select, 1001).endsWith("LIMIT 1001"));
+        assertNull(select.getLimit());
+
+        assertNull(LimitRewriter.render(parse("SELECT * FROM users LIMIT 10"), 1001));
+    }
+
+    @Test
+    void shouldLimitOutermostUnion() throws Exception {
+        Select select = parse("SELECT id FROM a UNION ALL SELECT id FROM b");
+        assertTrue(LimitRewriter.apply(select, 1001));
+        assertTrue(select.toString().endsWith("LIMIT 1001"));
+    }
+
+    @Test
+    void shouldReadRequestedRowCount() throws Exception {
+        assertEquals(5000, LimitRewriter.rowCount(parse("SELECT * FROM users LIMIT 10, 5000")));
+        assertEquals(5000, LimitRewriter.rowCount(parse("SELECT * FROM users LIMIT 5000 OFFSET 10")));
+
+        assertEquals(-1, LimitRewriter.rowCount(parse("SELECT * FROM users")));
+    }
+
+    @Test
+    void shouldReplaceWindow() throws Exception {
+        Select select = parse("SELECT * FROM users LIMIT 5000 OFFSET 10");
+        assertTrue(LimitRewriter.window(select, 1010, 3990));
+        assertTrue(select.toString().endsWith("LIMIT 1010, 3990"));
+        assertFalse(select.toString().contains("OFFSET"));
+    }
+}
@@ -0,0 +1,54 @@
+package com.holin.sql;
+
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.statement.select.Select;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SqlFingerprintTest {
+
+    private static String fingerprint(String sql) throws Exception {
+        return SqlFingerprint.of((Select) CCJSqlParserUtil.parse(sql));
+    }
+
+    @Test
+    void shouldMaskLiteralsFromAst() throws Exception {
+        assertEquals(fingerprint("SELECT * FROM users WHERE id = 42 AND name = 'bob' LIMIT 10"),
+                fingerprint("SELECT * FROM users WHERE id = 7 AND name = 'it''s' LIMIT 500"));
+        assertFalse(fingerprint("SELECT * FROM users WHERE id = 42 AND name = 'bob'").contains("bob"));
+    }
+
+    @Test
+    void shouldMaskLiteralsInsideSubqueries() throws Exception {
+        String fingerprint = fingerprint(
+                "SELECT u.id FROM users u WHERE u.id IN (SELECT user_id FROM orders WHERE amount > 100 AND status IN ('paid', 'shipped'))");
+        assertFalse(fingerprint.contains("100"));
+        assertFalse(fingerprint.contains("paid"));
+        assertTrue(fingerprint.contains("IN (?)"));
+    }
+
+    @Test
+    void shouldReplaceLiterals() {
+        assertEquals("SELECT * FROM users WHERE id = ? AND name = ? AND score > ?",
+                SqlFingerprint.of("SELECT * FROM users WHERE id = 42 AND name = 'it''s' AND score > 1.5e3"));
+    }
+
+    @Test
+    void shouldKeepDigitsInsideIdentifiers() {
+        assertEquals("SELECT t1.col_2 FROM `t2` t1 WHERE t1.v3 = ? LIMIT ?",
+                SqlFingerprint.of("SELECT t1.col_2 FROM `t2` t1 WHERE t1.v3 = 7 LIMIT 1001"));
+    }
+
+    @Test
+    void shouldCollapseInLists() {
+        assertEquals(SqlFingerprint.of("SELECT * FROM orders WHERE id IN (1)"),
+                SqlFingerprint.of("SELECT * FROM orders WHERE id IN (1, 2, 3)"));
+    }
+
+    @Test
+    void shouldDistinguishDifferentShapes() {
+        assertNotEquals(SqlFingerprint.of("SELECT * FROM orders WHERE id = 1"),
+                SqlFingerprint.of("SELECT * FROM orders WHERE user_id = 1"));
+    }
+}
@@ -0,0 +1,35 @@
+package com.holin.sql;
+
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.statement.select.Select;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SqlInspectorTest {
+
+    private static boolean deterministic(String sql) throws Exception {
+        return SqlInspector.isDeterministic((Select) CCJSqlParserUtil.parse(sql));
+    }
+
+    @Test
+    void shouldDetectNonDeterministicFunctions() throws Exception {
+        assertFalse(deterministic("SELECT * FROM orders WHERE created_at > NOW() - INTERVAL 1 DAY"));
+        assertFalse(deterministic("SELECT * FROM orders WHERE created_at > CURRENT_TIMESTAMP"));
+        assertFalse(deterministic("SELECT id FROM orders ORDER BY RAND() LIMIT 5"));
+        assertFalse(deterministic("SELECT DATABASE(), USER()"));
+        assertFalse(deterministic("SELECT * FROM users WHERE name = CURRENT_USER"));
+        assertFalse(deterministic("SELECT * FROM orders WHERE id > @last_id"));
+        assertFalse(deterministic("SELECT @@session.time_zone FROM dual"));
+        assertFalse(deterministic(
+                "SELECT u.id FROM users u WHERE u.id IN (SELECT user_id FROM orders WHERE paid_at < sysdate())"));
+        assertFalse(deterministic("SELECT status, COUNT(*) FROM orders GROUP BY status, UUID()"));
+    }
+
+    @Test
+    void shouldIgnoreLookalikeNames() throws Exception {
+        assertTrue(deterministic("SELECT now_count, user_id, rand_seed FROM stats WHERE database_name = 'NOW()'"));
+        assertTrue(deterministic("SELECT COUNT(*), MAX(created_at) FROM orders WHERE status = 'paid' ORDER BY 1"));
+        assertTrue(deterministic("SELECT u.current_user FROM sessions u"));
+    }
+}
@@ -0,0 +1,63 @@
+package com.holin.store;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResultStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private final ResultStore store = new ResultStore();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ReflectionTestUtils.setField(store, "enabled", true);
+        ReflectionTestUtils.setField(store, "dir", dir.toString());
+        store.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    private String storeRows(int count) throws Exception {
+        SpillWriter writer = new SpillWriter(Files.createFile(dir.resolve("r.rows")), 1 << 20);
+        for (int i = 0; i < count; i++) {
+            writer.append(new Object[]{(long) i});
+        }
+        return ResultStore.uri(store.register(writer.seal("r", "s1", "SELECT id FROM t", new String[]{"id"})).getId());
+    }
+
+    @Test
+    void shouldFollowNextLinksToTheEnd() throws Exception {
+        String uri = storeRows(5);
+
+        Map<String, Object> slice = store.read(uri + "?offset=0&limit=2", "s1");
+        assertEquals(2, slice.get("rowCount"));
+        assertEquals(uri + "?offset=2&limit=2", slice.get("next"));
+
+        slice = store.read(uri + "?offset=4&limit=2", "s1");
+        assertEquals(1, slice.get("rowCount"));
+        assertFalse(slice.containsKey("next"));
+    }
+
+    @Test
+    void shouldReadAtLeastOneRowWhenLimitIsZero() throws Exception {
+        String uri = storeRows(3);
+
+        Map<String, Object> slice = store.read(uri + "?offset=0&limit=0", "s1");
+        assertEquals(1, slice.get("rowCount"));
+        assertEquals(uri + "?offset=1&limit=1", slice.get("next"));
+    }
+}
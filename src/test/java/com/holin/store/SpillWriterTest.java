@@ -0,0 +1,97 @@
+package com.holin.store;
+
+import com.holin.exception.McpErrorCode;
+import com.holin.exception.McpException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SpillWriterTest {
+
+    @TempDir
+    Path dir;
+
+    private SpillWriter writer(String name, long maxBytes) throws Exception {
+        return new SpillWriter(Files.createFile(dir.resolve(name)), maxBytes);
+    }
+
+    @Test
+    void shouldRoundTripValueTypes() throws Exception {
+        SpillWriter writer = writer("types.rows", 1 << 20);
+        writer.append(new Object[]{1, 2L, 1.5, new BigDecimal("12345.6789"), true, "中文", new byte[]{1, 2}, null});
+        StoredResult result = writer.seal("r1", "s1", "SELECT 1",
+                new String[]{"i", "l", "d", "dec", "b", "s", "bin", "n"});
+
+        assertEquals(1, result.getRowCount());
+        Object[] row = result.slice(0, 10).get(0);
+        assertEquals(1L, row[0]);
+        assertEquals(2L, row[1]);
+        assertEquals(1.5, row[2]);
+        assertEquals(new BigDecimal("12345.6789"), row[3]);
+        assertEquals(true, row[4]);
+        assertEquals("中文", row[5]);
+        assertArrayEquals(new byte[]{1, 2}, (byte[]) row[6]);
+        assertNull(row[7]);
+    }
+
+    @Test
+    void shouldSliceAcrossIndexCheckpoints() throws Exception {
+        SpillWriter writer = writer("rows.rows", 64 << 20);
+        int total = SpillWriter.INDEX_INTERVAL * 3 + 17;
+        for (int i = 0; i < total; i++) {
+            // 行长度不固定，跳行必须依赖行字节数
+            writer.append(new Object[]{(long) i, "v".repeat(i % 37)});
+        }
+        StoredResult result = writer.seal("r2", null, "SELECT id, v FROM t", new String[]{"id", "v"});
+        assertEquals(total, result.getRowCount());
+
+        List<Object[]> slice = result.slice(SpillWriter.INDEX_INTERVAL - 2, 5);
+        assertEquals(5, slice.size());
+        for (int i = 0; i < slice.size(); i++) {
+            long id = SpillWriter.INDEX_INTERVAL - 2 + i;
+            assertEquals(id, slice.get(i)[0]);
+            assertEquals("v".repeat((int) (id % 37)), slice.get(i)[1]);
+        }
+
+        List<Object[]> tail = result.slice(total - 3, 100);
+        assertEquals(3, tail.size());
+        assertEquals((long) total - 1, tail.get(2)[0]);
+
+        assertTrue(result.slice(total, 10).isEmpty());
+    }
+
+    @Test
+    void shouldWriteRowsLargerThanOutputBuffer() throws Exception {
+        SpillWriter writer = writer("large.rows", 64 << 20);
+        String large = "x".repeat(600_000);
+        writer.append(new Object[]{1L, "small"});
+        writer.append(new Object[]{2L, large});
+        writer.append(new Object[]{3L, "after"});
+        StoredResult result = writer.seal("r3", null, "SELECT 1", new String[]{"id", "v"});
+
+        List<Object[]> rows = result.slice(0, 3);
+        assertEquals("small", rows.get(0)[1]);
+        assertEquals(large, rows.get(1)[1]);
+        assertEquals("after", rows.get(2)[1]);
+    }
+
+    @Test
+    void shouldRejectResultOverSizeLimit() throws Exception {
+        SpillWriter writer = writer("limit.rows", 1024);
+        McpException e = assertThrows(McpException.class, () -> {
+            for (int i = 0; i < 100; i++) {
+                writer.append(new Object[]{"0123456789".repeat(5)});
+            }
+        });
+        assertEquals(McpErrorCode.RESULT_TOO_LARGE.getCode(), e.getCode());
+
+        writer.discard();
+        assertFalse(Files.exists(dir.resolve("limit.rows")));
+    }
+}